@@ -0,0 +1,100 @@
+package bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.controller.DrawController;
+import main.model.ControlModel;
+import main.model.DrawModel;
+import main.view.CanvasPanel;
+
+/**
+ * Benchmarks of painting a CanvasPanel object offscreen, into a BufferedImage, with java.awt.headless=true.
+ * The view is zoomed out to show the whole document. A cold paint drops the tile cache first.
+ * Without levelOfDetail every Figure object is stroked, however small it is on the image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class CanvasBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 800;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"all", "boxes", "curves"})
+    public String mix;
+
+    @Param({"true", "false"})
+    public boolean tiled;
+
+    @Param({"false", "true"})
+    public boolean mergeBatches;
+
+    @Param({"true", "false"})
+    public boolean levelOfDetail;
+
+    private CanvasPanel canvas;
+    private BufferedImage image;
+    private Graphics2D g2d;
+
+    @Setup
+    public void setUp() {
+        DrawModel model = new DrawModel();
+        model.loadFigures(Documents.build(size, mix, 42));
+        canvas = new CanvasPanel(new DrawController(model, new ControlModel()));
+        canvas.setSize(WIDTH, HEIGHT);
+        canvas.setTiledMode(tiled);
+        canvas.getRenderer().setMergeBatches(mergeBatches);
+        if (!levelOfDetail) {
+            canvas.setLevelOfDetail(0, 0);
+        }
+        canvas.setView(Math.max(0.1, Math.min(WIDTH, HEIGHT) / (Documents.extent(size) + 60)), 0, 0);
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g2d = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2d.dispose();
+    }
+
+    /**
+     * Paint the whole canvas with nothing cached.
+     * @return BufferedImage the painted image.
+     */
+    @Benchmark
+    public BufferedImage paintCold() {
+        canvas.invalidateTiles(null);
+        canvas.paint(g2d);
+        return image;
+    }
+
+    /**
+     * Paint the whole canvas again without any change, from the tile cache in tiled mode.
+     * @return BufferedImage the painted image.
+     */
+    @Benchmark
+    public BufferedImage paintWarm() {
+        canvas.paint(g2d);
+        return image;
+    }
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Random;
+
+import main.model.figure.Figure;
+import main.model.figure.FigureType;
+
+/**
+ * Build random documents of Figure objects for the benchmarks.
+ * Documents are spread over an area that grows with their size, so the density of Figure objects stays the same.
+ */
+public final class Documents {
+    public static final Color[] COLORS = {Color.orange, Color.blue, Color.pink, Color.green, Color.red}; // as ControlModel
+
+    private Documents() {
+    }
+
+    /**
+     * @param mix the name of a mix: "all" for all seven types, "boxes" for rectangles, ellipses and lines,
+     *     "curves" for the path-based triangles, crosses, hearts and moons
+     * @return FigureType[] the types of the mix.
+     * @throws IllegalArgumentException if the mix is unknown
+     */
+    public static FigureType[] types(String mix) throws IllegalArgumentException {
+        switch (mix) {
+            case "all":
+                return FigureType.values();
+            case "boxes":
+                return new FigureType[] {FigureType.RECTANGLE, FigureType.ELLIPSE, FigureType.LINE};
+            case "curves":
+                return new FigureType[] {FigureType.TRIANGLE, FigureType.CROSS, FigureType.HEART, FigureType.MOON};
+            default:
+                throw new IllegalArgumentException(mix + " is not a figure mix.");
+        }
+    }
+
+    /**
+     * @param size the number of Figure objects
+     * @return double the width and height of the area the Figure objects are spread over.
+     */
+    public static double extent(int size) {
+        return Math.max(1000, Math.sqrt(size) * 40);
+    }
+
+    /**
+     * Build a document.
+     * @param size the number of Figure objects
+     * @param mix the name of a mix, see types
+     * @param seed the seed of the random positions, sizes, colors and fill options
+     * @return ArrayList<Figure> the Figure objects ordered from top to bottom.
+     */
+    public static ArrayList<Figure> build(int size, String mix, long seed) {
+        FigureType[] types = types(mix);
+        Random random = new Random(seed);
+        double extent = extent(size);
+        ArrayList<Figure> figures = new ArrayList<Figure>(size);
+        for (int i = 0; i < size; i += 1) {
+            double x1 = random.nextDouble() * extent;
+            double y1 = random.nextDouble() * extent;
+            Figure figure = types[i % types.length].create(x1, y1, COLORS[random.nextInt(COLORS.length)], random.nextInt(4) == 0);
+            figure.updateArea(10 + random.nextDouble() * 50, 10 + random.nextDouble() * 50);
+            figures.add(figure);
+        }
+        return figures;
+    }
+}
@@ -0,0 +1,131 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.model.DrawModel;
+import main.model.figure.Figure;
+
+/**
+ * Benchmarks of editing a DrawModel object: creating Figure objects, selecting by point, and the undo history.
+ * Each benchmark leaves the document at the size it started with, so results don't drift during an iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class DrawModelBenchmark {
+    private static final int POINTS = 1024; // a power of 2
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"all", "boxes", "curves"})
+    public String mix;
+
+    private DrawModel model;
+    private double[] points; // x and y coordinates to select at
+    private int next;
+
+    @Setup
+    public void setUp() {
+        model = new DrawModel();
+        model.loadFigures(Documents.build(size, mix, 42));
+        Random random = new Random(7);
+        double extent = Documents.extent(size);
+        points = new double[2 * POINTS];
+        for (int i = 0; i < points.length; i += 1) {
+            points[i] = random.nextDouble() * extent;
+        }
+        // steps to undo and redo, the last created Figure object stays selected for shifting
+        for (int i = 0; i < 16; i += 1) {
+            model.saveHistory();
+            model.createNewFigure("rectangle", i, i, Documents.COLORS[0], false);
+            model.updateCurrentFigure(i, i, 20, 20);
+        }
+    }
+
+    /**
+     * Starts an undoable step before each call of createNewFigure and undoes it after, outside the measured time,
+     * so the document keeps its size without timing the history.
+     * Fixtures run per invocation add their own overhead to calls this short, so compare results between commits
+     * rather than taking them as absolute times.
+     */
+    @State(Scope.Benchmark)
+    public static class CreatedFigure {
+        private DrawModel model;
+
+        @Setup
+        public void setUp(DrawModelBenchmark benchmark) {
+            model = benchmark.model;
+        }
+
+        @Setup(Level.Invocation)
+        public void saveHistory() {
+            model.saveHistory();
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo() {
+            model.undo();
+        }
+    }
+
+    /**
+     * Create a Figure object on top and drag it to its size as DrawController does. It is undone after the call.
+     * @param created the fixtures restoring the document
+     * @return Figure the created Figure object.
+     */
+    @Benchmark
+    public Figure createNewFigure(CreatedFigure created) {
+        int i = next++ & (POINTS - 1);
+        model.createNewFigure(mix.equals("curves") ? "heart" : "rectangle", points[2 * i], points[2 * i + 1], Documents.COLORS[1], false);
+        model.updateCurrentFigure(points[2 * i], points[2 * i + 1], 30, 20);
+        return model.getCurrentFigure();
+    }
+
+    /**
+     * @return Figure the Figure object selected at the next point, null if none.
+     */
+    @Benchmark
+    public Figure selectTopFigureContains() {
+        int i = next++ & (POINTS - 1);
+        model.selectTopFigureContains(points[2 * i], points[2 * i + 1]);
+        return model.getCurrentFigure();
+    }
+
+    /**
+     * Start a step and shift the selected Figure object by one unit, back and forth.
+     * The history grows by a step each time, so it includes spilling the oldest steps beyond the memory budget.
+     */
+    @Benchmark
+    public void saveHistoryAndShift() {
+        model.saveHistory();
+        model.shiftCurrentFigure((next++ & 1) == 0 ? 1 : -1, 0);
+    }
+
+    /**
+     * Undo and redo the latest step.
+     */
+    @Benchmark
+    public void undoRedo() {
+        model.undo();
+        model.redo();
+    }
+}
@@ -0,0 +1,142 @@
+package bench;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.model.figure.Figure;
+import main.model.figure.FigureType;
+
+/**
+ * Benchmarks of one Figure object of each of the seven types: cloning, building its Shape, hit testing and painting.
+ * The flattened variants use the Shape flattened into a polygon within flatness beforehand, as a renderer caching
+ * polygons of curved types would, to compare them with Java2D handling the curves of Heart and Moon on each call.
+ * The flatness ranges from a render grade polygon to coarse ones only good enough for hit testing;
+ * the other benchmarks don't use it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+public class FigureBenchmark {
+    @Param({"line", "rectangle", "ellipse", "cross", "triangle", "heart", "moon"})
+    public String type;
+
+    @Param({"0.125", "0.5", "1"})
+    public double flatness; // model units, one pixel per unit in the image
+
+    private Figure figure;
+    private int next;
+    private Path2D.Double flattened; // the Shape of the Figure object flattened within flatness
+    private BufferedImage image;
+    private Graphics2D g2d;
+
+    @Setup
+    public void setUp() {
+        figure = FigureType.of(type).create(100, 100, Color.blue, true);
+        figure.updateArea(80, 60);
+        flattened = new Path2D.Double();
+        flattened.append(figure.getShape2D().getPathIterator(null, flatness), false);
+        image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        g2d = image.createGraphics();
+        g2d.setColor(figure.getColor());
+        g2d.setStroke(new BasicStroke(5));
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2d.dispose();
+    }
+
+    /**
+     * @return Figure a clone of the Figure object.
+     */
+    @Benchmark
+    public Figure cloneFigure() {
+        return figure.clone();
+    }
+
+    /**
+     * @return Shape the Shape object cached by the Figure object.
+     */
+    @Benchmark
+    public Shape getShape2D() {
+        return figure.getShape2D();
+    }
+
+    /**
+     * Change the bounding box, as a drag does, and build the Shape object again.
+     * @return Shape the new Shape object.
+     */
+    @Benchmark
+    public Shape getShape2DAfterUpdate() {
+        figure.updateArea(80 + (next++ & 1), 60);
+        return figure.getShape2D();
+    }
+
+    /**
+     * @return boolean whether the Figure object contains a point near its center.
+     */
+    @Benchmark
+    public boolean contains() {
+        return figure.contains(140 + (next++ & 7), 130);
+    }
+
+    /**
+     * @return boolean whether the Shape object intersects a box near its center, as contains did before closed forms.
+     */
+    @Benchmark
+    public boolean intersectsShape() {
+        return figure.getShape2D().intersects(140 + (next++ & 7), 130, 2, 2);
+    }
+
+    /**
+     * @return boolean whether the flattened Shape object intersects a box near its center.
+     */
+    @Benchmark
+    public boolean intersectsFlattened() {
+        return flattened.intersects(140 + (next++ & 7), 130, 2, 2);
+    }
+
+    /**
+     * Outline and fill the Shape object, as FigureRenderer paints it.
+     * @return BufferedImage the image painted.
+     */
+    @Benchmark
+    public BufferedImage paint() {
+        Shape shape = figure.getShape2D();
+        g2d.draw(shape);
+        g2d.fill(shape);
+        return image;
+    }
+
+    /**
+     * Outline and fill the flattened Shape object.
+     * @return BufferedImage the image painted.
+     */
+    @Benchmark
+    public BufferedImage paintFlattened() {
+        g2d.draw(flattened);
+        g2d.fill(flattened);
+        return image;
+    }
+}
@@ -1,8 +1,15 @@
 package main;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
 import main.controller.DrawController;
 import main.model.ControlModel;
 import main.model.DrawModel;
+import main.model.figure.Figure;
+import main.model.io.Journal;
 import main.view.DrawGUI;
 
 /**
@@ -11,12 +18,56 @@ import main.view.DrawGUI;
  * The ControlModel object keeps all the drawing options.
  * The DrawGUI renders the shapes and the drawing options.
  * The DrawController object facillitates interactions betwen the GUI and the model.
+ * All changes are journaled to the directory given by the draw.journal property (~/.draw/journal by default),
+ * and the drawing of the last run is recovered from it on startup.
+ * With the draw.metrics property set to true, the latency of each action and repaint is printed on exit.
  */
 public class Main {
+    private static final long CHECKPOINT_BYTES = 8 * 1024 * 1024; // journal bytes after which it is compacted
+
     public static void main(String[] args) {
         DrawModel drawModel = new DrawModel();
+        openJournal(drawModel);
         ControlModel controlModel = new ControlModel();
         DrawController controller = new DrawController(drawModel, controlModel);
         new DrawGUI(drawModel, controlModel, controller);
+        if (Boolean.getBoolean("draw.metrics")) {
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    System.out.print(controller.getMetrics());
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Recover the drawing from the journal and journal all changes from now on.
+     * Without a journal the program still runs, but a crash loses the drawing.
+     * @param drawModel the DrawModel object to recover into
+     */
+    private static void openJournal(DrawModel drawModel) {
+        Path directory = Paths.get(System.getProperty("draw.journal",
+            Paths.get(System.getProperty("user.home"), ".draw", "journal").toString()));
+        try {
+            ArrayList<Figure> recovered = Journal.recover(directory);
+            drawModel.loadFigures(recovered);
+            Journal journal = Journal.open(directory, CHECKPOINT_BYTES);
+            drawModel.setJournal(journal);
+            if (!recovered.isEmpty()) {
+                journal.checkpoint(drawModel.snapshot()); // compact the generations replayed above
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Can't open the journal, changes won't survive a crash: " + e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
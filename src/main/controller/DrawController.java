@@ -1,19 +1,22 @@
 package main.controller;
 
 import java.awt.Color;
-import java.util.ArrayList;
+import java.util.List;
 
 import main.model.ControlModel;
 import main.model.DrawModel;
 import main.model.figure.Figure;
+import main.metrics.Metrics;
 
 
 /**
  * The DrawController object handle all controls between the view package and the model package.
+ * Each action is timed by a Metrics object, which also times the canvas repaints.
  */
 public class DrawController {
     DrawModel draw;
     ControlModel control;
+    private Metrics metrics; // latency of each action and repaint
 
     /**
      * Construct new DrawController object.
@@ -23,6 +26,7 @@ public class DrawController {
     public DrawController(DrawModel drawModel, ControlModel controlModel) {
         draw = drawModel;
         control = controlModel;
+        metrics = new Metrics();
     }
 
     /**
@@ -31,12 +35,17 @@ public class DrawController {
      * @param y y coordinate of mouse pressed event
      */
     public void pressedCanvas(double x, double y) {
-        control.setStartPoint(x, y);
-        if (control.isDrawMode()) {
-            draw.saveHistory();
-            draw.createNewFigure(control.getFigureType(), x, y, control.getColor(), control.getFill());
-        } else {
-            draw.selectTopFigureContains(x, y);
+        Metrics.Timer timer = metrics.start("pressedCanvas");
+        try {
+            control.setStartPoint(x, y);
+            if (control.isDrawMode()) {
+                draw.saveHistory();
+                draw.createNewFigure(control.getFigureType(), x, y, control.getColor(), control.getFill());
+            } else {
+                draw.selectTopFigureContains(x, y);
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
         }
     }
 
@@ -47,49 +56,54 @@ public class DrawController {
      * @param aspectRatio whether aspect ratio is requested
      */
     public void draggedCanvas(double x2, double y2, boolean aspectRatio) {
-        if (draw.hasCurrentFigure()) {
+        Metrics.Timer timer = metrics.start("draggedCanvas");
+        try {
+            if (draw.hasCurrentFigure()) {
 
-            if (control.isDrawMode()) {
-                double x1 = control.getX1();
-                double y1 = control.getY1();
-                double xDiff = x2 - x1;
-                double yDiff = y2 - y1;
-                double width = Math.abs(xDiff);
-                double height = Math.abs(yDiff);
-
-                if (control.getFigureType().equals("line")) {
-                    if (aspectRatio) { // make straight horizontal or vertical line
-                        if (width > height) {
-                            yDiff = 0;
-                        } else {
-                            xDiff = 0;
+                if (control.isDrawMode()) {
+                    double x1 = control.getX1();
+                    double y1 = control.getY1();
+                    double xDiff = x2 - x1;
+                    double yDiff = y2 - y1;
+                    double width = Math.abs(xDiff);
+                    double height = Math.abs(yDiff);
+
+                    if (control.getFigureType().equals("line")) {
+                        if (aspectRatio) { // make straight horizontal or vertical line
+                            if (width > height) {
+                                yDiff = 0;
+                            } else {
+                                xDiff = 0;
+                            }
+                        }
+                        draw.updateCurrentFigure(x1, y1, xDiff, yDiff);
+                    } else {
+                        if (aspectRatio) { // ensures width = height of bounding box
+                            width = Math.min(width, height);
+                            height = width;
+                        }
+
+                        // update the current Figure object with new location
+                        // ensure its x1, y1 always on the upper left corner
+                        if (x2 <= x1 && y2 <= y1) { // mouse is on the upper left of (x1, y1)
+                            x1 -= width;
+                            y1 -= height;
+                        } else if (x2 <= x1 && y2 >= y1) { // mouse is on the bottom left of (x1, y1)
+                            x1 -= width;
+                        } else if (x2 >= x1 && y2 <= y1) { // mouse is on the bottm right of (x1, y1)
+                            y1 -= height;
                         }
-                    }
-                    draw.updateCurrentFigure(x1, y1, xDiff, yDiff);
-                } else {
-                    if (aspectRatio) { // ensures width = height of bounding box
-                        width = Math.min(width, height);
-                        height = width;
-                    }
 
-                    // update the current Figure object with new location
-                    // ensure its x1, y1 always on the upper left corner
-                    if (x2 <= x1 && y2 <= y1) { // mouse is on the upper left of (x1, y1)
-                        x1 -= width;
-                        y1 -= height;
-                    } else if (x2 <= x1 && y2 >= y1) { // mouse is on the bottom left of (x1, y1)
-                        x1 -= width;
-                    } else if (x2 >= x1 && y2 <= y1) { // mouse is on the bottm right of (x1, y1)
-                        y1 -= height;
+                        draw.updateCurrentFigure(x1, y1, width, height);
                     }
 
-                    draw.updateCurrentFigure(x1, y1, width, height);
+                } else {
+                    // shift object if in select mode
+                    draw.shiftCurrentFigure(control.getXDiff(x2), control.getYDiff(y2));
                 }
-
-            } else {
-                // shift object if in select mode
-                draw.shiftCurrentFigure(control.getXDiff(x2), control.getYDiff(y2));
             }
+        } finally {
+            timer.stop(draw.getFigures().size());
         }
     }
 
@@ -97,8 +111,13 @@ public class DrawController {
      * Complete updating current figure. Move currentFigure object to null.
      */
     public void releasedCanvas() {
-        if (control.isDrawMode()) {
-            draw.emptyCurrentFigure();
+        Metrics.Timer timer = metrics.start("releasedCanvas");
+        try {
+            if (control.isDrawMode()) {
+                draw.emptyCurrentFigure();
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
         }
     }
 
@@ -106,10 +125,15 @@ public class DrawController {
      * Handle undo.
      */
     public void undo() {
+        Metrics.Timer timer = metrics.start("undo");
         try {
-            draw.undo();
-        } catch (IndexOutOfBoundsException e) {
-            System.out.println(e.getMessage());
+            try {
+                draw.undo();
+            } catch (IndexOutOfBoundsException e) {
+                System.out.println(e.getMessage());
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
         }
     }
 
@@ -117,10 +141,15 @@ public class DrawController {
      * Handle redo.
      */
     public void redo() {
+        Metrics.Timer timer = metrics.start("redo");
         try {
-            draw.redo();
-        } catch (IndexOutOfBoundsException e) {
-            System.out.println(e.getMessage());
+            try {
+                draw.redo();
+            } catch (IndexOutOfBoundsException e) {
+                System.out.println(e.getMessage());
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
         }
     }
 
@@ -128,10 +157,15 @@ public class DrawController {
      * Update next color option and update the color of currentFigure in DrawModel object.
      */
     public void toggleColor() {
-        Color color = control.toggleColor();
-        if (draw.hasCurrentFigure()) {
-            draw.saveHistory();
-            draw.updateCurrentFigure(color);
+        Metrics.Timer timer = metrics.start("toggleColor");
+        try {
+            Color color = control.toggleColor();
+            if (draw.hasCurrentFigure()) {
+                draw.saveHistory();
+                draw.updateCurrentFigure(color);
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
         }
     }
 
@@ -139,10 +173,15 @@ public class DrawController {
      * Toggle the fill option and update the fill option of currentFigure in DrawModel object.
      */
     public void toggleFill() {
-        control.toggleFill();
-        if (draw.hasCurrentFigure()) {
-            draw.saveHistory();
-            draw.updateCurrentFigure(control.getFill());
+        Metrics.Timer timer = metrics.start("toggleFill");
+        try {
+            control.toggleFill();
+            if (draw.hasCurrentFigure()) {
+                draw.saveHistory();
+                draw.updateCurrentFigure(control.getFill());
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
         }
     }
 
@@ -165,16 +204,61 @@ public class DrawController {
         }
     }
 
+    /**
+     * Bring the selected Figure object to the front.
+     */
+    public void bringToFront() {
+        Metrics.Timer timer = metrics.start("bringToFront");
+        try {
+            if (draw.hasCurrentFigure()) {
+                draw.saveHistory();
+                draw.bringCurrentFigureToFront();
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
+        }
+    }
+
+    /**
+     * Send the selected Figure object to the back.
+     */
+    public void sendToBack() {
+        Metrics.Timer timer = metrics.start("sendToBack");
+        try {
+            if (draw.hasCurrentFigure()) {
+                draw.saveHistory();
+                draw.sendCurrentFigureToBack();
+            }
+        } finally {
+            timer.stop(draw.getFigures().size());
+        }
+    }
+
     /**
      * Handle clear all option.
      */
     public void clearAll() {
-        draw.clearAll();
+        Metrics.Timer timer = metrics.start("clearAll");
+        try {
+            draw.clearAll();
+        } finally {
+            timer.stop(draw.getFigures().size());
+        }
     }
 
     /** Get current figures state of the DrawModel object */
-    public ArrayList<Figure> getFigures() {
+    public List<Figure> getFigures() {
         return draw.getFigures();
     }
 
+    /** Get the Metrics object timing the actions and repaints */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /** Get the Figure object currently edited in the DrawModel object, null if none */
+    public Figure getCurrentFigure() {
+        return draw.getCurrentFigure();
+    }
+
 }
@@ -0,0 +1,133 @@
+package main.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts durations in logarithmic buckets, 8 per power of 2,
+ * so any recorded value is reported within 12.5% whatever its magnitude, in a fixed 4 KB.
+ * Recording is lock-free and costs a few atomic increments, so it can be called on every operation from any thread.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    /**
+     * Construct an empty LatencyHistogram object.
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        total = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Count a duration.
+     * @param nanos the duration in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return long the number of recorded durations.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return double the mean recorded duration in nanoseconds, 0 if none.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * @return long the longest recorded duration in nanoseconds, 0 if none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimate a percentile: the upper bound of the bucket holding it, capped by the longest recorded duration.
+     * @param percentile the percentile, from 0 to 100
+     * @return long the duration in nanoseconds that the percentile of recorded durations don't exceed, 0 if none.
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getPercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be from 0 to 100.");
+        }
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i += 1) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @return String the count, mean, median, 99th percentile and maximum in milliseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", getCount(), getMean() / 1e6,
+            getPercentile(50) / 1e6, getPercentile(99) / 1e6, getMax() / 1e6);
+    }
+
+    /**
+     * Values below SUB_BUCKETS have a bucket each. Larger values are bucketed by their highest bit
+     * and the SUB_BITS bits below it.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highBit = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (highBit - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (highBit - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int highBit = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (highBit - SUB_BITS);
+        return lower + (1L << (highBit - SUB_BITS)) - 1;
+    }
+}
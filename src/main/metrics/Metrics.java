@@ -0,0 +1,108 @@
+package main.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Metrics class times named operations, e.g. controller actions and repaints.
+ * Each operation has a LatencyHistogram of its durations, and each timed run also emits an OperationEvent
+ * to Java Flight Recorder when it is recording, carrying the operation, the figure count and the duration.
+ * Timing costs two System.nanoTime calls and a few atomic increments, so every operation can be timed.
+ */
+public class Metrics {
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms;
+
+    /**
+     * The Timer class is one running operation, started by Metrics#start.
+     */
+    public class Timer {
+        private final String operation;
+        private final OperationEvent event;
+        private final long start;
+
+        private Timer(String operation) {
+            this.operation = operation;
+            event = new OperationEvent();
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        /**
+         * Record the duration of the operation and emit its event.
+         * @param figureCount the number of Figure objects in the document after the operation
+         * @return long the duration of the operation in nanoseconds.
+         */
+        public long stop(int figureCount) {
+            long nanos = System.nanoTime() - start;
+            getHistogram(operation).record(nanos);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.figureCount = figureCount;
+                event.commit();
+            }
+            return nanos;
+        }
+    }
+
+    /**
+     * Construct a Metrics object with no operations recorded.
+     */
+    public Metrics() {
+        histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+    }
+
+    /**
+     * Start timing an operation. Stop the returned Timer object when the operation is done, e.g. in a finally block.
+     * @param operation the name of the operation
+     * @return Timer the running operation.
+     */
+    public Timer start(String operation) {
+        return new Timer(operation);
+    }
+
+    /**
+     * @param operation the name of an operation
+     * @return LatencyHistogram the durations of the operation, empty if it was never timed.
+     */
+    public LatencyHistogram getHistogram(String operation) {
+        LatencyHistogram histogram = histograms.get(operation);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(operation, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return Map<String, LatencyHistogram> the histograms of all timed operations, sorted by name.
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<String, LatencyHistogram>(histograms);
+    }
+
+    /**
+     * Forget all recorded durations.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return String one line per timed operation with its histogram summary.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            report.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return report.toString();
+    }
+}
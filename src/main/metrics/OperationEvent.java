@@ -0,0 +1,28 @@
+package main.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The OperationEvent class is the Java Flight Recorder event of one timed user operation or repaint.
+ * The event duration is the duration of the operation. Record it with e.g.
+ * java -XX:StartFlightRecording=filename=draw.jfr main.Main
+ * @see Metrics
+ */
+@Name(OperationEvent.NAME)
+@Label("Draw Operation")
+@Category("Draw")
+@Description("A controller action or canvas repaint")
+public class OperationEvent extends Event {
+    public static final String NAME = "main.Operation";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Figure Count")
+    @Description("Number of figures in the document after the operation")
+    int figureCount;
+}
@@ -1,26 +1,57 @@
 package main.model;
 import java.util.ArrayList;
+import java.util.List;
 
 import main.model.figure.*;
+import main.model.history.*;
+import main.model.io.Journal;
 
 import java.beans.PropertyChangeSupport;
 import java.beans.PropertyChangeListener;
 import java.lang.IndexOutOfBoundsException;
 import java.awt.Color;
+import java.awt.geom.Rectangle2D;
 
 /**
  * The DrawModel class is a container for Figure objects. 
  * It provides methods to add, update and select the Figure objects within it.
- * It also provides methods to save a history of up to 10 changes, as well as supports undo and redo functionalities.
+ * It also provides methods to save a history of changes within a memory budget, as well as supports undo and redo functionalities.
+ * The history records reversible Command objects rather than copies of the state,
+ * so saving, undoing and redoing cost the size of the change, not the size of the document.
+ * Steps beyond the memory budget spill to a temporary file and are read back when undo reaches them.
+ * Immutable snapshots of the state can be taken in O(1) for readers outside the editing thread.
+ * Figure objects are kept in a ZOrderList, so adding one on top or moving one to the front or back doesn't shift them all,
+ * and in a SpatialIndex so selecting by point doesn't scan every Figure object.
+ * Each update event carries the damaged region of the change, so listeners can repaint only that region.
+ * Changes to Figure objects other than the currentFigure fire a structure update event instead,
+ * so listeners can tell when caches of the other Figure objects go stale.
+ * With a Journal object set, every change is also appended to the journal, and the journal is
+ * checkpointed from a snapshot when it has grown enough.
+ * A DrawModel object can also keep its Figure objects as records in a FigureStorage object instead, e.g. off the heap.
+ * Then the currentFigure is a Figure object read from its record, and changes to it are stored back.
  * @see Figure
+ * @see FigureStorage
  */
 public class DrawModel {
+    public static final String UPDATE = "DrawModel update"; // only the currentFigure changed
+    public static final String STRUCTURE_UPDATE = "DrawModel structure update"; // other Figure objects changed
+
     private PropertyChangeSupport notifier;
-    private ArrayList<Figure> figures; // the main state of the DrawModel and contianer of all its Figure objects
-    private ArrayList<ArrayList<Figure>> undoStack;
-    private ArrayList<ArrayList<Figure>> redoStack;
+    private ZOrderList<Figure> figures; // the main state of the DrawModel and contianer of all its Figure objects
+    private History history;
+    private Editor editor; // applies undone and redone changes without recording them again
+    private FigureVersions versions; // immutable versions of figures for snapshots, null until the first snapshot
     private Figure currentFigure;
+    private Rectangle2D.Double damage; // region changed since the last update, null if none
+    private boolean damagedAll; // whether everything changed since the last update
+    private boolean structureChanged; // whether Figure objects other than the currentFigure changed since the last update
+    private double damagePadding; // margin added around damaged bounds, e.g. for the stroke width
+    private SpatialIndex index; // spatial index over figures for selecting by point, null with a FigureStorage
+    private FigureStorage storage; // the records of all Figure objects instead of figures, null if not kept as records
+    private int storageHint; // last known index of a Figure object in storage
+    private Journal journal; // write-ahead log of all changes, null if not journaling
     private final int firstIndex = 0;
+    private final long defaultHistoryBudget = 16 * 1024 * 1024; // bytes of undo history kept in memory
 
     /**
      * Construct a new DrawModel object.
@@ -28,9 +59,27 @@ public class DrawModel {
      */
     public DrawModel() {
         notifier = new PropertyChangeSupport(this);
-        figures = new ArrayList<Figure>();
-        undoStack = new ArrayList<ArrayList<Figure>>();
-        redoStack = new ArrayList<ArrayList<Figure>>();
+        figures = new ZOrderList<Figure>();
+        history = new History(defaultHistoryBudget);
+        editor = new Editor();
+        index = new SpatialIndex();
+    }
+
+    /**
+     * Construct a new DrawModel object keeping its Figure objects as records in a FigureStorage object,
+     * e.g. the ones of a document opened from a file. getFigures() returns the storage,
+     * and selecting by point scans its records in place.
+     * @param storage the FigureStorage object, owned by the DrawModel object from now on
+     * @throws NullPointerException if storage is null
+     */
+    public DrawModel(FigureStorage storage) throws NullPointerException {
+        if (storage == null) {
+            throw new NullPointerException("storage must not be null.");
+        }
+        notifier = new PropertyChangeSupport(this);
+        this.storage = storage;
+        history = new History(defaultHistoryBudget);
+        editor = new Editor();
     }
 
     /**
@@ -43,12 +92,51 @@ public class DrawModel {
 
     /**
      * To be called whenever there is a change within the object.
+     * The new value of the event is the damaged region as a Rectangle2D object, empty if nothing visible changed,
+     * or null if everything may have changed.
+     * The event is named STRUCTURE_UPDATE if Figure objects were added, removed, or changed by undo and redo, UPDATE otherwise.
      */
     private void update() {
-        // hack to ensure all call to update will fire change
-        boolean oldVal = true;
-        boolean newVal = false;
-        notifier.firePropertyChange("DrawModel update", oldVal, newVal);
+        Rectangle2D damaged = damage;
+        if (damagedAll) {
+            damaged = null;
+        } else if (damaged == null) {
+            damaged = new Rectangle2D.Double();
+        }
+        String name = structureChanged ? STRUCTURE_UPDATE : UPDATE;
+        damage = null;
+        damagedAll = false;
+        structureChanged = false;
+        if (journal != null && journal.needsCheckpoint()) {
+            journal.checkpoint(snapshot());
+        }
+        // a null old value ensures all call to update will fire change
+        notifier.firePropertyChange(name, null, damaged);
+    }
+
+    /**
+     * Add the current bounding box of a Figure object, padded by damagePadding, to the damaged region.
+     * Call before and after a change to damage both the old and the new bounds.
+     * @param figure the changed Figure object
+     */
+    private void damage(Figure figure) {
+        double x1 = Math.min(figure.getX1(), figure.getX1() + figure.getWidth()) - damagePadding;
+        double y1 = Math.min(figure.getY1(), figure.getY1() + figure.getHeight()) - damagePadding;
+        double width = Math.abs(figure.getWidth()) + 2 * damagePadding;
+        double height = Math.abs(figure.getHeight()) + 2 * damagePadding;
+        if (damage == null) {
+            damage = new Rectangle2D.Double(x1, y1, width, height);
+        } else {
+            damage.add(new Rectangle2D.Double(x1, y1, width, height));
+        }
+    }
+
+    /**
+     * Set the margin added around the bounds of changed Figure objects in damaged regions.
+     * @param padding the margin, e.g. how far the stroke of a Figure object reaches outside its bounds
+     */
+    public void setDamagePadding(double padding) {
+        damagePadding = padding;
     }
 
     
@@ -62,32 +150,10 @@ public class DrawModel {
      */
     public void createNewFigure(String type, double x1, double y1, Color color, boolean fill) {
         try {
-            switch (type) {
-                case "line":
-                    currentFigure = new Line(x1, y1, color, fill);
-                    break;
-                case "rectangle":
-                    currentFigure = new Rectangle(x1, y1, color, fill);
-                    break;
-                case "ellipse":
-                    currentFigure = new Ellipse(x1, y1, color, fill);
-                    break;
-                case "cross":
-                currentFigure = new DiagonalCross(x1, y1, color, fill);
-                break;
-                case "heart":
-                currentFigure = new Heart(x1, y1, color, fill);
-                break;
-                case "triangle":
-                currentFigure = new Triangle(x1, y1, color, fill);
-                break;
-                case "moon":
-                currentFigure = new Moon(x1, y1, color, fill);
-                break;
-                default:
-                    throw new IllegalArgumentException(type + " is not supported.");
-            }
-            figures.add(firstIndex, currentFigure);
+            refreshCurrentFigure();
+            currentFigure = FigureType.of(type).create(x1, y1, color, fill);
+            editor.addFigure(currentFigure);
+            history.record(new CreateCommand(currentFigure));
             update();
         } catch (IllegalArgumentException e) {
             System.out.println(e.getMessage());
@@ -106,7 +172,12 @@ public class DrawModel {
     public void updateCurrentFigure(double x1, double y1, double width, double height) throws NullPointerException {
         try {
             if (currentFigure != null) {
-                currentFigure.updateBound(x1, y1, width, height);
+                double oldX1 = currentFigure.getX1();
+                double oldY1 = currentFigure.getY1();
+                double oldWidth = currentFigure.getWidth();
+                double oldHeight = currentFigure.getHeight();
+                editor.setBound(currentFigure, x1, y1, width, height);
+                history.record(new ReboundCommand(currentFigure, oldX1, oldY1, oldWidth, oldHeight));
                 update();
             } else {
                 throw new NullPointerException("No current figure selected for update.");
@@ -125,7 +196,9 @@ public class DrawModel {
     public void updateCurrentFigure(Color color) throws NullPointerException {
         try {
             if (currentFigure != null) {
-                currentFigure.updateColor(color);
+                Color oldColor = currentFigure.getColor();
+                editor.setColor(currentFigure, color);
+                history.record(new RecolorCommand(currentFigure, oldColor));
                 update();
             } else {
                 throw new NullPointerException("No current figure selected for update.");
@@ -144,7 +217,9 @@ public class DrawModel {
     public void updateCurrentFigure(boolean fill) throws NullPointerException {
         try {
             if (currentFigure != null) {
-                currentFigure.updateFill(fill);
+                boolean oldFill = currentFigure.getFill();
+                editor.setFill(currentFigure, fill);
+                history.record(new RefillCommand(currentFigure, oldFill));
                 update();
             } else {
                 throw new NullPointerException("No current figure selected for update.");
@@ -164,7 +239,16 @@ public class DrawModel {
     public void shiftCurrentFigure(double xDiff, double yDiff) throws NullPointerException {
         try {
             if (currentFigure != null) {
+                double oldX1 = currentFigure.getX1();
+                double oldY1 = currentFigure.getY1();
+                damage(currentFigure);
                 currentFigure.shift(xDiff, yDiff);
+                damage(currentFigure);
+                figureChanged(currentFigure);
+                if (journal != null) {
+                    journal.boundChanged(currentFigure);
+                }
+                history.record(new ShiftCommand(currentFigure, oldX1, oldY1));
                 update();
             } else {
                 throw new NullPointerException("No current figure selected for shifting.");
@@ -174,22 +258,66 @@ public class DrawModel {
         }
     }
 
+    /**
+     * Bring the selected Figure object to the front, on top of all other Figure objects.
+     * @throws NullPointerException if no Figure object is selected
+     */
+    public void bringCurrentFigureToFront() throws NullPointerException {
+        restackCurrentFigure(firstIndex);
+    }
+
+    /**
+     * Send the selected Figure object to the back, below all other Figure objects.
+     * @throws NullPointerException if no Figure object is selected
+     */
+    public void sendCurrentFigureToBack() throws NullPointerException {
+        restackCurrentFigure(getFigures().size() - 1);
+    }
+
+    /**
+     * Move the selected Figure object in the z-order.
+     * @param to the index of the Figure object from the top afterwards
+     * @throws NullPointerException if no Figure object is selected
+     */
+    private void restackCurrentFigure(int to) throws NullPointerException {
+        if (currentFigure == null) {
+            throw new NullPointerException("No current figure selected for restacking.");
+        }
+        refreshCurrentFigure();
+        int from = indexOf(currentFigure);
+        if (from != to) {
+            editor.moveFigure(currentFigure, to);
+            history.record(new RestackCommand(currentFigure, from, to));
+            update();
+        }
+    }
+
     
     /** 
-     * Select the most recently-created Figure that contains point (x, y)
+     * Select the most recently-created Figure that contains point (x, y).
+     * Candidates are looked up in the spatial index, so only Figure objects near the point are tested.
+     * With a FigureStorage object the records are tested in place, and the selected one is read into a Figure object.
      * @param x the x coordinate of the point
      * @param y the y coordinate of the point
      * @throws IllegalArgumentException if the point coordinates are negative
      */
     public void selectTopFigureContains(double x, double y) throws IllegalArgumentException{
+        refreshCurrentFigure();
         currentFigure = null;
         if (x >= 0 && y >= 0) {
-            for (Figure f : figures) {
-                if (f.contains(x, y)) {
-                    currentFigure = f;
-                    System.out.println("Draw Model: select figure " + f);
-                    break;
+            Figure f = null;
+            if (storage != null) {
+                int i = storage.indexOfTopContains(x, y);
+                if (i >= 0) {
+                    f = storage.get(i);
+                    storageHint = i;
                 }
+            } else {
+                f = index.topFigureContains(x, y);
+            }
+            if (f != null) {
+                currentFigure = f;
+                System.out.println("Draw Model: select figure " + f);
             }
             update();
         } else {
@@ -203,14 +331,11 @@ public class DrawModel {
      * @throws IndexOutOfBoundsException if no previous state is found
      */
     public void undo() throws IndexOutOfBoundsException {
-        if (undoStack.size() != 0) {
-            redoStack.add(firstIndex, figures);
-            figures = undoStack.remove(firstIndex);
-            currentFigure = null;
-            update();
-        } else {
-            throw new IndexOutOfBoundsException("undoStack is empty. Can't undo further");
-        }
+        refreshCurrentFigure();
+        history.undo(editor);
+        structureChanged = true;
+        currentFigure = null;
+        update();
     }
 
     
@@ -219,57 +344,163 @@ public class DrawModel {
      * @throws IndexOutOfBoundsException if already at latest state
      */
     public void redo() throws IndexOutOfBoundsException {
-        if (redoStack.size() != 0) {
-            undoStack.add(firstIndex, figures);
-            figures = redoStack.remove(firstIndex);
-            currentFigure = null;
-            update();
-        } else {
-            throw new IndexOutOfBoundsException("redoStack is empty. Can't redo further.");
-        }
+        refreshCurrentFigure();
+        history.redo(editor);
+        structureChanged = true;
+        currentFigure = null;
+        update();
     }
 
     /**
      * Clear all Figure objects within the DrawModel object.
+     * The cleared Figure objects are kept by the history, not copied,
+     * with their snapshot if snapshots are taken, so undoing the clear restores their versions in O(1).
      */
     public void clearAll() {
-        figures.clear();
+        FigureSnapshot before = versions != null ? snapshot() : null;
+        List<Figure> cleared = editor.replaceFigures(storage != null ? storage.newEmpty() : new ZOrderList<Figure>());
+        history.record(new ClearCommand(cleared, before));
+        currentFigure = null;
         update();
     }
 
-    
-    /** 
-     * Deep clone the current state.
-     * @return ArrayList<Figure> the cloned state with deep copies of all its Figure objects
+    /**
+     * Replace all Figure objects by new ones built from records, e.g. of an opened DrawingFile.
+     * The Figure objects keep the ids of the records. The undo history is dropped.
+     * This reads every record; to open a document in time independent of its size, construct a DrawModel object
+     * on DrawingFile.openStore(path) instead, which reads records when they are used.
+     * @param records the records ordered from top to bottom
+     */
+    public void load(List<FigureRecord> records) {
+        ArrayList<Figure> loaded = new ArrayList<Figure>(records.size());
+        for (FigureRecord record : records) {
+            loaded.add(record.toFigure());
+        }
+        loadFigures(loaded);
+    }
+
+    /**
+     * Replace all Figure objects, e.g. by the ones recovered from a Journal. The undo history is dropped.
+     * @param loaded the new Figure objects ordered from top to bottom, no longer used by the caller
      */
-    private ArrayList<Figure> cloneState() {
-        ArrayList<Figure> clone = new ArrayList<Figure>();
-        for (Figure f : figures) {
-            clone.add(f.clone());
+    public void loadFigures(List<Figure> loaded) {
+        editor.replaceFigures(loaded);
+        history.close();
+        currentFigure = null;
+        update();
+    }
+
+    /**
+     * Append every change from now on to a journal, e.g. after loading the state recovered from it.
+     * @param journal the journal, null to stop journaling
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Take an immutable snapshot of all Figure objects.
+     * The first call costs O(n) to start following the Figure objects with structurally shared versions.
+     * Later calls cost O(1) plus O(log n) for each Figure object changed since the previous snapshot.
+     * @return FigureSnapshot the current state, most recently created Figure object first.
+     */
+    public FigureSnapshot snapshot() {
+        if (versions == null) {
+            versions = new FigureVersions(getFigures());
+        } else {
+            refreshCurrentFigure(); // the currentFigure may have been edited directly
         }
-        return clone;
+        return versions.snapshot(getFigures());
     }
 
     /**
-     * Save a deep copy of the current state to undo stack.
-     * Remove the oldest state if undo stack contains more than 10 states.
+     * Start a new undoable step: changes from now until the next call are undone together.
+     * Spill the oldest steps to disk if the history exceeds its memory budget.
      * Clear redo stack.
      */
     public void saveHistory() {
-        undoStack.add(firstIndex, cloneState());
-        if (undoStack.size() > 10) {
-            undoStack.remove(undoStack.size() - 1);
-        }
-        redoStack.clear();
+        history.begin();
     } 
 
+    /**
+     * Set the memory budget of the undo history. Older steps spill to disk.
+     * @param bytes the memory budget in bytes
+     */
+    public void setHistoryBudget(long bytes) {
+        history.setBudget(bytes);
+    }
+
     /**
      * Update the currentFigure (the selected Figure object) pointer to null.
      */
     public void emptyCurrentFigure() {
+        refreshCurrentFigure();
         currentFigure = null;
     }
 
+    /**
+     * Bring the spatial index and the snapshot versions up to date after a Figure object changed,
+     * or store it back in place of its record.
+     * @param figure the changed Figure object
+     */
+    private void figureChanged(Figure figure) {
+        if (storage != null) {
+            int i = indexOf(figure);
+            if (i >= 0) {
+                storage.store(i, figure);
+            }
+        } else {
+            index.update(figure);
+        }
+        if (versions != null) {
+            versions.changed(figure);
+        }
+    }
+
+    /**
+     * @return int the index of a Figure object from the top, -1 if it isn't there.
+     * A FigureStorage object is searched by id, starting from where a Figure object was last found.
+     */
+    private int indexOf(Figure figure) {
+        if (storage == null) {
+            return figures.indexOfIdentical(figure);
+        }
+        if (storageHint < storage.size() && storage.getId(storageHint) == figure.getId()) {
+            return storageHint;
+        }
+        int i = storage.indexOfId(figure.getId());
+        if (i >= 0) {
+            storageHint = i;
+        }
+        return i;
+    }
+
+    /**
+     * Bring a Figure object about to change up to date with its record, unless it is the currentFigure,
+     * e.g. one kept by a Command object while other Figure objects were read from the same record and changed.
+     * Does nothing without a FigureStorage object.
+     * @param figure the Figure object to change
+     */
+    private void locate(Figure figure) {
+        if (storage != null && figure != currentFigure) {
+            int i = indexOf(figure);
+            if (i >= 0) {
+                storage.read(i, figure);
+            }
+        }
+    }
+
+    /**
+     * Bring the spatial index and the snapshot versions up to date with the currentFigure,
+     * e.g. before the pointer moves away from it.
+     * The currentFigure is the Figure object handed out for editing, so it is the only one that can go stale.
+     */
+    private void refreshCurrentFigure() {
+        if (currentFigure != null) {
+            figureChanged(currentFigure);
+        }
+    }
+
     
     /** 
      * @return the currently selected Figure object.
@@ -291,25 +522,201 @@ public class DrawModel {
 
     
     /** 
-     * @return ArrayList<Figure> the current state of all Figure objects.
+     * @return List<Figure> the current state of all Figure objects, most recently created or brought to the front first.
+     * With a FigureStorage object it is the storage, whose get reads a new Figure object from a record.
      */
-    public ArrayList<Figure> getFigures() {
+    public List<Figure> getFigures() {
+        if (storage != null) {
+            return storage;
+        }
         return figures;
     }
 
     
     /** 
-     * @return ArrayList<ArrayList<Figure>> the undo stack of all previous states.
+     * @return List<HistoryEntry> the undo stack of all previous steps in memory, latest first.
      */
-    public ArrayList<ArrayList<Figure>> getUndoStack() {
-        return undoStack;
+    public List<HistoryEntry> getUndoStack() {
+        return history.getUndoStack();
     }
     
     
     /** 
-     * @return ArrayList<ArrayList<Figure>> the redo stack of all states that have been undone.
+     * @return List<HistoryEntry> the redo stack of all steps that have been undone, latest first.
+     */
+    public List<HistoryEntry> getRedoStack() {
+        return history.getRedoStack();
+    }
+
+    
+    /** 
+     * @return History the undo history, including steps spilled to disk.
      */
-    public ArrayList<ArrayList<Figure>> getRedoStack() {
-        return redoStack;
+    public History getHistory() {
+        return history;
+    }
+
+    /**
+     * Apply changes to the Figure objects and keep the spatial index up to date.
+     * Used for new changes as well as undone and redone ones, which must not be recorded again.
+     */
+    private class Editor implements CommandTarget {
+
+        @Override
+        public void addFigure(Figure figure) {
+            if (storage != null) {
+                storage.add(firstIndex, figure);
+                storageHint = firstIndex;
+            } else {
+                figures.add(firstIndex, figure);
+                index.insert(figure);
+            }
+            damage(figure);
+            structureChanged = true;
+            if (versions != null) {
+                versions.added(figure);
+            }
+            if (journal != null) {
+                journal.added(figure);
+            }
+        }
+
+        @Override
+        public void removeFigure(Figure figure) {
+            if (storage != null) {
+                locate(figure);
+                int i = indexOf(figure);
+                if (i >= 0) {
+                    storage.remove(i);
+                    if (versions != null) {
+                        versions.removed(figure, i);
+                    }
+                }
+                damage(figure);
+                structureChanged = true;
+                if (journal != null) {
+                    journal.removed(figure);
+                }
+                return;
+            }
+            // undone creations are always on top
+            int i = firstIndex;
+            if (figures.isEmpty() || figures.get(firstIndex) != figure) {
+                i = figures.indexOfIdentical(figure);
+            }
+            if (i >= 0) {
+                figures.remove(i);
+                if (versions != null) {
+                    versions.removed(figure, i);
+                }
+            }
+            index.remove(figure);
+            damage(figure);
+            structureChanged = true;
+            if (journal != null) {
+                journal.removed(figure);
+            }
+        }
+
+        @Override
+        public void setBound(Figure figure, double x1, double y1, double width, double height) {
+            locate(figure);
+            damage(figure);
+            figure.updateBound(x1, y1, width, height);
+            damage(figure);
+            figureChanged(figure);
+            if (journal != null) {
+                journal.boundChanged(figure);
+            }
+        }
+
+        @Override
+        public void setColor(Figure figure, Color color) {
+            locate(figure);
+            figure.updateColor(color);
+            damage(figure);
+            figureChanged(figure);
+            if (journal != null) {
+                journal.colorChanged(figure);
+            }
+        }
+
+        @Override
+        public void setFill(Figure figure, boolean fill) {
+            locate(figure);
+            figure.updateFill(fill);
+            damage(figure);
+            figureChanged(figure);
+            if (journal != null) {
+                journal.fillChanged(figure);
+            }
+        }
+
+        @Override
+        public void moveFigure(Figure figure, int to) {
+            locate(figure);
+            int from = indexOf(figure);
+            if (from < 0 || from == to) {
+                return;
+            }
+            if (storage != null) {
+                storage.move(from, to);
+                storageHint = to;
+            } else {
+                figures.move(from, to);
+                index.move(figure, figures, to);
+            }
+            damage(figure);
+            structureChanged = true;
+            if (versions != null) {
+                versions.moved(figure, from, to);
+            }
+            if (journal != null) {
+                journal.moved(figure, to);
+            }
+        }
+
+        @Override
+        public List<Figure> replaceFigures(List<Figure> replacement) {
+            return restoreFigures(replacement, null);
+        }
+
+        @Override
+        public List<Figure> restoreFigures(List<Figure> replacement, FigureSnapshot snapshot) {
+            List<Figure> replaced = getFigures();
+            if (storage != null) {
+                if (replacement instanceof FigureStorage) {
+                    storage = (FigureStorage) replacement;
+                } else {
+                    storage = storage.newEmpty();
+                    for (int i = replacement.size() - 1; i >= 0; i -= 1) {
+                        storage.add(firstIndex, replacement.get(i));
+                    }
+                }
+            } else if (replacement instanceof ZOrderList) {
+                figures = (ZOrderList<Figure>) replacement;
+            } else {
+                figures = new ZOrderList<Figure>(replacement);
+            }
+            damagedAll = true;
+            structureChanged = true;
+            if (index != null) {
+                index.rebuild(figures);
+            }
+            if (versions != null && snapshot != null) {
+                versions.restore(snapshot);
+            } else if (versions != null) {
+                versions.reset(getFigures());
+            }
+            if (journal != null) {
+                journal.replaced(getFigures());
+            }
+            return replaced;
+        }
+
+        @Override
+        public List<Figure> getFigures() {
+            return DrawModel.this.getFigures();
+        }
     }
 }
@@ -0,0 +1,51 @@
+package main.model;
+
+import java.util.AbstractList;
+
+import main.model.figure.FigureRecord;
+
+/**
+ * The FigureSnapshot class is an immutable state of all Figure objects in a DrawModel object.
+ * Like DrawModel#getFigures(), the most recently created Figure object is at index 0.
+ * Snapshots share structure with each other, so keeping many of them costs little memory,
+ * and they can be read from any thread while the DrawModel object keeps changing.
+ * @see DrawModel#snapshot()
+ */
+public class FigureSnapshot extends AbstractList<FigureRecord> {
+    private final PersistentVector<FigureRecord> records; // bottom to top
+
+    /**
+     * Construct a FigureSnapshot object.
+     * @param records the FigureRecord objects ordered from bottom to top
+     */
+    public FigureSnapshot(PersistentVector<FigureRecord> records) {
+        this.records = records;
+    }
+
+    
+    /** 
+     * @param i the index from the top
+     * @return FigureRecord the version of the Figure object at index i.
+     */
+    @Override
+    public FigureRecord get(int i) {
+        return records.get(records.size() - 1 - i);
+    }
+
+    
+    /** 
+     * @return int the number of Figure objects.
+     */
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+
+    /**
+     * @return PersistentVector<FigureRecord> the FigureRecord objects ordered from bottom to top.
+     */
+    PersistentVector<FigureRecord> getRecords() {
+        return records;
+    }
+}
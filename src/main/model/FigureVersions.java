@@ -0,0 +1,136 @@
+package main.model;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import main.model.figure.Figure;
+import main.model.figure.FigureRecord;
+
+/**
+ * The FigureVersions class follows the Figure objects of a DrawModel object with a PersistentVector of FigureRecord objects.
+ * Changed Figure objects are only marked, and their new versions are written when a snapshot is taken,
+ * so a drag updating a Figure object hundreds of times costs one O(log n) update.
+ * Adding, removing and moving a Figure object at any index allocate O(log n) as well.
+ * The position of each Figure object in the records is remembered as a hint checked against the id of the record there,
+ * so a removal or a move doesn't renumber the others: a Figure object whose hint went stale is looked up again
+ * when it is next written.
+ * Versions are written from the Figure objects in the list, matched by id, so a DrawModel object keeping its Figure objects
+ * in a FigureStorage object can mark any Figure object handed out for a record as changed.
+ * @see FigureSnapshot
+ */
+public class FigureVersions {
+    private PersistentVector<FigureRecord> records; // bottom to top
+    private IdentityHashMap<Figure, Integer> positions; // last known index of Figure objects in records
+    private Set<Figure> changed; // Figure objects whose record may be out of date
+
+    /**
+     * Construct a FigureVersions object following a list of Figure objects.
+     * @param figures the Figure objects ordered from top to bottom
+     */
+    public FigureVersions(List<Figure> figures) {
+        positions = new IdentityHashMap<Figure, Integer>();
+        changed = Collections.newSetFromMap(new IdentityHashMap<Figure, Boolean>());
+        reset(figures);
+    }
+
+    /**
+     * Start over from a list of Figure objects. Costs O(n).
+     * @param figures the Figure objects ordered from top to bottom
+     */
+    public void reset(List<Figure> figures) {
+        records = PersistentVector.empty();
+        positions.clear();
+        changed.clear();
+        for (int i = figures.size() - 1; i >= 0; i -= 1) {
+            added(figures.get(i));
+        }
+    }
+
+    /**
+     * Start over from a snapshot taken of the Figure objects now followed, e.g. when undoing a clear. Costs O(1).
+     * @param snapshot a snapshot of the Figure objects as they are
+     */
+    public void restore(FigureSnapshot snapshot) {
+        records = snapshot.getRecords();
+        positions.clear();
+        changed.clear();
+    }
+
+    /**
+     * Follow a Figure object added on top.
+     * @param figure the added Figure object
+     */
+    public void added(Figure figure) {
+        positions.put(figure, records.size());
+        records = records.append(FigureRecord.of(figure));
+    }
+
+    /**
+     * Follow a Figure object removed from any index.
+     * @param figure the removed Figure object
+     * @param index the index of the Figure object from the top before it was removed
+     */
+    public void removed(Figure figure, int index) {
+        positions.remove(figure);
+        changed.remove(figure);
+        records = records.remove(records.size() - 1 - index);
+    }
+
+    /**
+     * Follow a Figure object moved in the z-order.
+     * @param figure the moved Figure object
+     * @param from the index of the Figure object from the top before the move
+     * @param to the index of the Figure object from the top after the move
+     */
+    public void moved(Figure figure, int from, int to) {
+        int last = records.size() - 1;
+        records = records.move(last - from, last - to);
+        positions.put(figure, last - to);
+    }
+
+    /**
+     * Mark a Figure object as changed.
+     * @param figure the changed Figure object
+     */
+    public void changed(Figure figure) {
+        changed.add(figure);
+    }
+
+    /**
+     * Write the versions of changed Figure objects and return the current state.
+     * Costs O(1) plus O(log n) for each Figure object changed since the last snapshot,
+     * and a scan of the Figure objects for each of them whose position went stale.
+     * @param figures the Figure objects followed, ordered from top to bottom
+     * @return FigureSnapshot the current state.
+     */
+    public FigureSnapshot snapshot(List<Figure> figures) {
+        for (Figure figure : changed) {
+            int position = positionOf(figure, figures);
+            if (position >= 0) {
+                records = records.set(position, FigureRecord.of(figures.get(figures.size() - 1 - position)));
+            }
+        }
+        changed.clear();
+        return new FigureSnapshot(records);
+    }
+
+    /**
+     * @return int the index of a Figure object in records, -1 if it isn't followed.
+     */
+    private int positionOf(Figure figure, List<Figure> figures) {
+        Integer hint = positions.get(figure);
+        if (hint != null && hint < records.size() && records.get(hint).getId() == figure.getId()) {
+            return hint;
+        }
+        for (int i = 0; i < figures.size(); i += 1) {
+            if (figures.get(i).getId() == figure.getId()) {
+                int position = figures.size() - 1 - i;
+                positions.put(figure, position);
+                return position;
+            }
+        }
+        return -1;
+    }
+}
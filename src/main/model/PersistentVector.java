@@ -0,0 +1,339 @@
+package main.model;
+
+import java.util.Arrays;
+
+/**
+ * The PersistentVector class is an immutable list that shares structure between versions.
+ * Elements are kept in the leaves of a B+tree of up to 32-wide arrays, and each branch keeps the running sizes
+ * of its children so an index is found in O(log n). Replacing, inserting or removing an element at any index
+ * only copies the O(log n) arrays on the path to it and leaves every previous version untouched.
+ * Nodes other than the root hold at least half of 32 entries, except that appending fills nodes up
+ * before starting the next one, so a vector built by appends stays as dense as an array of arrays.
+ * @param <E> the element type
+ */
+public final class PersistentVector<E> {
+    private static final int WIDTH = 32; // entries of a full node
+    private static final int MIN = WIDTH / 2; // entries of a node below which it is merged with a sibling
+    private static final PersistentVector<?> EMPTY = new PersistentVector<Object>(0, 0, new Object[0]);
+
+    private final int size;
+    private final int height; // branches above the leaves, 0 if the root is a leaf
+    private final Object root; // a leaf Object[] if height is 0, a Branch otherwise
+
+    private PersistentVector(int size, int height, Object root) {
+        this.size = size;
+        this.height = height;
+        this.root = root;
+    }
+
+
+    /**
+     * @param <E> the element type
+     * @return PersistentVector<E> the empty vector.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+
+    /**
+     * @return int the number of elements.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @param i the index of an element
+     * @return E the element at index i.
+     * @throws IndexOutOfBoundsException if i is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int i) throws IndexOutOfBoundsException {
+        checkIndex(i, size);
+        Object node = root;
+        for (int level = height; level > 0; level -= 1) {
+            Branch branch = (Branch) node;
+            int child = branch.childAt(i);
+            i -= branch.offset(child);
+            node = branch.children[child];
+        }
+        return (E) ((Object[]) node)[i];
+    }
+
+
+    /**
+     * Return a new version with the element at index i replaced.
+     * @param i the index of the element
+     * @param element the new element
+     * @return PersistentVector<E> the new version.
+     * @throws IndexOutOfBoundsException if i is out of range
+     */
+    public PersistentVector<E> set(int i, E element) throws IndexOutOfBoundsException {
+        checkIndex(i, size);
+        return new PersistentVector<E>(size, height, set(root, height, i, element));
+    }
+
+
+    /**
+     * Return a new version with an element added at the end.
+     * @param element the new element
+     * @return PersistentVector<E> the new version.
+     */
+    public PersistentVector<E> append(E element) {
+        return insert(size, element);
+    }
+
+
+    /**
+     * Return a new version with an element inserted at index i, moving the elements from i on up by one.
+     * @param i the index of the new element, from 0 to size()
+     * @param element the new element
+     * @return PersistentVector<E> the new version.
+     * @throws IndexOutOfBoundsException if i is out of range
+     */
+    public PersistentVector<E> insert(int i, E element) throws IndexOutOfBoundsException {
+        checkIndex(i, size + 1);
+        Object[] nodes = insert(root, height, i, element);
+        if (nodes.length == 1) {
+            return new PersistentVector<E>(size + 1, height, nodes[0]);
+        }
+        // the root split, grow a level
+        return new PersistentVector<E>(size + 1, height + 1, new Branch(nodes, height + 1));
+    }
+
+
+    /**
+     * Return a new version without the last element.
+     * @return PersistentVector<E> the new version.
+     * @throws IndexOutOfBoundsException if the vector is empty
+     */
+    public PersistentVector<E> pop() throws IndexOutOfBoundsException {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("Can't pop an empty vector.");
+        }
+        return remove(size - 1);
+    }
+
+
+    /**
+     * Return a new version without the element at index i, moving the elements after it down by one.
+     * @param i the index of the element
+     * @return PersistentVector<E> the new version.
+     * @throws IndexOutOfBoundsException if i is out of range
+     */
+    public PersistentVector<E> remove(int i) throws IndexOutOfBoundsException {
+        checkIndex(i, size);
+        if (size == 1) {
+            return empty();
+        }
+        Object node = remove(root, height, i);
+        int newHeight = height;
+        while (newHeight > 0 && ((Branch) node).children.length == 1) {
+            // the root has a single child, shrink a level
+            node = ((Branch) node).children[0];
+            newHeight -= 1;
+        }
+        return new PersistentVector<E>(size - 1, newHeight, node);
+    }
+
+
+    /**
+     * Return a new version with the element at index from moved to index to, e.g. to bring it to the end.
+     * @param from the index of the element
+     * @param to the index of the element afterwards
+     * @return PersistentVector<E> the new version.
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public PersistentVector<E> move(int from, int to) throws IndexOutOfBoundsException {
+        checkIndex(to, size);
+        E element = get(from);
+        if (from == to) {
+            return this;
+        }
+        return remove(from).insert(to, element);
+    }
+
+
+    /**
+     * @param i an index
+     * @param bound the first index out of range
+     * @throws IndexOutOfBoundsException if i is out of range
+     */
+    private static void checkIndex(int i, int bound) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= bound) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of range for size %d.", i, bound));
+        }
+    }
+
+
+    private static Object set(Object node, int level, int i, Object element) {
+        if (level == 0) {
+            Object[] copy = ((Object[]) node).clone();
+            copy[i] = element;
+            return copy;
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childAt(i);
+        Object[] children = branch.children.clone();
+        children[child] = set(children[child], level - 1, i - branch.offset(child), element);
+        return new Branch(children, branch.sizes);
+    }
+
+
+    /**
+     * Insert an element into a subtree.
+     * @return Object[] the new subtree, or two subtrees if it split.
+     */
+    private static Object[] insert(Object node, int level, int i, Object element) {
+        if (level == 0) {
+            Object[] leaf = (Object[]) node;
+            Object[] copy = new Object[leaf.length + 1];
+            System.arraycopy(leaf, 0, copy, 0, i);
+            copy[i] = element;
+            System.arraycopy(leaf, i, copy, i + 1, leaf.length - i);
+            return split(copy, i);
+        }
+        Branch branch = (Branch) node;
+        int child = Math.min(branch.childAt(i), branch.children.length - 1); // i may be the size of the branch
+        Object[] nodes = insert(branch.children[child], level - 1, i - branch.offset(child), element);
+        Object[] children = new Object[branch.children.length + nodes.length - 1];
+        System.arraycopy(branch.children, 0, children, 0, child);
+        System.arraycopy(nodes, 0, children, child, nodes.length);
+        System.arraycopy(branch.children, child + 1, children, child + nodes.length, branch.children.length - child - 1);
+        Object[] halves = split(children, child + nodes.length - 1);
+        for (int k = 0; k < halves.length; k += 1) {
+            halves[k] = new Branch((Object[]) halves[k], level);
+        }
+        return halves;
+    }
+
+
+    /**
+     * Split the entries of a node that overflowed. An entry added at the end leaves the first node full,
+     * so appending doesn't leave half empty nodes behind.
+     * @param entries the entries of the node
+     * @param added the index of the entry that was added
+     * @return Object[] the entries of one node, or of two nodes if there are more than WIDTH.
+     */
+    private static Object[] split(Object[] entries, int added) {
+        if (entries.length <= WIDTH) {
+            return new Object[] {entries};
+        }
+        int half = added == entries.length - 1 ? WIDTH : entries.length / 2;
+        return new Object[] {Arrays.copyOfRange(entries, 0, half), Arrays.copyOfRange(entries, half, entries.length)};
+    }
+
+
+    /**
+     * Remove an element from a subtree, merging a child that falls below MIN entries with a sibling.
+     * @return Object the new subtree, which may hold fewer than MIN entries.
+     */
+    private static Object remove(Object node, int level, int i) {
+        if (level == 0) {
+            Object[] leaf = (Object[]) node;
+            Object[] copy = new Object[leaf.length - 1];
+            System.arraycopy(leaf, 0, copy, 0, i);
+            System.arraycopy(leaf, i + 1, copy, i, leaf.length - i - 1);
+            return copy;
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childAt(i);
+        Object removed = remove(branch.children[child], level - 1, i - branch.offset(child));
+        Object[] children = branch.children.clone();
+        children[child] = removed;
+        if (entries(removed, level - 1) >= MIN || children.length == 1) {
+            return new Branch(children, level);
+        }
+        // merge with a sibling, splitting again if both together overflow
+        int left = child > 0 ? child - 1 : child;
+        Object[] merged = concat(children[left], children[left + 1], level - 1);
+        Object[] nodes = split(merged, -1);
+        Object[] rest = new Object[children.length - 2 + nodes.length];
+        System.arraycopy(children, 0, rest, 0, left);
+        for (int k = 0; k < nodes.length; k += 1) {
+            rest[left + k] = level == 1 ? nodes[k] : new Branch((Object[]) nodes[k], level - 1);
+        }
+        System.arraycopy(children, left + 2, rest, left + nodes.length, children.length - left - 2);
+        return new Branch(rest, level);
+    }
+
+
+    /**
+     * @return int the number of entries of a node: elements of a leaf, children of a branch.
+     */
+    private static int entries(Object node, int level) {
+        return level == 0 ? ((Object[]) node).length : ((Branch) node).children.length;
+    }
+
+
+    /**
+     * @return Object[] the entries of two neighbouring nodes of the same level, in order.
+     */
+    private static Object[] concat(Object first, Object second, int level) {
+        Object[] a = level == 0 ? (Object[]) first : ((Branch) first).children;
+        Object[] b = level == 0 ? (Object[]) second : ((Branch) second).children;
+        Object[] entries = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, entries, a.length, b.length);
+        return entries;
+    }
+
+
+    /**
+     * A node above the leaves: its children and the number of elements under its first k + 1 children at index k.
+     */
+    private static final class Branch {
+        private final Object[] children;
+        private final int[] sizes;
+
+        private Branch(Object[] children, int[] sizes) {
+            this.children = children;
+            this.sizes = sizes;
+        }
+
+        /**
+         * Construct a Branch object, counting the elements under its children.
+         * @param children the children, leaves if level is 1
+         * @param level the level of the branch, 1 above the leaves
+         */
+        private Branch(Object[] children, int level) {
+            this.children = children;
+            this.sizes = new int[children.length];
+            int total = 0;
+            for (int k = 0; k < children.length; k += 1) {
+                total += level == 1 ? ((Object[]) children[k]).length : ((Branch) children[k]).size();
+                sizes[k] = total;
+            }
+        }
+
+        private int size() {
+            return sizes[sizes.length - 1];
+        }
+
+        /**
+         * @return int the child holding the element at index i, children.length if i is the size.
+         */
+        private int childAt(int i) {
+            int low = 0;
+            int high = sizes.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sizes[middle] <= i) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return int the number of elements under the children before a child.
+         */
+        private int offset(int child) {
+            return child == 0 ? 0 : sizes[child - 1];
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package main.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import main.model.figure.Figure;
+
+/**
+ * The SpatialIndex class is a loose quadtree over the bounding boxes of Figure objects.
+ * The loose bounds of a square node extend half its size past each side, and each Figure object is kept
+ * in the smallest node whose square contains the center of its bounding box and whose size is at least its extent,
+ * so the bounding box lies within the loose bounds. A Figure object straddling a midline therefore sinks
+ * to a node of its own size instead of piling up near the root, and the Figure objects of a node are no larger
+ * than it unless the node is a leaf. A point query visits at most 4 nodes per level, those whose loose bounds
+ * contain the point, so picking costs O(log n) for Figure objects of bounded density.
+ * The index also remembers the z-order of its Figure objects: the most recently inserted one is on top.
+ * Z-orders are spaced apart, so a Figure object moved between two others usually gets an order between theirs
+ * without renumbering the others.
+ * The root square grows on demand, so Figure objects can be indexed anywhere on the plane.
+ * @see DrawModel#selectTopFigureContains(double, double)
+ */
+public class SpatialIndex {
+    private static final int NODE_CAPACITY = 8; // split a leaf holding more entries than this
+    private static final double MIN_NODE_SIZE = 8; // never split nodes smaller than this
+    private static final double INITIAL_SIZE = 1024;
+    private static final double HIT_PADDING = 2; // Figure.contains tests a 2x2 box at the point
+    private static final long ORDER_GAP = 1L << 20; // space between the z-orders of successive insertions
+
+    private Node root;
+    private ArrayList<Entry> unbounded; // entries whose bounds are not finite, always tested
+    private HashMap<Figure, Entry> entries;
+    private long nextOrder; // z-order of the next Figure object inserted on top
+    private long bottomOrder; // z-order of the bottom Figure object
+
+    /**
+     * Construct an empty SpatialIndex object.
+     */
+    public SpatialIndex() {
+        entries = new HashMap<Figure, Entry>();
+        clear();
+    }
+
+    /**
+     * Remove all Figure objects from the index.
+     */
+    public void clear() {
+        root = new Node(0, 0, INITIAL_SIZE);
+        unbounded = new ArrayList<Entry>();
+        entries.clear();
+        nextOrder = 0;
+        bottomOrder = 0;
+    }
+
+    /**
+     * Rebuild the index from a list of Figure objects.
+     * @param figures the Figure objects ordered from top to bottom, as kept by DrawModel
+     */
+    public void rebuild(List<Figure> figures) {
+        clear();
+        for (int i = figures.size() - 1; i >= 0; i -= 1) {
+            insert(figures.get(i));
+        }
+    }
+
+
+    /**
+     * Add a Figure object on top of all indexed Figure objects.
+     * @param figure the Figure object to be added
+     */
+    public void insert(Figure figure) {
+        insert(figure, nextOrder);
+        nextOrder += ORDER_GAP;
+    }
+
+
+    /**
+     * Move an indexed Figure object in the z-order to match its new index in a list.
+     * Moving it to the top or the bottom costs O(log n). Moving it between two Figure objects whose
+     * z-orders have no room left between them rebuilds the index from the list.
+     * @param figure the moved Figure object
+     * @param figures the Figure objects ordered from top to bottom, after the move
+     * @param index the index of the Figure object in figures
+     */
+    public void move(Figure figure, List<Figure> figures, int index) {
+        if (index == 0) {
+            insert(figure);
+        } else if (index == figures.size() - 1) {
+            bottomOrder -= ORDER_GAP;
+            insert(figure, bottomOrder);
+        } else {
+            Entry above = entries.get(figures.get(index - 1));
+            Entry below = entries.get(figures.get(index + 1));
+            if (above != null && below != null && above.order - below.order > 1) {
+                insert(figure, below.order + (above.order - below.order) / 2);
+            } else {
+                rebuild(figures);
+            }
+        }
+    }
+
+
+    /**
+     * Add a Figure object with a z-order, replacing its entry if it is indexed.
+     * @param figure the Figure object to be added
+     * @param order the z-order, greater on top
+     */
+    private void insert(Figure figure, long order) {
+        remove(figure);
+        Entry entry = new Entry(figure, order);
+        entries.put(figure, entry);
+        place(entry);
+    }
+
+
+    /**
+     * Remove a Figure object from the index. Do nothing if it is not indexed.
+     * @param figure the Figure object to be removed
+     */
+    public void remove(Figure figure) {
+        Entry entry = entries.remove(figure);
+        if (entry != null) {
+            unplace(entry);
+        }
+    }
+
+
+    /**
+     * Refresh the position of a Figure object after its bounding box changed.
+     * Its z-order is kept. Do nothing if it is not indexed.
+     * @param figure the Figure object that changed
+     */
+    public void update(Figure figure) {
+        Entry entry = entries.get(figure);
+        if (entry != null && !entry.isCurrent()) {
+            unplace(entry);
+            entry.readBounds();
+            place(entry);
+        }
+    }
+
+
+    /**
+     * Find the top Figure object that contains point (x, y).
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return Figure the top Figure object containing the point, null if there is none
+     */
+    public Figure topFigureContains(double x, double y) {
+        Entry best = null;
+        for (Entry entry : unbounded) {
+            best = pick(best, entry, x, y);
+        }
+        best = pick(best, root, x, y);
+        if (best == null) {
+            return null;
+        }
+        return best.figure;
+    }
+
+
+    /**
+     * @param figure a Figure object
+     * @return boolean whether the Figure object is indexed.
+     */
+    public boolean contains(Figure figure) {
+        return entries.containsKey(figure);
+    }
+
+
+    /**
+     * @return int the number of indexed Figure objects.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Return the candidate on top between best and the entries of a node and its descendants
+     * whose loose bounds contain a point.
+     * @param best the best candidate so far, may be null
+     * @param node the node to search
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return Entry the new best candidate
+     */
+    private Entry pick(Entry best, Node node, double x, double y) {
+        if (!node.looselyContains(x, y)) {
+            return best;
+        }
+        for (Entry entry : node.items) {
+            best = pick(best, entry, x, y);
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                best = pick(best, child, x, y);
+            }
+        }
+        return best;
+    }
+
+
+    /**
+     * Return the candidate on top between best and entry.
+     * @param best the best candidate so far, may be null
+     * @param entry the candidate to test
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return Entry the new best candidate
+     */
+    private Entry pick(Entry best, Entry entry, double x, double y) {
+        if (best != null && entry.order < best.order) {
+            return best;
+        }
+        if (entry.mayContain(x, y) && entry.figure.contains(x, y)) {
+            return entry;
+        }
+        return best;
+    }
+
+
+    /**
+     * Store an entry in the smallest node that loosely covers its bounds.
+     * @param entry the entry to be stored
+     */
+    private void place(Entry entry) {
+        if (!entry.isFinite()) {
+            unbounded.add(entry);
+            return;
+        }
+        while (!root.covers(entry)) {
+            growRoot(entry);
+        }
+        Node node = root;
+        while (node.children != null) {
+            Node child = node.childCovering(entry);
+            if (child == null) {
+                break;
+            }
+            node = child;
+        }
+        node.items.add(entry);
+        entry.node = node;
+        if (node.children == null && node.items.size() > NODE_CAPACITY && node.size > MIN_NODE_SIZE) {
+            split(node);
+        }
+    }
+
+
+    /**
+     * Take an entry out of the node it is stored in.
+     * @param entry the entry to be removed
+     */
+    private void unplace(Entry entry) {
+        if (entry.node == null) {
+            unbounded.remove(entry);
+        } else {
+            entry.node.items.remove(entry);
+            entry.node = null;
+        }
+    }
+
+
+    /**
+     * Double the root square towards the center of an entry. The old root becomes one of its quadrants.
+     * @param entry the entry that does not fit the root
+     */
+    private void growRoot(Entry entry) {
+        double x = root.x;
+        double y = root.y;
+        int quadrant = 0; // quadrant of the old root in the new root
+        if (entry.centerX() < root.x) {
+            x -= root.size;
+            quadrant += 1;
+        }
+        if (entry.centerY() < root.y) {
+            y -= root.size;
+            quadrant += 2;
+        }
+        Node grown = new Node(x, y, root.size * 2);
+        grown.createChildren();
+        grown.children[quadrant] = root;
+        root = grown;
+    }
+
+
+    /**
+     * Split a leaf into 4 quadrants and push down the entries that fit a quadrant.
+     * Entries larger than a quadrant stay in the node.
+     * @param node the leaf to be split
+     */
+    private void split(Node node) {
+        node.createChildren();
+        ArrayList<Entry> items = node.items;
+        node.items = new ArrayList<Entry>();
+        for (Entry entry : items) {
+            Node child = node.childCovering(entry);
+            if (child == null) {
+                node.items.add(entry);
+                entry.node = node;
+            } else {
+                child.items.add(entry);
+                entry.node = child;
+            }
+        }
+    }
+
+    /**
+     * A square region of the quadtree holding the entries centered in it that don't fit any of its quadrants.
+     * Quadrants are indexed 0: upper left, 1: upper right, 2: lower left, 3: lower right.
+     */
+    private static class Node {
+        private final double x;
+        private final double y;
+        private final double size;
+        private ArrayList<Entry> items;
+        private Node[] children;
+
+        private Node(double x, double y, double size) {
+            this.x = x;
+            this.y = y;
+            this.size = size;
+            this.items = new ArrayList<Entry>();
+        }
+
+        private void createChildren() {
+            double half = size / 2;
+            children = new Node[]{
+                new Node(x, y, half),
+                new Node(x + half, y, half),
+                new Node(x, y + half, half),
+                new Node(x + half, y + half, half)
+            };
+        }
+
+        /**
+         * Whether the entry is centered in the square and no larger than it, so it lies within the loose bounds.
+         */
+        private boolean covers(Entry entry) {
+            double cx = entry.centerX();
+            double cy = entry.centerY();
+            return cx >= x && cy >= y && cx < x + size && cy < y + size && entry.extent() <= size;
+        }
+
+        /**
+         * @return Node the quadrant the entry is centered in if it is no larger than a quadrant, null otherwise.
+         */
+        private Node childCovering(Entry entry) {
+            double half = size / 2;
+            if (entry.extent() > half) {
+                return null;
+            }
+            int quadrant = 0;
+            if (entry.centerX() >= x + half) {
+                quadrant += 1;
+            }
+            if (entry.centerY() >= y + half) {
+                quadrant += 2;
+            }
+            return children[quadrant];
+        }
+
+        private boolean looselyContains(double px, double py) {
+            double margin = size / 2;
+            return px >= x - margin && py >= y - margin && px <= x + size + margin && py <= y + size + margin;
+        }
+    }
+
+    /**
+     * A Figure object in the index, with its z-order and the bounds it was indexed with.
+     * The bounds are padded so that any point the Figure object contains falls inside them.
+     */
+    private static class Entry {
+        private final Figure figure;
+        private final long order;
+        private double minX;
+        private double minY;
+        private double maxX;
+        private double maxY;
+        private Node node;
+
+        private Entry(Figure figure, long order) {
+            this.figure = figure;
+            this.order = order;
+            readBounds();
+        }
+
+        private void readBounds() {
+            double x1 = figure.getX1();
+            double y1 = figure.getY1();
+            double x2 = x1 + figure.getWidth();
+            double y2 = y1 + figure.getHeight();
+            minX = Math.min(x1, x2) - HIT_PADDING;
+            minY = Math.min(y1, y2) - HIT_PADDING;
+            maxX = Math.max(x1, x2) + HIT_PADDING;
+            maxY = Math.max(y1, y2) + HIT_PADDING;
+        }
+
+        private boolean isCurrent() {
+            double x1 = figure.getX1();
+            double y1 = figure.getY1();
+            double x2 = x1 + figure.getWidth();
+            double y2 = y1 + figure.getHeight();
+            return minX == Math.min(x1, x2) - HIT_PADDING && minY == Math.min(y1, y2) - HIT_PADDING
+                && maxX == Math.max(x1, x2) + HIT_PADDING && maxY == Math.max(y1, y2) + HIT_PADDING;
+        }
+
+        private double centerX() {
+            return (minX + maxX) / 2;
+        }
+
+        private double centerY() {
+            return (minY + maxY) / 2;
+        }
+
+        private double extent() {
+            return Math.max(maxX - minX, maxY - minY);
+        }
+
+        private boolean isFinite() {
+            return Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(maxX) && Double.isFinite(maxY);
+        }
+
+        private boolean mayContain(double x, double y) {
+            return x >= minX && y >= minY && x <= maxX && y <= maxY;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package main.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The ZOrderList class is a list in z-order, the top element first, as DrawModel keeps its Figure objects.
+ * Elements are kept bottom to top in a circular array, so adding or removing on top or at the bottom costs O(1),
+ * reading any index costs O(1), and adding or removing anywhere else only moves the elements on the shorter side.
+ * Bringing an element to the front or sending it to the back therefore costs at most O(min(i, n - i)) moves.
+ * @param <E> the element type
+ */
+public class ZOrderList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int MIN_CAPACITY = 16; // a power of 2, as all capacities
+
+    private Object[] items; // circular array, bottom to top from head
+    private int head; // slot of the bottom element
+    private int size;
+
+    /**
+     * Construct an empty ZOrderList object.
+     */
+    public ZOrderList() {
+        items = new Object[MIN_CAPACITY];
+    }
+
+    /**
+     * Construct a ZOrderList object holding elements.
+     * @param elements the elements ordered from top to bottom
+     */
+    public ZOrderList(Collection<? extends E> elements) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < elements.size()) {
+            capacity *= 2;
+        }
+        items = new Object[capacity];
+        size = elements.size();
+        int slot = size;
+        for (E element : elements) {
+            slot -= 1;
+            items[slot] = element;
+        }
+    }
+
+    /**
+     * @param index the index from the top
+     * @return E the element at the index.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) throws IndexOutOfBoundsException {
+        checkIndex(index, size);
+        return (E) items[slot(index)];
+    }
+
+    /**
+     * @param index the index from the top
+     * @param element the new element
+     * @return E the replaced element.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public E set(int index, E element) throws IndexOutOfBoundsException {
+        E replaced = get(index);
+        items[slot(index)] = element;
+        return replaced;
+    }
+
+    /**
+     * Insert an element, moving the elements between it and the nearer end. Index 0 puts it on top.
+     * @param index the index from the top
+     * @param element the element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void add(int index, E element) throws IndexOutOfBoundsException {
+        checkIndex(index, size + 1);
+        if (size == items.length) {
+            grow();
+        }
+        int mask = items.length - 1;
+        if (index < size - index) {
+            // move the elements above up
+            for (int i = 0; i < index; i += 1) {
+                int slot = slot(i);
+                items[(slot + 1) & mask] = items[slot];
+            }
+        } else {
+            // move the elements below down
+            for (int i = size - 1; i >= index; i -= 1) {
+                int slot = slot(i);
+                items[(slot - 1) & mask] = items[slot];
+            }
+            head = (head - 1) & mask;
+        }
+        size += 1;
+        items[slot(index)] = element;
+        modCount += 1;
+    }
+
+    /**
+     * Remove an element, moving the elements between it and the nearer end. Index 0 removes the top one.
+     * @param index the index from the top
+     * @return E the removed element.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public E remove(int index) throws IndexOutOfBoundsException {
+        E removed = get(index);
+        int mask = items.length - 1;
+        if (index < size - 1 - index) {
+            // move the elements above down
+            for (int i = index - 1; i >= 0; i -= 1) {
+                int slot = slot(i);
+                items[(slot - 1) & mask] = items[slot];
+            }
+            items[slot(0)] = null;
+        } else {
+            // move the elements below up
+            for (int i = index + 1; i < size; i += 1) {
+                int slot = slot(i);
+                items[(slot + 1) & mask] = items[slot];
+            }
+            items[head] = null;
+            head = (head + 1) & mask;
+        }
+        size -= 1;
+        modCount += 1;
+        return removed;
+    }
+
+    /**
+     * Move an element to another index, e.g. to the front at 0 or to the back at size() - 1.
+     * @param from the index of the element
+     * @param to the index of the element afterwards
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public void move(int from, int to) throws IndexOutOfBoundsException {
+        checkIndex(to, size);
+        if (from != to) {
+            add(to, remove(from));
+        }
+    }
+
+    /**
+     * Find an element by identity rather than equality, searching from the top.
+     * @param element the element
+     * @return int the index of the element from the top, -1 if it is not in the list.
+     */
+    public int indexOfIdentical(Object element) {
+        for (int i = 0; i < size; i += 1) {
+            if (items[slot(i)] == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove all elements.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(items, null);
+        head = 0;
+        size = 0;
+        modCount += 1;
+    }
+
+    /**
+     * @return int the number of elements.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index the index from the top
+     * @return int the slot of the element in items.
+     */
+    private int slot(int index) {
+        return (head + size - 1 - index) & (items.length - 1);
+    }
+
+    /**
+     * Double the capacity, unwrapping the elements to start at slot 0.
+     */
+    private void grow() {
+        Object[] grown = new Object[items.length * 2];
+        int first = items.length - head;
+        System.arraycopy(items, head, grown, 0, Math.min(first, size));
+        if (first < size) {
+            System.arraycopy(items, 0, grown, first, size - first);
+        }
+        items = grown;
+        head = 0;
+    }
+
+    private static void checkIndex(int index, int bound) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of range [0, %d).", index, bound));
+        }
+    }
+}
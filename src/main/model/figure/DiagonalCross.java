@@ -14,7 +14,16 @@ public class DiagonalCross extends Figure {
     /** 
      * @return Path2D.Double the Shape object representing the object.
      */
+    @Override
     public Path2D.Double getShape2D() {
+        return (Path2D.Double) super.getShape2D();
+    }
+
+    /** 
+     * @return Path2D.Double a new Shape object built from the bounding box.
+     */
+    @Override
+    protected Path2D.Double createShape2D() {
         Path2D.Double cross = new Path2D.Double();
         cross.moveTo(getX1(), getY1());
         cross.lineTo(getX1() + getWidth(), getY1() + getHeight());
@@ -22,4 +31,21 @@ public class DiagonalCross extends Figure {
         cross.lineTo(getX1(), getY1() + getHeight());
         return cross;
     }
+
+    /**
+     * Test whether either diagonal passes through the interior of a box, as the path of the cross intersects it.
+     * @param x x coordinate of the upper left corner of the box
+     * @param y y coordinate of the upper left corner of the box
+     * @param w the width of the box, positive
+     * @param h the height of the box, positive
+     * @return boolean whether the box intersects the DiagonalCross object.
+     */
+    @Override
+    protected boolean intersects(double x, double y, double w, double h) {
+        double x1 = getX1();
+        double y1 = getY1();
+        double x2 = x1 + getWidth();
+        double y2 = y1 + getHeight();
+        return segmentCrossesBox(x1, y1, x2, y2, x, y, w, h) || segmentCrossesBox(x2, y1, x1, y2, x, y, w, h);
+    }
 }
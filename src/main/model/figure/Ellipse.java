@@ -15,7 +15,42 @@ public class Ellipse extends Figure {
     /** 
      * @return Ellipse.Double the Shape object representing the object.
      */
+    @Override
     public Ellipse2D.Double getShape2D() {
+        return (Ellipse2D.Double) super.getShape2D();
+    }
+
+    /** 
+     * @return Ellipse.Double a new Shape object built from the bounding box.
+     */
+    @Override
+    protected Ellipse2D.Double createShape2D() {
         return new Ellipse2D.Double(getX1(), getY1(), getWidth(), getHeight());
     }
+
+    /**
+     * Test whether the interior of a box overlaps the ellipse, as Ellipse2D#intersects does:
+     * the point of the box nearest the center, normalized to the unit circle of diameter 1, is within radius 0.5.
+     * An ellipse with a negative width or height is empty.
+     * @param x x coordinate of the upper left corner of the box
+     * @param y y coordinate of the upper left corner of the box
+     * @param w the width of the box, positive
+     * @param h the height of the box, positive
+     * @return boolean whether the box intersects the Ellipse object.
+     */
+    @Override
+    protected boolean intersects(double x, double y, double w, double h) {
+        double width = getWidth();
+        double height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        double normx0 = (x - getX1()) / width - 0.5;
+        double normx1 = normx0 + w / width;
+        double normy0 = (y - getY1()) / height - 0.5;
+        double normy1 = normy0 + h / height;
+        double nearx = normx0 > 0 ? normx0 : normx1 < 0 ? normx1 : 0;
+        double neary = normy0 > 0 ? normy0 : normy1 < 0 ? normy1 : 0;
+        return nearx * nearx + neary * neary < 0.25;
+    }
 }
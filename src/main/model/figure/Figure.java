@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.awt.Shape;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 import java.lang.CloneNotSupportedException;
 
 /**
@@ -12,14 +13,23 @@ import java.lang.CloneNotSupportedException;
  * The bounding box's area is defined by width and height values.
  * The Figure shape's properties include its color and its fill option.
  * The Figure object also has a method that can return a Shape object which can be used for rendering and more methods.
+ * The Shape object is cached and only rebuilt after the bounding box changes.
+ * Hit testing rejects points far from the bounding box first, then most subclasses test their geometry
+ * in closed form on the coordinates, without building the Shape object.
+ * Each Figure object has an id that identifies it in stored histories and files; clones keep the id.
  */
 public abstract class Figure implements Cloneable{
+    private static final AtomicLong nextId = new AtomicLong(1);
+    private static final double HIT_SIZE = 2; // side of the box at a point that hit tests intersect
+
+    private long id;
     private double x1;
     private double y1;
     private double width;
     private double height;
     private Color color;
     private boolean fill;
+    private Shape shape; // cached geometry, null until built or after the bounding box changes
 
     /**
      * Construct a Figure object with the 
@@ -31,6 +41,7 @@ public abstract class Figure implements Cloneable{
      */
     public Figure(double x1, double y1, Color color, boolean fill) throws IllegalArgumentException{
         if (x1 >= 0 && y1 >= 0) {
+            this.id = nextId.getAndIncrement();
             this.x1 = x1;
             this.y1 = y1;
             this.width = 0;
@@ -57,6 +68,7 @@ public abstract class Figure implements Cloneable{
             this.y1 = y1;
             this.width = width;
             this.height = height;
+            shape = null;
         } else {
             throw new IllegalArgumentException("x1 and y1 must be non-negative");
         }
@@ -111,6 +123,7 @@ public abstract class Figure implements Cloneable{
         if (xDiff >= -x1 && yDiff >= -y1) {
             x1 += xDiff;
             y1 += yDiff;
+            shape = null;
         } else {
             throw new IllegalArgumentException(String.format("(x1, y1) can't be negative. xDiff must be >= %f. yDiff must be >= %f.", -x1, -y1));
         }
@@ -120,30 +133,136 @@ public abstract class Figure implements Cloneable{
      * Test whether object contians a point.
      * @param x the x coordinate of the point
      * @param y the y coordinate of the point
-     * @return
+     * @return boolean whether the Figure object intersects a 2x2 box at the point.
      */
     public boolean contains(double x, double y) {
-        // test if intersect with a 2x2 box at x, y coordinates
-        double w = 2;
-        double h = 2;
+        // test if intersect with a 2x2 box at x, y coordinates, rejecting boxes off the bounding box first
+        return x <= Math.max(x1, x1 + width) && x + HIT_SIZE >= Math.min(x1, x1 + width)
+            && y <= Math.max(y1, y1 + height) && y + HIT_SIZE >= Math.min(y1, y1 + height)
+            && intersects(x, y, HIT_SIZE, HIT_SIZE);
+    }
+
+    /**
+     * Test whether the interior of a box intersects the Figure object, as Shape#intersects does for getShape2D().
+     * Subclasses override it with a closed-form test on the bounding box where there is one.
+     * @param x x coordinate of the upper left corner of the box
+     * @param y y coordinate of the upper left corner of the box
+     * @param w the width of the box, positive
+     * @param h the height of the box, positive
+     * @return boolean whether the box intersects the Figure object.
+     */
+    protected boolean intersects(double x, double y, double w, double h) {
         return getShape2D().intersects(x, y, w, h);
     }
 
+    /**
+     * Test whether a segment passes through the interior of a box, as a path made of it intersects the box.
+     * The box and the segment are separated if their projections at most touch along the axes of the box
+     * or along the normal of the segment.
+     * @param ax x coordinate of one end of the segment
+     * @param ay y coordinate of one end of the segment
+     * @param bx x coordinate of the other end of the segment
+     * @param by y coordinate of the other end of the segment
+     * @param x x coordinate of the upper left corner of the box
+     * @param y y coordinate of the upper left corner of the box
+     * @param w the width of the box
+     * @param h the height of the box
+     * @return boolean whether the segment meets the open box.
+     */
+    protected static boolean segmentCrossesBox(double ax, double ay, double bx, double by, double x, double y, double w, double h) {
+        if (Math.max(ax, bx) <= x || Math.min(ax, bx) >= x + w || Math.max(ay, by) <= y || Math.min(ay, by) >= y + h) {
+            return false;
+        }
+        double nx = ay - by;
+        double ny = bx - ax;
+        if (nx == 0 && ny == 0) {
+            return true; // a point strictly inside the box
+        }
+        double c = nx * ax + ny * ay;
+        double p0 = nx * x + ny * y;
+        double p1 = nx * (x + w) + ny * y;
+        double p2 = nx * x + ny * (y + h);
+        double p3 = nx * (x + w) + ny * (y + h);
+        return Math.min(Math.min(p0, p1), Math.min(p2, p3)) < c && c < Math.max(Math.max(p0, p1), Math.max(p2, p3));
+    }
+
     
     /** 
-     * Clone the Figure object.
+     * Clone the Figure object. The clone builds its own Shape object.
      * @return Figure the clone object.
      */
     @Override
     public Figure clone() {
         try {
-            return (Figure) super.clone(); 
+            Figure clone = (Figure) super.clone();
+            clone.shape = null;
+            return clone;
         } catch (CloneNotSupportedException e) {
             return null;
         }
     }
 
     
+    /**
+     * Create a Figure object of the same class with the id and attributes of a stored record, e.g. a view of a FigureStorage.
+     * The clone is not constructed, so it takes the stored id without drawing or advancing the ids of new Figure objects:
+     * the store holds only ids already given out or restored.
+     * @return Figure the new Figure object.
+     */
+    Figure view(long id, double x1, double y1, double width, double height, Color color, boolean fill) {
+        Figure view = clone();
+        view.restore(id, x1, y1, width, height, color, fill);
+        return view;
+    }
+
+
+    /**
+     * Set the id and attributes of a stored record, e.g. on a Figure object reused for many records.
+     * Like view, it leaves the ids of new Figure objects alone. The Shape object is dropped only if the bounding box changed.
+     */
+    void restore(long id, double x1, double y1, double width, double height, Color color, boolean fill) {
+        if (x1 != this.x1 || y1 != this.y1 || width != this.width || height != this.height) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.width = width;
+            this.height = height;
+            shape = null;
+        }
+        this.id = id;
+        this.color = color;
+        this.fill = fill;
+    }
+
+
+    /**
+     * Make the ids given to new Figure objects greater than an id kept in storage,
+     * e.g. the greatest id of a file whose records are read in place.
+     * @param id the stored id
+     */
+    public static void reserveIds(long id) {
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+
+    /**
+     * Restore the id of a Figure object read back from storage.
+     * Ids given to new Figure objects afterwards are greater than the restored id.
+     * @param id the stored id
+     */
+    void restoreId(long id) {
+        this.id = id;
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    
+    /** 
+     * @return long the id of the object.
+     */
+    public long getId() {
+        return id;
+    }
+
+    
     /** 
      * @return double x coordinate of the upper left corner of the bounding box.
      */
@@ -202,8 +321,20 @@ public abstract class Figure implements Cloneable{
 
     /**
      * Shape2D object of the Figure object.
+     * The Shape object is cached until the bounding box changes, so callers must not modify it.
+     * @return Shape2D object.
+     */
+    public Shape getShape2D() {
+        if (shape == null) {
+            shape = createShape2D();
+        }
+        return shape;
+    }
+
+    /**
+     * Build a new Shape2D object from the current bounding box.
      * @return Shape2D object.
      */
-    public abstract Shape getShape2D();
+    protected abstract Shape createShape2D();
 
 }
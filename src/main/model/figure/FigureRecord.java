@@ -0,0 +1,214 @@
+package main.model.figure;
+
+import java.awt.Color;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The FigureRecord class is an immutable version of a Figure object.
+ * Unlike Figure objects, FigureRecord objects can be shared between states and threads.
+ * A FigureRecord object can be written in a compact binary form of 46 bytes.
+ * The binary form is the same through DataOutput and ByteBuffer, and big-endian in both.
+ */
+public final class FigureRecord {
+    public static final int BYTES = 46; // size of the binary form
+
+    private final long id;
+    private final FigureType type;
+    private final double x1;
+    private final double y1;
+    private final double width;
+    private final double height;
+    private final Color color;
+    private final boolean fill;
+
+    /**
+     * Construct a FigureRecord object.
+     * @param id the id of the Figure object.
+     * @param type the type of the Figure object.
+     * @param x1 x coordinate of the upper left corner of the bounding box.
+     * @param y1 y coordinate of the upper left corner of the bounding box.
+     * @param width the width of the bounding box.
+     * @param height the height of the bounding box.
+     * @param color color of the object.
+     * @param fill whether the object is filled or outlined.
+     */
+    public FigureRecord(long id, FigureType type, double x1, double y1, double width, double height, Color color, boolean fill) {
+        this.id = id;
+        this.type = type;
+        this.x1 = x1;
+        this.y1 = y1;
+        this.width = width;
+        this.height = height;
+        this.color = color;
+        this.fill = fill;
+    }
+
+    /** 
+     * @param figure a Figure object
+     * @return FigureRecord the current version of the Figure object.
+     */
+    public static FigureRecord of(Figure figure) {
+        return new FigureRecord(figure.getId(), FigureType.of(figure), figure.getX1(), figure.getY1(),
+            figure.getWidth(), figure.getHeight(), figure.getColor(), figure.getFill());
+    }
+
+    /** 
+     * @return Figure a new mutable Figure object with the same id and attributes.
+     */
+    public Figure toFigure() {
+        Figure figure = type.create(x1, y1, color, fill);
+        figure.updateArea(width, height);
+        figure.restoreId(id);
+        return figure;
+    }
+
+    /** 
+     * Write the binary form: id, type tag, x1, y1, width, height, ARGB color and fill.
+     * @param out the output to write to
+     * @throws IOException if the output fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeByte(type.getTag());
+        out.writeDouble(x1);
+        out.writeDouble(y1);
+        out.writeDouble(width);
+        out.writeDouble(height);
+        out.writeInt(color.getRGB());
+        out.writeBoolean(fill);
+    }
+
+    /** 
+     * Write the binary form at the position of a buffer and advance it.
+     * @param out the buffer to write to, with at least BYTES remaining
+     */
+    public void write(ByteBuffer out) {
+        write(out, id, type, x1, y1, width, height, color.getRGB(), fill);
+    }
+
+    /** 
+     * Write the binary form of the current version of a Figure object, without creating a FigureRecord object.
+     * @param figure the Figure object
+     * @param out the buffer to write to, with at least BYTES remaining
+     */
+    public static void write(Figure figure, ByteBuffer out) {
+        write(out, figure.getId(), FigureType.of(figure), figure.getX1(), figure.getY1(),
+            figure.getWidth(), figure.getHeight(), figure.getColor().getRGB(), figure.getFill());
+    }
+
+    private static void write(ByteBuffer out, long id, FigureType type, double x1, double y1,
+            double width, double height, int argb, boolean fill) {
+        out.putLong(id);
+        out.put(type.getTag());
+        out.putDouble(x1);
+        out.putDouble(y1);
+        out.putDouble(width);
+        out.putDouble(height);
+        out.putInt(argb);
+        out.put((byte) (fill ? 1 : 0));
+    }
+
+    /** 
+     * Read a FigureRecord object written by write.
+     * @param in the input to read from
+     * @return FigureRecord the FigureRecord object read.
+     * @throws IOException if the input fails or holds an unknown type tag
+     */
+    public static FigureRecord read(DataInput in) throws IOException {
+        long id = in.readLong();
+        FigureType type;
+        try {
+            type = FigureType.of(in.readByte());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        double x1 = in.readDouble();
+        double y1 = in.readDouble();
+        double width = in.readDouble();
+        double height = in.readDouble();
+        Color color = new Color(in.readInt(), true);
+        boolean fill = in.readBoolean();
+        return new FigureRecord(id, type, x1, y1, width, height, color, fill);
+    }
+
+    /** 
+     * Read a FigureRecord object at an absolute offset of a buffer, without moving its position.
+     * @param in the buffer to read from
+     * @param offset the offset of the binary form in the buffer
+     * @return FigureRecord the FigureRecord object read.
+     * @throws IOException if the buffer is too short or holds an unknown type tag
+     */
+    public static FigureRecord read(ByteBuffer in, int offset) throws IOException {
+        if (offset < 0 || offset > in.limit() - BYTES) {
+            throw new IOException(new BufferUnderflowException());
+        }
+        FigureType type;
+        try {
+            type = FigureType.of(in.get(offset + 8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        return new FigureRecord(in.getLong(offset), type, in.getDouble(offset + 9), in.getDouble(offset + 17),
+            in.getDouble(offset + 25), in.getDouble(offset + 33), new Color(in.getInt(offset + 41), true), in.get(offset + 45) != 0);
+    }
+
+    /** 
+     * @return long the id of the Figure object.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /** 
+     * @return FigureType the type of the Figure object.
+     */
+    public FigureType getType() {
+        return type;
+    }
+
+    /** 
+     * @return double x coordinate of the upper left corner of the bounding box.
+     */
+    public double getX1() {
+        return x1;
+    }
+
+    /** 
+     * @return double y coordinate of the upper left corner of the bounding box.
+     */
+    public double getY1() {
+        return y1;
+    }
+
+    /** 
+     * @return double the width of the bounding box.
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /** 
+     * @return double the height of the bounding box.
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /** 
+     * @return Color the color of the object.
+     */
+    public Color getColor() {
+        return color;
+    }
+
+    /** 
+     * @return boolean whether the object is filled.
+     */
+    public boolean getFill() {
+        return fill;
+    }
+}
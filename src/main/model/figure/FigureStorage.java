@@ -0,0 +1,93 @@
+package main.model.figure;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The FigureStorage interface is a list of Figure objects kept as records rather than as Figure objects,
+ * most recently created first like DrawModel#getFigures(), so a DrawModel object can keep its Figure objects in it.
+ * Its get creates a detached Figure object with the id and attributes of a record: edit it and store it back.
+ * Hit testing and rendering should use indexOfTopContains and visit, which read the records in place
+ * and reuse one Figure object per type.
+ * Ids read from the records are kept without advancing the ids of new Figure objects,
+ * so a FigureStorage object must only be given Figure objects, and records, whose ids were given out or restored.
+ * @see main.model.DrawModel#DrawModel(FigureStorage)
+ */
+public interface FigureStorage extends List<Figure>, RandomAccess {
+
+    /**
+     * The Visitor interface is called for each record visited by a FigureStorage object.
+     */
+    interface Visitor {
+        /**
+         * Visit one record.
+         * @param index the index of the record from the top
+         * @param figure a Figure object with the attributes of the record, reused for the next record of the same type
+         */
+        void visit(int index, Figure figure);
+    }
+
+    /**
+     * Find the most recently created Figure object that contains a point, as DrawModel selects it.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return int the index of the Figure object from the top, or -1 if none contains the point.
+     */
+    int indexOfTopContains(double x, double y);
+
+    /**
+     * Find a record by id, scanning from the top.
+     * @param id the id of a Figure object
+     * @return int the index of the record from the top, or -1 if there is none.
+     */
+    int indexOfId(long id);
+
+    /**
+     * @param index the index from the top
+     * @return long the id of the record at the index, without creating a Figure object.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    long getId(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Store the current version of a Figure object in place of a record, without creating a Figure object of the replaced one.
+     * @param index the index from the top
+     * @param figure the Figure object
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    void store(int index, Figure figure) throws IndexOutOfBoundsException;
+
+    /**
+     * Set the id and attributes of a record on a Figure object of the same type, e.g. to bring a detached one up to date.
+     * @param index the index from the top
+     * @param figure the Figure object to update
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    void read(int index, Figure figure) throws IndexOutOfBoundsException;
+
+    /**
+     * Move a record in the z-order, shifting the records between.
+     * @param from the index of the record from the top
+     * @param to the index of the record afterwards
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    void move(int from, int to) throws IndexOutOfBoundsException;
+
+    /**
+     * Visit the records from index to - 1 up to index from, bottom to top, i.e. in paint order.
+     * Records whose padded bounding box is outside the region are skipped without decoding them.
+     * @param from index of the top record to visit
+     * @param to index after the bottom record to visit
+     * @param region the region to visit, null for all
+     * @param padding the margin around bounding boxes, e.g. for the stroke
+     * @param visitor called with a reused Figure object for each record, which it must not keep
+     */
+    void visit(int from, int to, Rectangle2D region, double padding, Visitor visitor);
+
+    /**
+     * @return FigureStorage a new empty FigureStorage object of the same kind, e.g. to clear a DrawModel object
+     * while the history keeps this one.
+     */
+    FigureStorage newEmpty();
+}
@@ -0,0 +1,433 @@
+package main.model.figure;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The FigureStore class keeps the attributes of many Figure objects in parallel primitive arrays.
+ * Ids are kept in a long[], type tags in a byte[], bounding boxes in four double[], ARGB colors in an int[]
+ * and fill options in a BitSet, so a Figure costs about 45 bytes instead of a Figure object, its Color object
+ * and a reference in an ArrayList, and scans over the bounding boxes read memory sequentially.
+ * Figure objects are views created on demand by get. They are detached: edit a view and store it back to keep the change.
+ * The order is the same as in DrawModel, most recently created Figure object first, and a DrawModel object
+ * can keep its Figure objects in a FigureStore object, see DrawModel#DrawModel(FigureStorage).
+ * The arrays are kept bottom to top, so adding a Figure object on top appends to them.
+ * @see Figure
+ */
+public class FigureStore extends AbstractList<Figure> implements FigureStorage {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size;
+    private long[] ids; // by slot, bottom to top
+    private byte[] types;
+    private double[] x1s;
+    private double[] y1s;
+    private double[] widths;
+    private double[] heights;
+    private int[] colors; // ARGB values
+    private BitSet fills;
+
+    /**
+     * Construct an empty FigureStore object.
+     */
+    public FigureStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct an empty FigureStore object.
+     * @param capacity the number of Figure objects to make room for
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public FigureStore(int capacity) throws IllegalArgumentException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be non-negative.");
+        }
+        ids = new long[capacity];
+        types = new byte[capacity];
+        x1s = new double[capacity];
+        y1s = new double[capacity];
+        widths = new double[capacity];
+        heights = new double[capacity];
+        colors = new int[capacity];
+        fills = new BitSet(capacity);
+    }
+
+    /**
+     * @param figures the Figure objects to store, in order
+     * @return FigureStore a new FigureStore object with the attributes of the Figure objects.
+     */
+    public static FigureStore of(List<? extends Figure> figures) {
+        FigureStore store = new FigureStore(figures.size());
+        for (int i = figures.size() - 1; i >= 0; i -= 1) {
+            store.add(0, figures.get(i));
+        }
+        return store;
+    }
+
+    /**
+     * Create a view of a stored Figure object. The view has the stored id.
+     * @param index the index of the Figure object
+     * @return Figure a new Figure object with the stored attributes.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Figure get(int index) throws IndexOutOfBoundsException {
+        int slot = slotOf(index);
+        return FigureType.of(types[slot]).view(ids[slot], x1s[slot], y1s[slot], widths[slot], heights[slot],
+            new Color(colors[slot], true), fills.get(slot));
+    }
+
+    /**
+     * Store the attributes of a Figure object in place of another one.
+     * @param index the index to store at
+     * @param figure the Figure object, e.g. an edited view
+     * @return Figure a view of the replaced Figure object.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Figure set(int index, Figure figure) throws IndexOutOfBoundsException {
+        Figure replaced = get(index);
+        store(index, figure);
+        return replaced;
+    }
+
+    /**
+     * Store the attributes of a Figure object in place of another one, without creating a view of it.
+     * @param index the index to store at
+     * @param figure the Figure object
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void store(int index, Figure figure) throws IndexOutOfBoundsException {
+        write(slotOf(index), figure);
+    }
+
+    /**
+     * Set the stored id and attributes on a Figure object of the same type.
+     * @param index the index of the Figure object
+     * @param figure the Figure object to update
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void read(int index, Figure figure) throws IndexOutOfBoundsException {
+        int slot = slotOf(index);
+        Color color = figure.getColor().getRGB() == colors[slot] ? figure.getColor() : new Color(colors[slot], true);
+        figure.restore(ids[slot], x1s[slot], y1s[slot], widths[slot], heights[slot], color, fills.get(slot));
+    }
+
+    /**
+     * Store the attributes of a Figure object at an index. Adding at index 0, on top, costs one slot;
+     * adding further down shifts the Figure objects above it.
+     * @param index the index to store at
+     * @param figure the Figure object
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void add(int index, Figure figure) throws IndexOutOfBoundsException {
+        checkIndex(index, size + 1);
+        if (size == ids.length) {
+            grow();
+        }
+        int slot = size - index;
+        System.arraycopy(ids, slot, ids, slot + 1, index);
+        System.arraycopy(types, slot, types, slot + 1, index);
+        System.arraycopy(x1s, slot, x1s, slot + 1, index);
+        System.arraycopy(y1s, slot, y1s, slot + 1, index);
+        System.arraycopy(widths, slot, widths, slot + 1, index);
+        System.arraycopy(heights, slot, heights, slot + 1, index);
+        System.arraycopy(colors, slot, colors, slot + 1, index);
+        for (int s = size; s > slot; s -= 1) {
+            fills.set(s, fills.get(s - 1));
+        }
+        size += 1;
+        write(slot, figure);
+        modCount += 1;
+    }
+
+    /**
+     * Remove a Figure object. Removing at index 0, on top, costs nothing; removing further down shifts the ones above it.
+     * @param index the index of the Figure object
+     * @return Figure a view of the removed Figure object.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Figure remove(int index) throws IndexOutOfBoundsException {
+        Figure removed = get(index);
+        int slot = slotOf(index);
+        System.arraycopy(ids, slot + 1, ids, slot, index);
+        System.arraycopy(types, slot + 1, types, slot, index);
+        System.arraycopy(x1s, slot + 1, x1s, slot, index);
+        System.arraycopy(y1s, slot + 1, y1s, slot, index);
+        System.arraycopy(widths, slot + 1, widths, slot, index);
+        System.arraycopy(heights, slot + 1, heights, slot, index);
+        System.arraycopy(colors, slot + 1, colors, slot, index);
+        for (int s = slot; s < size - 1; s += 1) {
+            fills.set(s, fills.get(s + 1));
+        }
+        size -= 1;
+        fills.clear(size);
+        modCount += 1;
+        return removed;
+    }
+
+    /**
+     * Move a Figure object in the z-order, shifting the ones between.
+     * @param from the index of the Figure object
+     * @param to the index of the Figure object afterwards
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    @Override
+    public void move(int from, int to) throws IndexOutOfBoundsException {
+        checkIndex(to, size);
+        add(to, remove(from));
+    }
+
+    /**
+     * Remove all Figure objects. The arrays keep their capacity.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        fills.clear();
+        modCount += 1;
+    }
+
+    /**
+     * @return int the number of stored Figure objects.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return FigureStorage a new empty FigureStore object.
+     */
+    @Override
+    public FigureStorage newEmpty() {
+        return new FigureStore();
+    }
+
+    /**
+     * Find the most recently created Figure object that contains a point, as DrawModel selects it.
+     * Bounding boxes are scanned first, and only Figure objects whose bounding box is near the point are tested,
+     * on one reused Figure object per type.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return int the index of the Figure object, or -1 if none contains the point.
+     */
+    @Override
+    public int indexOfTopContains(double x, double y) {
+        Figure[] flyweights = new Figure[FigureType.values().length];
+        // Figure.contains tests a 2x2 box at the point
+        for (int slot = size - 1; slot >= 0; slot -= 1) {
+            if (boundsIntersect(slot, x, y, 2, 2) && flyweight(slot, flyweights).contains(x, y)) {
+                return size - 1 - slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a Figure object by id, scanning the ids from the top.
+     * @param id the id
+     * @return int the index of the Figure object, or -1 if there is none.
+     */
+    @Override
+    public int indexOfId(long id) {
+        for (int slot = size - 1; slot >= 0; slot -= 1) {
+            if (ids[slot] == id) {
+                return size - 1 - slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Visit the Figure objects from index to - 1 up to index from, bottom to top, i.e. in paint order.
+     * Figure objects whose padded bounding box is outside the region are skipped without creating views.
+     * @param from index of the top Figure object to visit
+     * @param to index after the bottom Figure object to visit
+     * @param region the region to visit, null for all
+     * @param padding the margin around bounding boxes, e.g. for the stroke
+     * @param visitor called with a reused Figure object for each Figure object, which it must not keep
+     */
+    @Override
+    public void visit(int from, int to, Rectangle2D region, double padding, Visitor visitor) {
+        Figure[] flyweights = new Figure[FigureType.values().length];
+        for (int i = to - 1; i >= from; i -= 1) {
+            int slot = slotOf(i);
+            if (region == null || boundsIntersect(slot, region.getX() - padding, region.getY() - padding,
+                    region.getWidth() + 2 * padding, region.getHeight() + 2 * padding)) {
+                visitor.visit(i, flyweight(slot, flyweights));
+            }
+        }
+    }
+
+    /**
+     * Count the Figure objects whose bounding box intersects a region, without creating views.
+     * @param region the region
+     * @return int the number of Figure objects.
+     */
+    public int countIntersecting(Rectangle2D region) {
+        int count = 0;
+        double x = region.getX();
+        double y = region.getY();
+        double width = region.getWidth();
+        double height = region.getHeight();
+        for (int slot = 0; slot < size; slot += 1) {
+            if (boundsIntersect(slot, x, y, width, height)) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return ArrayList<Figure> views of all stored Figure objects, in order.
+     */
+    public ArrayList<Figure> toFigures() {
+        return new ArrayList<Figure>(this);
+    }
+
+    /**
+     * Release the capacity beyond the stored Figure objects.
+     */
+    public void trimToSize() {
+        resize(size);
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return long the id of the Figure object.
+     */
+    @Override
+    public long getId(int index) {
+        return ids[slotOf(index)];
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return FigureType the type of the Figure object.
+     */
+    public FigureType getType(int index) {
+        return FigureType.of(types[slotOf(index)]);
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return double x coordinate of the upper left corner of the bounding box.
+     */
+    public double getX1(int index) {
+        return x1s[slotOf(index)];
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return double y coordinate of the upper left corner of the bounding box.
+     */
+    public double getY1(int index) {
+        return y1s[slotOf(index)];
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return double the width of the bounding box.
+     */
+    public double getWidth(int index) {
+        return widths[slotOf(index)];
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return double the height of the bounding box.
+     */
+    public double getHeight(int index) {
+        return heights[slotOf(index)];
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return int the ARGB value of the color of the Figure object.
+     */
+    public int getArgb(int index) {
+        return colors[slotOf(index)];
+    }
+
+    /**
+     * @param index the index of a Figure object
+     * @return boolean whether the Figure object is filled.
+     */
+    public boolean getFill(int index) {
+        return fills.get(slotOf(index));
+    }
+
+    /**
+     * Whether the bounding box of a stored Figure object intersects a rectangle.
+     * Bounding boxes with negative width or height extend to the left or up, as in DrawModel.
+     */
+    private boolean boundsIntersect(int slot, double x, double y, double width, double height) {
+        double w = widths[slot];
+        double h = heights[slot];
+        double left = w < 0 ? x1s[slot] + w : x1s[slot];
+        double top = h < 0 ? y1s[slot] + h : y1s[slot];
+        return left <= x + width && x <= left + Math.abs(w) && top <= y + height && y <= top + Math.abs(h);
+    }
+
+    /**
+     * Set the attributes of a slot on the Figure object of its type, creating it the first time.
+     */
+    private Figure flyweight(int slot, Figure[] flyweights) {
+        int type = FigureType.of(types[slot]).ordinal();
+        Figure figure = flyweights[type];
+        if (figure == null) {
+            figure = get(size - 1 - slot);
+            flyweights[type] = figure;
+        } else {
+            read(size - 1 - slot, figure);
+        }
+        return figure;
+    }
+
+    private void write(int slot, Figure figure) {
+        ids[slot] = figure.getId();
+        types[slot] = FigureType.of(figure).getTag();
+        x1s[slot] = figure.getX1();
+        y1s[slot] = figure.getY1();
+        widths[slot] = figure.getWidth();
+        heights[slot] = figure.getHeight();
+        colors[slot] = figure.getColor().getRGB();
+        fills.set(slot, figure.getFill());
+    }
+
+    private void grow() {
+        resize(Math.max(DEFAULT_CAPACITY, ids.length + (ids.length >> 1)));
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        types = Arrays.copyOf(types, capacity);
+        x1s = Arrays.copyOf(x1s, capacity);
+        y1s = Arrays.copyOf(y1s, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+    }
+
+    private int slotOf(int index) throws IndexOutOfBoundsException {
+        checkIndex(index, size);
+        return size - 1 - index;
+    }
+
+    private static void checkIndex(int index, int bound) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range 0 to " + (bound - 1) + ".");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package main.model.figure;
+
+import java.awt.Color;
+
+/**
+ * The FigureType enum lists the supported Figure subclasses.
+ * Each type has the name used by ControlModel and a stable tag for compact storage.
+ */
+public enum FigureType {
+    LINE("line", 0),
+    RECTANGLE("rectangle", 1),
+    ELLIPSE("ellipse", 2),
+    CROSS("cross", 3),
+    TRIANGLE("triangle", 4),
+    HEART("heart", 5),
+    MOON("moon", 6);
+
+    private static final FigureType[] TYPES = values(); // values() copies the array on each call
+
+    static {
+        for (FigureType type : TYPES) {
+            type.prototype = type.create(0, 0, Color.black, false);
+        }
+    }
+
+    private final String name;
+    private final byte tag;
+    private Figure prototype; // cloned into Figure objects read from records, never changed
+
+    private FigureType(String name, int tag) {
+        this.name = name;
+        this.tag = (byte) tag;
+    }
+
+    /**
+     * Construct a Figure object of this type.
+     * @param x1 x coordinate of the upper left corner of the bounding box.
+     * @param y1 y coordinate of the upper left corner of the bounding box.
+     * @param color color of the object.
+     * @param fill whether the object is filled or outlined.
+     * @return Figure the new Figure object.
+     * @throws IllegalArgumentException if the x1, y1 coordinates are negative
+     */
+    public Figure create(double x1, double y1, Color color, boolean fill) throws IllegalArgumentException {
+        switch (this) {
+            case LINE:
+                return new Line(x1, y1, color, fill);
+            case RECTANGLE:
+                return new Rectangle(x1, y1, color, fill);
+            case ELLIPSE:
+                return new Ellipse(x1, y1, color, fill);
+            case CROSS:
+                return new DiagonalCross(x1, y1, color, fill);
+            case TRIANGLE:
+                return new Triangle(x1, y1, color, fill);
+            case HEART:
+                return new Heart(x1, y1, color, fill);
+            default:
+                return new Moon(x1, y1, color, fill);
+        }
+    }
+
+    /**
+     * Create a Figure object of this type with the id and attributes of a record, without drawing a new id.
+     * @return Figure the new Figure object.
+     */
+    Figure view(long id, double x1, double y1, double width, double height, Color color, boolean fill) {
+        return prototype.view(id, x1, y1, width, height, color, fill);
+    }
+
+    /** 
+     * @return String the name of the type, as used by ControlModel.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /** 
+     * @return byte the stable tag of the type.
+     */
+    public byte getTag() {
+        return tag;
+    }
+
+    /** 
+     * @param name the name of a type
+     * @return FigureType the type with the name.
+     * @throws IllegalArgumentException if no type has the name
+     */
+    public static FigureType of(String name) throws IllegalArgumentException {
+        for (FigureType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException(name + " is not supported.");
+    }
+
+    /** 
+     * @param tag the tag of a type
+     * @return FigureType the type with the tag.
+     * @throws IllegalArgumentException if no type has the tag
+     */
+    public static FigureType of(byte tag) throws IllegalArgumentException {
+        for (FigureType type : TYPES) {
+            if (type.tag == tag) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Figure tag " + tag + " is not supported.");
+    }
+
+    /** 
+     * @param figure a Figure object
+     * @return FigureType the type of the Figure object.
+     */
+    public static FigureType of(Figure figure) {
+        if (figure instanceof Line) {
+            return LINE;
+        } else if (figure instanceof Rectangle) {
+            return RECTANGLE;
+        } else if (figure instanceof Ellipse) {
+            return ELLIPSE;
+        } else if (figure instanceof DiagonalCross) {
+            return CROSS;
+        } else if (figure instanceof Triangle) {
+            return TRIANGLE;
+        } else if (figure instanceof Heart) {
+            return HEART;
+        } else {
+            return MOON;
+        }
+    }
+}
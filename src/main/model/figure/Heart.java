@@ -14,7 +14,16 @@ public class Heart extends Figure {
     /** 
      * @return Path2D.Double the Shape object representing the object.
      */
+    @Override
     public Path2D.Double getShape2D() {
+        return (Path2D.Double) super.getShape2D();
+    }
+
+    /** 
+     * @return Path2D.Double a new Shape object built from the bounding box.
+     */
+    @Override
+    protected Path2D.Double createShape2D() {
         double x1 = getX1();
         double y1 = getY1();
         double x2 = x1 + getWidth()/2;
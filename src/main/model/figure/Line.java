@@ -1,6 +1,10 @@
 package main.model.figure;
 
 import java.awt.geom.Line2D;
+import static java.awt.geom.Rectangle2D.OUT_BOTTOM;
+import static java.awt.geom.Rectangle2D.OUT_LEFT;
+import static java.awt.geom.Rectangle2D.OUT_RIGHT;
+import static java.awt.geom.Rectangle2D.OUT_TOP;
 import java.awt.Color;
 public class Line extends Figure {
 
@@ -14,7 +18,72 @@ public class Line extends Figure {
     /** 
      * @return Line2D.Double the Shape object representing the object.
      */
+    @Override
     public Line2D.Double getShape2D() {
+        return (Line2D.Double) super.getShape2D();
+    }
+
+    /** 
+     * @return Line2D.Double a new Shape object built from the bounding box.
+     */
+    @Override
+    protected Line2D.Double createShape2D() {
         return new Line2D.Double(getX1(), getY1(), getX1() + getWidth(), getY1() + getHeight());
     }
+
+    /**
+     * Test whether the segment meets a box, edges included, as Line2D#intersects does:
+     * the segment is clipped to the box edge by edge until an end is inside or both ends are outside one edge.
+     * The clipping is the same as in Rectangle2D#intersectsLine, so segments touching a corner give the same answer.
+     * @param x x coordinate of the upper left corner of the box
+     * @param y y coordinate of the upper left corner of the box
+     * @param w the width of the box, positive
+     * @param h the height of the box, positive
+     * @return boolean whether the box intersects the Line object.
+     */
+    @Override
+    protected boolean intersects(double x, double y, double w, double h) {
+        double x1 = getX1();
+        double y1 = getY1();
+        double x2 = x1 + getWidth();
+        double y2 = y1 + getHeight();
+        int out2 = outcode(x2, y2, x, y, w, h);
+        if (out2 == 0) {
+            return true;
+        }
+        int out1;
+        while ((out1 = outcode(x1, y1, x, y, w, h)) != 0) {
+            if ((out1 & out2) != 0) {
+                return false;
+            }
+            if ((out1 & (OUT_LEFT | OUT_RIGHT)) != 0) {
+                double edge = (out1 & OUT_RIGHT) != 0 ? x + w : x;
+                y1 = y1 + (edge - x1) * (y2 - y1) / (x2 - x1);
+                x1 = edge;
+            } else {
+                double edge = (out1 & OUT_BOTTOM) != 0 ? y + h : y;
+                x1 = x1 + (edge - y1) * (x2 - x1) / (y2 - y1);
+                y1 = edge;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return int the sides of a box a point is beyond, as OUT_ bits.
+     */
+    private static int outcode(double px, double py, double x, double y, double w, double h) {
+        int out = 0;
+        if (px < x) {
+            out |= OUT_LEFT;
+        } else if (px > x + w) {
+            out |= OUT_RIGHT;
+        }
+        if (py < y) {
+            out |= OUT_TOP;
+        } else if (py > y + h) {
+            out |= OUT_BOTTOM;
+        }
+        return out;
+    }
 }
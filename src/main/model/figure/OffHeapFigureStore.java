@@ -0,0 +1,462 @@
+package main.model.figure;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+
+/**
+ * The OffHeapFigureStore class keeps Figure objects as binary FigureRecord forms outside the Java heap,
+ * in direct buffers or in a memory-mapped file, so the garbage collector doesn't trace them however many there are.
+ * Like DrawModel#getFigures() it is a List<Figure>, most recently created Figure object first, whose get creates
+ * a detached Figure object on demand. Hit testing, rendering and export should use indexOfTopContains and visit instead,
+ * which read the records in place and reuse one Figure object per type.
+ * A DrawModel object can keep its Figure objects in an OffHeapFigureStore object, see DrawModel#DrawModel(FigureStorage).
+ * Records are kept bottom to top, so adding a Figure object on top appends a record.
+ * An OffHeapFigureStore object can also start from records it doesn't own, e.g. the mapped records of an opened file,
+ * which are read in place and copied to direct buffers a buffer at a time when first changed.
+ * An OffHeapFigureStore object must be used by one thread at a time.
+ * @see FigureRecord
+ */
+public class OffHeapFigureStore extends AbstractList<Figure> implements FigureStorage, Closeable {
+    private static final int CHUNK_SHIFT = 16;
+    private static final int RECORDS_PER_CHUNK = 1 << CHUNK_SHIFT; // records per buffer, about 3 MB
+
+    private FileChannel channel; // the backing file, null for direct buffers
+    private ArrayList<ByteBuffer> chunks;
+    private ByteBuffer[] base; // records the store started from, top to bottom, replaced by a copy when first changed
+    private boolean[] copied; // whether each buffer of base is a copy owned by the store
+    private int baseCount; // the number of slots in base, below the slots in chunks
+    private int basePerBuffer; // records per buffer of base
+    private int baseBytes; // bytes per record in base, at least FigureRecord.BYTES
+    private int size;
+    private byte[] moved; // one record being moved, reused
+
+    private OffHeapFigureStore(FileChannel channel) {
+        this.channel = channel;
+        chunks = new ArrayList<ByteBuffer>();
+        base = new ByteBuffer[0];
+        copied = new boolean[0];
+        baseBytes = FigureRecord.BYTES;
+        basePerBuffer = 1;
+        moved = new byte[FigureRecord.BYTES];
+    }
+
+    /**
+     * Construct an empty OffHeapFigureStore object in direct buffers.
+     */
+    public OffHeapFigureStore() {
+        this(null);
+    }
+
+    /**
+     * Construct an empty OffHeapFigureStore object backed by a file, e.g. for documents larger than memory.
+     * The file is truncated and grows as records are added. Pages are written back by the operating system.
+     * @param file the file to keep the records in
+     * @return OffHeapFigureStore the new OffHeapFigureStore object.
+     * @throws IOException if the file can't be opened
+     */
+    public static OffHeapFigureStore mapped(Path file) throws IOException {
+        return new OffHeapFigureStore(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Construct an OffHeapFigureStore object starting from records in buffers, e.g. the mapped records of a DrawingFile,
+     * without reading them. The buffers aren't changed: a buffer is copied to a direct buffer when a record in it first changes.
+     * Ids of the records are kept as they are, so ids of new Figure objects must have been made greater first.
+     * @param records the buffers, most recently created record first, each holding recordsPerBuffer records but the last
+     * @param recordsPerBuffer the number of records in each buffer
+     * @param recordBytes the size of each record, at least FigureRecord.BYTES; bytes after FigureRecord.BYTES are skipped
+     * @param count the number of records
+     * @return OffHeapFigureStore the new OffHeapFigureStore object.
+     * @throws IllegalArgumentException if the sizes don't fit the buffers
+     */
+    public static OffHeapFigureStore of(ByteBuffer[] records, int recordsPerBuffer, int recordBytes, int count) throws IllegalArgumentException {
+        if (recordBytes < FigureRecord.BYTES || recordsPerBuffer <= 0 || count < 0
+                || count > (long) records.length * recordsPerBuffer) {
+            throw new IllegalArgumentException("records don't fit the buffers.");
+        }
+        for (int b = 0; b < records.length; b += 1) {
+            long held = Math.min(recordsPerBuffer, count - (long) b * recordsPerBuffer);
+            if (held > 0 && records[b].capacity() < held * recordBytes) {
+                throw new IllegalArgumentException("records don't fit the buffers.");
+            }
+        }
+        OffHeapFigureStore store = new OffHeapFigureStore(null);
+        store.base = records.clone();
+        store.copied = new boolean[records.length];
+        store.baseCount = count;
+        store.basePerBuffer = recordsPerBuffer;
+        store.baseBytes = recordBytes;
+        store.size = count;
+        return store;
+    }
+
+    /**
+     * Create a detached Figure object from a record.
+     * @param index the index from the top
+     * @return Figure a new Figure object with the id and attributes of the record.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Figure get(int index) throws IndexOutOfBoundsException {
+        int slot = slotOf(index);
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        FigureType type = type(chunk, offset);
+        return type.view(chunk.getLong(offset), chunk.getDouble(offset + 9), chunk.getDouble(offset + 17),
+            chunk.getDouble(offset + 25), chunk.getDouble(offset + 33), new Color(chunk.getInt(offset + 41), true),
+            chunk.get(offset + 45) != 0);
+    }
+
+    /**
+     * @param index the index from the top
+     * @return long the id of the record at the index.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public long getId(int index) throws IndexOutOfBoundsException {
+        int slot = slotOf(index);
+        return chunk(slot).getLong(offset(slot));
+    }
+
+    /**
+     * @param index the index from the top
+     * @return FigureRecord the record at the index.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public FigureRecord getRecord(int index) throws IndexOutOfBoundsException {
+        int slot = slotOf(index);
+        try {
+            return FigureRecord.read(chunk(slot), offset(slot));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the binary form of a record at the position of a buffer and advance it, e.g. to save a DrawingFile.
+     * @param index the index from the top
+     * @param out the buffer to write to, with at least FigureRecord.BYTES remaining
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void copyRecord(int index, ByteBuffer out) throws IndexOutOfBoundsException {
+        int slot = slotOf(index);
+        chunk(slot).get(offset(slot), moved);
+        out.put(moved);
+    }
+
+    /**
+     * Store the current version of a Figure object in place of a record.
+     * @param index the index from the top
+     * @param figure the Figure object
+     * @return Figure a detached Figure object of the replaced record.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Figure set(int index, Figure figure) throws IndexOutOfBoundsException {
+        Figure replaced = get(index);
+        write(slotOf(index), figure);
+        return replaced;
+    }
+
+    /**
+     * Store the current version of a Figure object in place of a record, without decoding the replaced one.
+     * @param index the index from the top
+     * @param figure the Figure object
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void store(int index, Figure figure) throws IndexOutOfBoundsException {
+        write(slotOf(index), figure);
+    }
+
+    /**
+     * Set the id and attributes of a record on a Figure object of the same type.
+     * @param index the index from the top
+     * @param figure the Figure object to update
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void read(int index, Figure figure) throws IndexOutOfBoundsException {
+        restore(slotOf(index), figure);
+    }
+
+    /**
+     * Store the current version of a Figure object at an index. Adding at index 0, on top, costs one record;
+     * adding further down moves the records above it.
+     * @param index the index from the top
+     * @param figure the Figure object
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void add(int index, Figure figure) throws IndexOutOfBoundsException {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of range for size %d.", index, size));
+        }
+        if (size == baseCount + chunks.size() * RECORDS_PER_CHUNK) {
+            chunks.add(allocateChunk(chunks.size()));
+        }
+        int slot = size - index;
+        for (int s = size; s > slot; s -= 1) {
+            copySlot(s - 1, s);
+        }
+        write(slot, figure);
+        size += 1;
+        modCount += 1;
+    }
+
+    /**
+     * Remove a record. Removing at index 0, on top, costs nothing; removing further down moves the records above it.
+     * @param index the index from the top
+     * @return Figure a detached Figure object of the removed record.
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Figure remove(int index) throws IndexOutOfBoundsException {
+        Figure removed = get(index);
+        for (int s = slotOf(index); s < size - 1; s += 1) {
+            copySlot(s + 1, s);
+        }
+        size -= 1;
+        modCount += 1;
+        return removed;
+    }
+
+    /**
+     * Move a record in the z-order, moving the records between by one.
+     * @param from the index of the record from the top
+     * @param to the index of the record afterwards
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    @Override
+    public void move(int from, int to) throws IndexOutOfBoundsException {
+        int fromSlot = slotOf(from);
+        int toSlot = slotOf(to);
+        byte[] record = new byte[FigureRecord.BYTES];
+        chunk(fromSlot).get(offset(fromSlot), record);
+        for (int s = fromSlot; s < toSlot; s += 1) {
+            copySlot(s + 1, s);
+        }
+        for (int s = fromSlot; s > toSlot; s -= 1) {
+            copySlot(s - 1, s);
+        }
+        writableChunk(toSlot).put(offset(toSlot), record);
+        modCount += 1;
+    }
+
+    /**
+     * Remove all records. Buffers are kept for new records.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        modCount += 1;
+    }
+
+    /**
+     * @return int the number of records.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return FigureStorage a new empty OffHeapFigureStore object in direct buffers.
+     */
+    @Override
+    public FigureStorage newEmpty() {
+        return new OffHeapFigureStore();
+    }
+
+    /**
+     * Find the most recently created Figure object that contains a point, as DrawModel selects it.
+     * Bounding boxes are read in place, and only records whose bounding box is near the point are tested further.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return int the index of the Figure object from the top, or -1 if none contains the point.
+     */
+    @Override
+    public int indexOfTopContains(double x, double y) {
+        Figure[] flyweights = new Figure[FigureType.values().length];
+        // Figure.contains tests a 2x2 box at the point
+        Rectangle2D.Double box = new Rectangle2D.Double(x, y, 2, 2);
+        for (int slot = size - 1; slot >= 0; slot -= 1) {
+            if (boundsIntersect(slot, box, 0) && flyweight(slot, flyweights).contains(x, y)) {
+                return size - 1 - slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a record by id, reading the ids in place from the top.
+     * @param id the id of a Figure object
+     * @return int the index of the record from the top, or -1 if there is none.
+     */
+    @Override
+    public int indexOfId(long id) {
+        for (int slot = size - 1; slot >= 0; slot -= 1) {
+            if (chunk(slot).getLong(offset(slot)) == id) {
+                return size - 1 - slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Visit the records from index to - 1 up to index from, bottom to top, i.e. in paint order.
+     * Records whose padded bounding box is outside the region are skipped without decoding them.
+     * @param from index of the top record to visit
+     * @param to index after the bottom record to visit
+     * @param region the region to visit, null for all
+     * @param padding the margin around bounding boxes, e.g. for the stroke
+     * @param visitor called with a reused Figure object for each record, which it must not keep
+     */
+    @Override
+    public void visit(int from, int to, Rectangle2D region, double padding, Visitor visitor) {
+        Figure[] flyweights = new Figure[FigureType.values().length];
+        for (int i = to - 1; i >= from; i -= 1) {
+            int slot = slotOf(i);
+            if (region == null || boundsIntersect(slot, region, padding)) {
+                visitor.visit(i, flyweight(slot, flyweights));
+            }
+        }
+    }
+
+    /**
+     * Close the backing file. Mapped pages stay valid until they are garbage collected.
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Set the attributes of a record on the Figure object of its type, creating it the first time.
+     */
+    private Figure flyweight(int slot, Figure[] flyweights) {
+        FigureType type = type(chunk(slot), offset(slot));
+        Figure figure = flyweights[type.ordinal()];
+        if (figure == null) {
+            figure = get(size - 1 - slot);
+            flyweights[type.ordinal()] = figure;
+        } else {
+            restore(slot, figure);
+        }
+        return figure;
+    }
+
+    /**
+     * Set the id and attributes of a record on a Figure object of its type, keeping its Color object if it is the same.
+     */
+    private void restore(int slot, Figure figure) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        int argb = chunk.getInt(offset + 41);
+        Color color = figure.getColor().getRGB() == argb ? figure.getColor() : new Color(argb, true);
+        figure.restore(chunk.getLong(offset), chunk.getDouble(offset + 9), chunk.getDouble(offset + 17),
+            chunk.getDouble(offset + 25), chunk.getDouble(offset + 33), color, chunk.get(offset + 45) != 0);
+    }
+
+    /**
+     * @return FigureType the type of the record at an offset of a buffer.
+     * @throws UncheckedIOException if the type tag is unknown
+     */
+    private static FigureType type(ByteBuffer chunk, int offset) throws UncheckedIOException {
+        try {
+            return FigureType.of(chunk.get(offset + 8));
+        } catch (IllegalArgumentException e) {
+            throw new UncheckedIOException(new IOException(e.getMessage()));
+        }
+    }
+
+    /**
+     * Whether the padded bounding box of a record intersects a region, like FigureRenderer culls Figure objects.
+     */
+    private boolean boundsIntersect(int slot, Rectangle2D region, double padding) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        double x1 = chunk.getDouble(offset + 9);
+        double y1 = chunk.getDouble(offset + 17);
+        double x2 = x1 + chunk.getDouble(offset + 25);
+        double y2 = y1 + chunk.getDouble(offset + 33);
+        return Math.max(x1, x2) + padding >= region.getMinX() && Math.min(x1, x2) - padding <= region.getMaxX()
+            && Math.max(y1, y2) + padding >= region.getMinY() && Math.min(y1, y2) - padding <= region.getMaxY();
+    }
+
+    private void write(int slot, Figure figure) {
+        ByteBuffer chunk = writableChunk(slot);
+        chunk.position(offset(slot));
+        FigureRecord.write(figure, chunk);
+    }
+
+    private void copySlot(int from, int to) {
+        chunk(from).get(offset(from), moved);
+        writableChunk(to).put(offset(to), moved);
+    }
+
+    private ByteBuffer allocateChunk(int c) throws UncheckedIOException {
+        long bytes = (long) RECORDS_PER_CHUNK * FigureRecord.BYTES;
+        if (channel == null) {
+            return ByteBuffer.allocateDirect((int) bytes);
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, c * bytes, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int slotOf(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of range for size %d.", index, size));
+        }
+        return size - 1 - index;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        if (slot < baseCount) {
+            return base[(baseCount - 1 - slot) / basePerBuffer];
+        }
+        return chunks.get((slot - baseCount) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * @return ByteBuffer the buffer of a slot to write to, copying a buffer of base the first time.
+     */
+    private ByteBuffer writableChunk(int slot) {
+        if (slot < baseCount) {
+            int b = (baseCount - 1 - slot) / basePerBuffer;
+            if (!copied[b]) {
+                ByteBuffer records = base[b].duplicate();
+                records.clear();
+                ByteBuffer copy = ByteBuffer.allocateDirect(records.capacity());
+                copy.put(records);
+                base[b] = copy;
+                copied[b] = true;
+            }
+            return base[b];
+        }
+        return chunk(slot);
+    }
+
+    private int offset(int slot) {
+        if (slot < baseCount) {
+            return ((baseCount - 1 - slot) % basePerBuffer) * baseBytes;
+        }
+        return ((slot - baseCount) & (RECORDS_PER_CHUNK - 1)) * FigureRecord.BYTES;
+    }
+}
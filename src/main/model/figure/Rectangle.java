@@ -14,7 +14,33 @@ public class Rectangle extends Figure {
     /** 
      * @return Rectangle2D.Double the Shape object representing the object.
      */
+    @Override
     public Rectangle2D.Double getShape2D() {
+        return (Rectangle2D.Double) super.getShape2D();
+    }
+
+    /** 
+     * @return Rectangle2D.Double a new Shape object built from the bounding box.
+     */
+    @Override
+    protected Rectangle2D.Double createShape2D() {
         return new Rectangle2D.Double(getX1(), getY1(), getWidth(), getHeight());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test whether the interior of a box overlaps the rectangle, as Rectangle2D#intersects does.
+     * A rectangle with a negative width or height is empty.
+     * @param x x coordinate of the upper left corner of the box
+     * @param y y coordinate of the upper left corner of the box
+     * @param w the width of the box, positive
+     * @param h the height of the box, positive
+     * @return boolean whether the box intersects the Rectangle object.
+     */
+    @Override
+    protected boolean intersects(double x, double y, double w, double h) {
+        double x0 = getX1();
+        double y0 = getY1();
+        return getWidth() > 0 && getHeight() > 0
+            && x + w > x0 && y + h > y0 && x < x0 + getWidth() && y < y0 + getHeight();
+    }
+}
@@ -14,7 +14,16 @@ public class Triangle extends Figure {
     /** 
      * @return Path2D.Double the Shape object representing the object.
      */
+    @Override
     public Path2D.Double getShape2D() {
+        return (Path2D.Double) super.getShape2D();
+    }
+
+    /** 
+     * @return Path2D.Double a new Shape object built from the bounding box.
+     */
+    @Override
+    protected Path2D.Double createShape2D() {
         Path2D.Double triangle = new Path2D.Double();
         triangle.moveTo(getX1() + getWidth()/2, getY1());
         triangle.lineTo(getX1(), getY1() + getHeight());
@@ -22,4 +31,37 @@ public class Triangle extends Figure {
         triangle.closePath();
         return triangle;
     }
+
+    /**
+     * Test whether the interior of a box overlaps the triangle, as the path of the triangle intersects it:
+     * either an edge passes through the box, or the box lies on one side of all edges,
+     * inside if the barycentric coordinates of its center are all positive.
+     * @param x x coordinate of the upper left corner of the box
+     * @param y y coordinate of the upper left corner of the box
+     * @param w the width of the box, positive
+     * @param h the height of the box, positive
+     * @return boolean whether the box intersects the Triangle object.
+     */
+    @Override
+    protected boolean intersects(double x, double y, double w, double h) {
+        double ax = getX1() + getWidth()/2;
+        double ay = getY1();
+        double bx = getX1();
+        double by = getY1() + getHeight();
+        double cx = getX1() + getWidth();
+        double cy = by;
+        if (segmentCrossesBox(ax, ay, bx, by, x, y, w, h) || segmentCrossesBox(bx, by, cx, cy, x, y, w, h)
+                || segmentCrossesBox(cx, cy, ax, ay, x, y, w, h)) {
+            return true;
+        }
+        double px = x + w / 2;
+        double py = y + h / 2;
+        double area = (by - cy) * (ax - cx) + (cx - bx) * (ay - cy);
+        if (area == 0) {
+            return false;
+        }
+        double l1 = ((by - cy) * (px - cx) + (cx - bx) * (py - cy)) / area;
+        double l2 = ((cy - ay) * (px - cx) + (ax - cx) * (py - cy)) / area;
+        return l1 > 0 && l2 > 0 && l1 + l2 < 1;
+    }
 }
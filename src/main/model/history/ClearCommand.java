@@ -0,0 +1,80 @@
+package main.model.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import main.model.FigureSnapshot;
+import main.model.figure.Figure;
+import main.model.figure.FigureRecord;
+
+/**
+ * Record of all Figure objects being cleared.
+ * The cleared list is kept as is, no Figure object is copied.
+ * If the DrawModel object was taking snapshots, the snapshot of the cleared Figure objects is kept too,
+ * so undoing the clear restores their versions in O(1) instead of writing a record for each of them.
+ */
+public class ClearCommand implements Command {
+    static final byte TAG = 6;
+    static final long FIGURE_SIZE = 96; // estimated heap memory of a Figure object
+    static final long RECORD_SIZE = 64; // estimated heap memory of a FigureRecord object in a snapshot
+
+    private final List<Figure> figures;
+    private final FigureSnapshot snapshot; // versions of the cleared Figure objects, null if none
+
+    /**
+     * Construct a ClearCommand object.
+     * @param figures the cleared Figure objects ordered from top to bottom
+     */
+    public ClearCommand(List<Figure> figures) {
+        this(figures, null);
+    }
+
+    /**
+     * Construct a ClearCommand object keeping a snapshot of the cleared Figure objects.
+     * @param figures the cleared Figure objects ordered from top to bottom
+     * @param snapshot a snapshot of the cleared Figure objects taken before the clear, null if none
+     */
+    public ClearCommand(List<Figure> figures, FigureSnapshot snapshot) {
+        this.figures = figures;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public void undo(CommandTarget target) {
+        target.restoreFigures(figures, snapshot);
+    }
+
+    @Override
+    public void redo(CommandTarget target) {
+        target.replaceFigures(new ArrayList<Figure>());
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        long recordSize = snapshot == null ? 0 : RECORD_SIZE + 4;
+        return 40 + figures.size() * (FIGURE_SIZE + 4 + recordSize);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(TAG);
+        out.writeInt(figures.size());
+        for (Figure figure : figures) {
+            FigureRecord.of(figure).write(out);
+        }
+    }
+
+    /** 
+     * @return List<Figure> the cleared Figure objects.
+     */
+    public List<Figure> getFigures() {
+        return figures;
+    }
+}
@@ -0,0 +1,45 @@
+package main.model.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The Command interface is a reversible change to a document of Figure objects.
+ * A Command object only keeps what the change touched, so undoing and redoing it costs the size of the change.
+ * Figure objects are written by id, so a written Command object can be read back against the document.
+ * @see HistoryEntry
+ */
+public interface Command {
+
+    /**
+     * Revert the change.
+     * @param target the document the change was made to
+     */
+    void undo(CommandTarget target);
+
+    /**
+     * Apply the change again after it has been undone.
+     * @param target the document the change was made to
+     */
+    void redo(CommandTarget target);
+
+    /**
+     * Absorb a change that directly follows this one, e.g. successive drag updates of the same Figure object.
+     * @param next the following change
+     * @return boolean whether next has been absorbed and needs not be kept
+     */
+    boolean merge(Command next);
+
+    /**
+     * @return long an estimate of the heap memory held by the Command object, in bytes.
+     */
+    long estimateSize();
+
+    /**
+     * Write the Command object in binary form, starting with its tag.
+     * @param out the output to write to
+     * @throws IOException if the output fails
+     * @see HistorySpill
+     */
+    void write(DataOutput out) throws IOException;
+}
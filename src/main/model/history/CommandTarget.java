@@ -0,0 +1,78 @@
+package main.model.history;
+
+import java.awt.Color;
+import java.util.List;
+
+import main.model.FigureSnapshot;
+import main.model.figure.Figure;
+
+/**
+ * The CommandTarget interface is the set of edits a Command object can apply to a document of Figure objects.
+ * Edits applied through a CommandTarget are not recorded in the history again.
+ * @see Command
+ */
+public interface CommandTarget {
+
+    /**
+     * Add a Figure object on top of all other Figure objects.
+     * @param figure the Figure object to be added
+     */
+    void addFigure(Figure figure);
+
+    /**
+     * Remove a Figure object.
+     * @param figure the Figure object to be removed
+     */
+    void removeFigure(Figure figure);
+
+    /**
+     * Update the bounding box of a Figure object.
+     * @param figure the Figure object to be updated
+     * @param x1 the x coordinate of the upper-left corner of the bounding box
+     * @param y1 the y coordinate of the upper-left corner of the bounding box
+     * @param width the width of the bounding box
+     * @param height the height of the bounding box
+     */
+    void setBound(Figure figure, double x1, double y1, double width, double height);
+
+    /**
+     * Update the color of a Figure object.
+     * @param figure the Figure object to be updated
+     * @param color the new color
+     */
+    void setColor(Figure figure, Color color);
+
+    /**
+     * Update the fill option of a Figure object.
+     * @param figure the Figure object to be updated
+     * @param fill whether the Figure object is filled
+     */
+    void setFill(Figure figure, boolean fill);
+
+    /**
+     * Move a Figure object in the z-order.
+     * @param figure the Figure object to be moved
+     * @param index the index of the Figure object from the top afterwards
+     */
+    void moveFigure(Figure figure, int index);
+
+    /**
+     * Replace all Figure objects.
+     * @param figures the new Figure objects ordered from top to bottom
+     * @return List<Figure> the replaced Figure objects ordered from top to bottom
+     */
+    List<Figure> replaceFigures(List<Figure> figures);
+
+    /**
+     * Replace all Figure objects by ones a snapshot was taken of, so their versions needn't be written again.
+     * @param figures the new Figure objects ordered from top to bottom
+     * @param snapshot a snapshot of the new Figure objects as they are, null if none was taken
+     * @return List<Figure> the replaced Figure objects ordered from top to bottom
+     */
+    List<Figure> restoreFigures(List<Figure> figures, FigureSnapshot snapshot);
+
+    /**
+     * @return List<Figure> all Figure objects ordered from top to bottom.
+     */
+    List<Figure> getFigures();
+}
@@ -0,0 +1,56 @@
+package main.model.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import main.model.figure.Figure;
+
+/**
+ * Record of a Figure object being created on top of the document.
+ */
+public class CreateCommand implements Command {
+    static final byte TAG = 1;
+
+    private final Figure figure;
+
+    /**
+     * Construct a CreateCommand object.
+     * @param figure the created Figure object
+     */
+    public CreateCommand(Figure figure) {
+        this.figure = figure;
+    }
+
+    @Override
+    public void undo(CommandTarget target) {
+        target.removeFigure(figure);
+    }
+
+    @Override
+    public void redo(CommandTarget target) {
+        target.addFigure(figure);
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 16;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(TAG);
+        out.writeLong(figure.getId());
+    }
+
+    /** 
+     * @return Figure the created Figure object.
+     */
+    public Figure getFigure() {
+        return figure;
+    }
+}
@@ -0,0 +1,198 @@
+package main.model.history;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The History class keeps undoable steps as HistoryEntry objects of reversible Command objects.
+ * A step is opened by begin() and records every change until the next begin(), undo() or redo().
+ * Changes made while no step is open are not recorded.
+ * The steps kept in memory are limited by a budget in bytes rather than by count.
+ * When the budget is exceeded the oldest steps spill to a HistorySpill file,
+ * and they are paged back in when undo reaches them, so the history has no fixed depth.
+ * If the file can't be written, the oldest steps are dropped instead.
+ */
+public class History {
+    private ArrayDeque<HistoryEntry> undoStack; // latest step first
+    private ArrayDeque<HistoryEntry> redoStack; // latest undone step first
+    private HistoryEntry openEntry; // the step recording changes, null if none
+    private long openEntrySize; // estimated size of the open step when last accounted
+    private long budget; // bytes of steps kept in memory
+    private long memorySize; // estimated bytes of steps in memory
+    private HistorySpill spill;
+
+    /**
+     * Construct an empty History object.
+     * @param budget the memory budget for steps kept in memory, in bytes
+     */
+    public History(long budget) {
+        this.budget = budget;
+        undoStack = new ArrayDeque<HistoryEntry>();
+        redoStack = new ArrayDeque<HistoryEntry>();
+        spill = new HistorySpill();
+    }
+
+    /**
+     * Open a new step. Spill the oldest steps if the memory budget is exceeded.
+     * Clear redo stack.
+     */
+    public void begin() {
+        for (HistoryEntry entry : redoStack) {
+            memorySize -= entry.estimateSize();
+        }
+        redoStack.clear();
+        openEntry = new HistoryEntry();
+        openEntrySize = openEntry.estimateSize();
+        memorySize += openEntrySize;
+        undoStack.addFirst(openEntry);
+        enforceBudget();
+    }
+
+    /**
+     * Record a change in the open step. Do nothing if no step is open.
+     * @param command the change
+     */
+    public void record(Command command) {
+        if (openEntry != null) {
+            openEntry.record(command);
+            long size = openEntry.estimateSize();
+            if (size != openEntrySize) {
+                memorySize += size - openEntrySize;
+                openEntrySize = size;
+                enforceBudget();
+            }
+        }
+    }
+
+    /**
+     * Revert the latest step and move it to the redo stack.
+     * Page the latest spilled step back in if no step is left in memory.
+     * @param target the document the changes were made to
+     * @throws IndexOutOfBoundsException if there is no step to undo
+     */
+    public void undo(CommandTarget target) throws IndexOutOfBoundsException {
+        if (undoStack.isEmpty() && spill.size() > 0) {
+            pageIn(target);
+        }
+        if (undoStack.isEmpty()) {
+            throw new IndexOutOfBoundsException("undoStack is empty. Can't undo further");
+        }
+        openEntry = null;
+        HistoryEntry entry = undoStack.removeFirst();
+        entry.undo(target);
+        redoStack.addFirst(entry);
+    }
+
+    /**
+     * Apply the latest undone step again and move it back to the undo stack.
+     * @param target the document the changes were made to
+     * @throws IndexOutOfBoundsException if there is no step to redo
+     */
+    public void redo(CommandTarget target) throws IndexOutOfBoundsException {
+        if (redoStack.isEmpty()) {
+            throw new IndexOutOfBoundsException("redoStack is empty. Can't redo further.");
+        }
+        openEntry = null;
+        HistoryEntry entry = redoStack.removeFirst();
+        entry.redo(target);
+        undoStack.addFirst(entry);
+    }
+
+    /**
+     * Update the memory budget and spill steps if it is exceeded.
+     * @param budget the memory budget for steps kept in memory, in bytes
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        enforceBudget();
+    }
+
+    /**
+     * Drop all steps and the spill file.
+     */
+    public void close() {
+        undoStack.clear();
+        redoStack.clear();
+        openEntry = null;
+        memorySize = 0;
+        try {
+            spill.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Spill the oldest steps until the steps in memory fit the budget.
+     * The latest step always stays in memory.
+     */
+    private void enforceBudget() {
+        while (memorySize > budget && undoStack.size() > 1) {
+            HistoryEntry oldest = undoStack.removeLast();
+            memorySize -= oldest.estimateSize();
+            try {
+                spill.push(oldest);
+            } catch (IOException e) {
+                System.out.println("Can't spill history, dropping the oldest step: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Read the latest spilled step back into memory.
+     * @param target the document, in the state right after the spilled step
+     */
+    private void pageIn(CommandTarget target) {
+        try {
+            HistoryEntry entry = spill.pop(target.getFigures());
+            undoStack.addLast(entry);
+            memorySize += entry.estimateSize();
+        } catch (IOException e) {
+            System.out.println("Can't read back spilled history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return List<HistoryEntry> a copy of the steps in memory of the undo stack, latest step first.
+     */
+    public List<HistoryEntry> getUndoStack() {
+        return new ArrayList<HistoryEntry>(undoStack);
+    }
+
+    /**
+     * @return List<HistoryEntry> a copy of the redo stack, latest undone step first.
+     */
+    public List<HistoryEntry> getRedoStack() {
+        return new ArrayList<HistoryEntry>(redoStack);
+    }
+
+    /**
+     * @return int the number of undoable steps, in memory and spilled.
+     */
+    public int getUndoCount() {
+        return undoStack.size() + spill.size();
+    }
+
+    /**
+     * @return int the number of spilled steps.
+     */
+    public int getSpilledCount() {
+        return spill.size();
+    }
+
+    /**
+     * @return long the estimated bytes of steps kept in memory.
+     */
+    public long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * @return boolean whether a step is open for recording.
+     */
+    public boolean isRecording() {
+        return openEntry != null;
+    }
+}
@@ -0,0 +1,75 @@
+package main.model.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The HistoryEntry class is one undoable step: all Command objects recorded since a history save.
+ */
+public class HistoryEntry {
+    private static final long ENTRY_SIZE = 48; // estimated heap memory of an empty step
+
+    private ArrayList<Command> commands;
+    private long size; // estimated heap memory of the step
+
+    /**
+     * Construct an empty HistoryEntry object.
+     */
+    public HistoryEntry() {
+        commands = new ArrayList<Command>();
+        size = ENTRY_SIZE;
+    }
+
+    /**
+     * Add a Command object at the end of the step, merging it into the last one when possible.
+     * @param command the Command object to be added
+     */
+    public void record(Command command) {
+        if (commands.isEmpty() || !commands.get(commands.size() - 1).merge(command)) {
+            commands.add(command);
+            size += command.estimateSize() + 4;
+        }
+    }
+
+    /**
+     * Revert all Command objects, latest first.
+     * @param target the document the changes were made to
+     */
+    public void undo(CommandTarget target) {
+        for (int i = commands.size() - 1; i >= 0; i -= 1) {
+            commands.get(i).undo(target);
+        }
+    }
+
+    /**
+     * Apply all Command objects again, earliest first.
+     * @param target the document the changes were made to
+     */
+    public void redo(CommandTarget target) {
+        for (Command command : commands) {
+            command.redo(target);
+        }
+    }
+
+    /** 
+     * @return List<Command> the Command objects of the step, earliest first.
+     */
+    public List<Command> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    /** 
+     * @return long an estimate of the heap memory held by the step, in bytes.
+     */
+    public long estimateSize() {
+        return size;
+    }
+
+    /** 
+     * @return int the number of Command objects in the step.
+     */
+    public int size() {
+        return commands.size();
+    }
+}
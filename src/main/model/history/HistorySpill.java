@@ -0,0 +1,255 @@
+package main.model.history;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import main.model.figure.Figure;
+import main.model.figure.FigureRecord;
+
+/**
+ * The HistorySpill class keeps the oldest undoable steps of a History object in a temporary file.
+ * Steps are pushed when they are spilled and popped when they are paged back in, so the file is used as a stack.
+ * A step is written as its number of Command objects followed by each Command object in binary form.
+ * Figure objects are written by id and looked up in the document when the step is read back,
+ * when the document is in the state right after the step. Ids of Command objects before a ClearCommand object
+ * are looked up in the Figure objects it brings back instead, as undoing it restores them before those are undone.
+ * The file is created on the first spill and deleted on close or exit.
+ */
+public class HistorySpill implements Closeable {
+    private File path;
+    private RandomAccessFile file;
+    private long[] offsets; // start of each step in the file, oldest first
+    private int count;
+    private long end; // end of the last step
+
+    /**
+     * Construct an empty HistorySpill object.
+     */
+    public HistorySpill() {
+        offsets = new long[16];
+    }
+
+    /**
+     * Write a step on top of the spilled steps.
+     * @param entry a step newer than all spilled steps
+     * @throws IOException if the file can't be created or written
+     */
+    public void push(HistoryEntry entry) throws IOException {
+        if (file == null) {
+            path = File.createTempFile("draw-history", ".bin");
+            path.deleteOnExit();
+            file = new RandomAccessFile(path, "rw");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<Command> commands = entry.getCommands();
+        out.writeInt(commands.size());
+        for (Command command : commands) {
+            command.write(out);
+        }
+        out.flush();
+        file.seek(end);
+        file.write(bytes.toByteArray());
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count] = end;
+        count += 1;
+        end += bytes.size();
+    }
+
+    /**
+     * Read back and remove the newest spilled step.
+     * The step is read twice: first for its ClearCommand objects, then for the other Command objects,
+     * each looked up in the Figure objects of the next ClearCommand object after it, or of the document if none.
+     * Command objects on Figure objects missing from those are skipped with a warning.
+     * @param figures the Figure objects of the document, in the state right after the step
+     * @return HistoryEntry the newest spilled step.
+     * @throws IOException if the file can't be read
+     * @throws IndexOutOfBoundsException if no step is spilled
+     */
+    public HistoryEntry pop(List<Figure> figures) throws IOException, IndexOutOfBoundsException {
+        if (count == 0) {
+            throw new IndexOutOfBoundsException("No spilled history to read back.");
+        }
+        count -= 1;
+        long start = offsets[count];
+        byte[] bytes = new byte[(int) (end - start)];
+        file.seek(start);
+        file.readFully(bytes);
+        file.setLength(start);
+        end = start;
+
+        // first pass: the ClearCommand objects, the others are read without Figure objects and dropped
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int size = in.readInt();
+        ArrayList<Command> clears = new ArrayList<Command>(size); // null for other Command objects
+        HashMap<Long, Figure> none = new HashMap<Long, Figure>();
+        for (int i = 0; i < size; i += 1) {
+            Command command = readCommand(in, none);
+            clears.add(command instanceof ClearCommand ? command : null);
+        }
+
+        // the Figure objects each Command object applies to, walking back from the document after the step
+        ArrayList<HashMap<Long, Figure>> scopes = new ArrayList<HashMap<Long, Figure>>(size);
+        HashMap<Long, Figure> byId = byId(figures);
+        for (int i = size - 1; i >= 0; i -= 1) {
+            scopes.add(byId);
+            if (clears.get(i) != null) {
+                byId = byId(((ClearCommand) clears.get(i)).getFigures());
+            }
+        }
+        Collections.reverse(scopes);
+
+        // second pass: the other Command objects, keeping the ClearCommand objects already read
+        in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.readInt();
+        HistoryEntry entry = new HistoryEntry();
+        int skipped = 0;
+        for (int i = 0; i < size; i += 1) {
+            if (clears.get(i) != null) {
+                skipClear(in);
+                entry.record(clears.get(i));
+                continue;
+            }
+            Command command = readCommand(in, scopes.get(i));
+            if (command != null) {
+                entry.record(command);
+            } else {
+                skipped += 1;
+            }
+        }
+        if (skipped > 0) {
+            System.out.println(String.format("History: skipped %d spilled commands on missing figures.", skipped));
+        }
+        return entry;
+    }
+
+    /**
+     * @return HashMap<Long, Figure> Figure objects by id.
+     */
+    private static HashMap<Long, Figure> byId(List<Figure> figures) {
+        HashMap<Long, Figure> byId = new HashMap<Long, Figure>();
+        for (Figure figure : figures) {
+            byId.put(figure.getId(), figure);
+        }
+        return byId;
+    }
+
+    /**
+     * Skip a ClearCommand object written by ClearCommand#write, without reading its Figure objects.
+     */
+    private static void skipClear(DataInputStream in) throws IOException {
+        in.readByte();
+        long bytes = (long) in.readInt() * FigureRecord.BYTES;
+        while (bytes > 0) {
+            int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                throw new EOFException("Spilled clear is truncated.");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    /**
+     * Remove all spilled steps.
+     * @throws IOException if the file can't be truncated
+     */
+    public void clear() throws IOException {
+        count = 0;
+        end = 0;
+        if (file != null) {
+            file.setLength(0);
+        }
+    }
+
+    /**
+     * Close and delete the file.
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        count = 0;
+        end = 0;
+        if (file != null) {
+            file.close();
+            path.delete();
+            file = null;
+        }
+    }
+
+    /** 
+     * @return int the number of spilled steps.
+     */
+    public int size() {
+        return count;
+    }
+
+    /** 
+     * @return long the number of bytes used in the file.
+     */
+    public long getFileSize() {
+        return end;
+    }
+
+    /**
+     * Read a Command object written by Command#write.
+     * @param in the input to read from
+     * @param byId the Figure objects of the document by id
+     * @return Command the Command object read, null if its Figure object is missing.
+     * @throws IOException if the input fails or holds an unknown tag
+     */
+    private Command readCommand(DataInputStream in, HashMap<Long, Figure> byId) throws IOException {
+        byte tag = in.readByte();
+        if (tag == ClearCommand.TAG) {
+            int size = in.readInt();
+            ArrayList<Figure> cleared = new ArrayList<Figure>(size);
+            for (int i = 0; i < size; i += 1) {
+                cleared.add(FigureRecord.read(in).toFigure());
+            }
+            return new ClearCommand(cleared);
+        }
+        Figure figure = byId.get(in.readLong());
+        Command command;
+        switch (tag) {
+            case CreateCommand.TAG:
+                command = new CreateCommand(figure);
+                break;
+            case ReboundCommand.TAG:
+                command = new ReboundCommand(figure, in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+                break;
+            case ShiftCommand.TAG:
+                command = new ShiftCommand(figure, in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+                break;
+            case RecolorCommand.TAG:
+                command = new RecolorCommand(figure, new Color(in.readInt(), true), new Color(in.readInt(), true));
+                break;
+            case RefillCommand.TAG:
+                command = new RefillCommand(figure, in.readBoolean(), in.readBoolean());
+                break;
+            case RestackCommand.TAG:
+                command = new RestackCommand(figure, in.readInt(), in.readInt());
+                break;
+            default:
+                throw new IOException("Unknown history command tag " + tag);
+        }
+        if (figure == null) {
+            return null;
+        }
+        return command;
+    }
+}
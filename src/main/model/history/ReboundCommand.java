@@ -0,0 +1,109 @@
+package main.model.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import main.model.figure.Figure;
+
+/**
+ * Record of the bounding box of a Figure object being updated.
+ * Successive updates of the same Figure object merge into one record.
+ */
+public class ReboundCommand implements Command {
+    static final byte TAG = 2;
+
+    private final Figure figure;
+    private final double oldX1;
+    private final double oldY1;
+    private final double oldWidth;
+    private final double oldHeight;
+    private double x1;
+    private double y1;
+    private double width;
+    private double height;
+
+    /**
+     * Construct a ReboundCommand object.
+     * @param figure the updated Figure object, already holding its new bounding box
+     * @param oldX1 the x coordinate of the upper-left corner of the previous bounding box
+     * @param oldY1 the y coordinate of the upper-left corner of the previous bounding box
+     * @param oldWidth the width of the previous bounding box
+     * @param oldHeight the height of the previous bounding box
+     */
+    public ReboundCommand(Figure figure, double oldX1, double oldY1, double oldWidth, double oldHeight) {
+        this.figure = figure;
+        this.oldX1 = oldX1;
+        this.oldY1 = oldY1;
+        this.oldWidth = oldWidth;
+        this.oldHeight = oldHeight;
+        this.x1 = figure.getX1();
+        this.y1 = figure.getY1();
+        this.width = figure.getWidth();
+        this.height = figure.getHeight();
+    }
+
+    /**
+     * Construct a ReboundCommand object from both bounding boxes.
+     */
+    ReboundCommand(Figure figure, double oldX1, double oldY1, double oldWidth, double oldHeight,
+            double x1, double y1, double width, double height) {
+        this.figure = figure;
+        this.oldX1 = oldX1;
+        this.oldY1 = oldY1;
+        this.oldWidth = oldWidth;
+        this.oldHeight = oldHeight;
+        this.x1 = x1;
+        this.y1 = y1;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void undo(CommandTarget target) {
+        target.setBound(figure, oldX1, oldY1, oldWidth, oldHeight);
+    }
+
+    @Override
+    public void redo(CommandTarget target) {
+        target.setBound(figure, x1, y1, width, height);
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        if (next instanceof ReboundCommand && ((ReboundCommand) next).figure == figure) {
+            ReboundCommand rebound = (ReboundCommand) next;
+            x1 = rebound.x1;
+            y1 = rebound.y1;
+            width = rebound.width;
+            height = rebound.height;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 88;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(TAG);
+        out.writeLong(figure.getId());
+        out.writeDouble(oldX1);
+        out.writeDouble(oldY1);
+        out.writeDouble(oldWidth);
+        out.writeDouble(oldHeight);
+        out.writeDouble(x1);
+        out.writeDouble(y1);
+        out.writeDouble(width);
+        out.writeDouble(height);
+    }
+
+    /** 
+     * @return Figure the updated Figure object.
+     */
+    public Figure getFigure() {
+        return figure;
+    }
+}
@@ -0,0 +1,77 @@
+package main.model.history;
+
+import java.awt.Color;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import main.model.figure.Figure;
+
+/**
+ * Record of the color of a Figure object being updated.
+ */
+public class RecolorCommand implements Command {
+    static final byte TAG = 4;
+
+    private final Figure figure;
+    private final Color oldColor;
+    private Color color;
+
+    /**
+     * Construct a RecolorCommand object.
+     * @param figure the updated Figure object, already holding its new color
+     * @param oldColor the previous color
+     */
+    public RecolorCommand(Figure figure, Color oldColor) {
+        this.figure = figure;
+        this.oldColor = oldColor;
+        this.color = figure.getColor();
+    }
+
+    /**
+     * Construct a RecolorCommand object from both colors.
+     */
+    RecolorCommand(Figure figure, Color oldColor, Color color) {
+        this.figure = figure;
+        this.oldColor = oldColor;
+        this.color = color;
+    }
+
+    @Override
+    public void undo(CommandTarget target) {
+        target.setColor(figure, oldColor);
+    }
+
+    @Override
+    public void redo(CommandTarget target) {
+        target.setColor(figure, color);
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        if (next instanceof RecolorCommand && ((RecolorCommand) next).figure == figure) {
+            color = ((RecolorCommand) next).color;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 32;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(TAG);
+        out.writeLong(figure.getId());
+        out.writeInt(oldColor.getRGB());
+        out.writeInt(color.getRGB());
+    }
+
+    /** 
+     * @return Figure the updated Figure object.
+     */
+    public Figure getFigure() {
+        return figure;
+    }
+}
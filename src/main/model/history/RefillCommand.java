@@ -0,0 +1,76 @@
+package main.model.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import main.model.figure.Figure;
+
+/**
+ * Record of the fill option of a Figure object being updated.
+ */
+public class RefillCommand implements Command {
+    static final byte TAG = 5;
+
+    private final Figure figure;
+    private final boolean oldFill;
+    private boolean fill;
+
+    /**
+     * Construct a RefillCommand object.
+     * @param figure the updated Figure object, already holding its new fill option
+     * @param oldFill the previous fill option
+     */
+    public RefillCommand(Figure figure, boolean oldFill) {
+        this.figure = figure;
+        this.oldFill = oldFill;
+        this.fill = figure.getFill();
+    }
+
+    /**
+     * Construct a RefillCommand object from both fill options.
+     */
+    RefillCommand(Figure figure, boolean oldFill, boolean fill) {
+        this.figure = figure;
+        this.oldFill = oldFill;
+        this.fill = fill;
+    }
+
+    @Override
+    public void undo(CommandTarget target) {
+        target.setFill(figure, oldFill);
+    }
+
+    @Override
+    public void redo(CommandTarget target) {
+        target.setFill(figure, fill);
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        if (next instanceof RefillCommand && ((RefillCommand) next).figure == figure) {
+            fill = ((RefillCommand) next).fill;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 24;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(TAG);
+        out.writeLong(figure.getId());
+        out.writeBoolean(oldFill);
+        out.writeBoolean(fill);
+    }
+
+    /** 
+     * @return Figure the updated Figure object.
+     */
+    public Figure getFigure() {
+        return figure;
+    }
+}
@@ -0,0 +1,69 @@
+package main.model.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import main.model.figure.Figure;
+
+/**
+ * Record of a Figure object being moved in the z-order, e.g. brought to the front or sent to the back.
+ * Successive moves of the same Figure object merge into one record.
+ */
+public class RestackCommand implements Command {
+    static final byte TAG = 7;
+
+    private final Figure figure;
+    private final int oldIndex;
+    private int index;
+
+    /**
+     * Construct a RestackCommand object.
+     * @param figure the moved Figure object
+     * @param oldIndex the index of the Figure object from the top before the move
+     * @param index the index of the Figure object from the top after the move
+     */
+    public RestackCommand(Figure figure, int oldIndex, int index) {
+        this.figure = figure;
+        this.oldIndex = oldIndex;
+        this.index = index;
+    }
+
+    @Override
+    public void undo(CommandTarget target) {
+        target.moveFigure(figure, oldIndex);
+    }
+
+    @Override
+    public void redo(CommandTarget target) {
+        target.moveFigure(figure, index);
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        if (next instanceof RestackCommand && ((RestackCommand) next).figure == figure) {
+            index = ((RestackCommand) next).index;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 24;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(TAG);
+        out.writeLong(figure.getId());
+        out.writeInt(oldIndex);
+        out.writeInt(index);
+    }
+
+    /** 
+     * @return Figure the moved Figure object.
+     */
+    public Figure getFigure() {
+        return figure;
+    }
+}
@@ -0,0 +1,88 @@
+package main.model.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import main.model.figure.Figure;
+
+/**
+ * Record of a Figure object being shifted.
+ * The anchor points before and after are kept rather than the deltas, so undoing doesn't accumulate rounding errors.
+ * Successive shifts of the same Figure object merge into one record.
+ */
+public class ShiftCommand implements Command {
+    static final byte TAG = 3;
+
+    private final Figure figure;
+    private final double oldX1;
+    private final double oldY1;
+    private double x1;
+    private double y1;
+
+    /**
+     * Construct a ShiftCommand object.
+     * @param figure the shifted Figure object, already at its new position
+     * @param oldX1 the x coordinate of the anchor point before the shift
+     * @param oldY1 the y coordinate of the anchor point before the shift
+     */
+    public ShiftCommand(Figure figure, double oldX1, double oldY1) {
+        this.figure = figure;
+        this.oldX1 = oldX1;
+        this.oldY1 = oldY1;
+        this.x1 = figure.getX1();
+        this.y1 = figure.getY1();
+    }
+
+    /**
+     * Construct a ShiftCommand object from both anchor points.
+     */
+    ShiftCommand(Figure figure, double oldX1, double oldY1, double x1, double y1) {
+        this.figure = figure;
+        this.oldX1 = oldX1;
+        this.oldY1 = oldY1;
+        this.x1 = x1;
+        this.y1 = y1;
+    }
+
+    @Override
+    public void undo(CommandTarget target) {
+        target.setBound(figure, oldX1, oldY1, figure.getWidth(), figure.getHeight());
+    }
+
+    @Override
+    public void redo(CommandTarget target) {
+        target.setBound(figure, x1, y1, figure.getWidth(), figure.getHeight());
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        if (next instanceof ShiftCommand && ((ShiftCommand) next).figure == figure) {
+            x1 = ((ShiftCommand) next).x1;
+            y1 = ((ShiftCommand) next).y1;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 56;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(TAG);
+        out.writeLong(figure.getId());
+        out.writeDouble(oldX1);
+        out.writeDouble(oldY1);
+        out.writeDouble(x1);
+        out.writeDouble(y1);
+    }
+
+    /** 
+     * @return Figure the shifted Figure object.
+     */
+    public Figure getFigure() {
+        return figure;
+    }
+}
@@ -0,0 +1,165 @@
+package main.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import main.model.FigureSnapshot;
+import main.model.figure.Figure;
+import main.model.figure.FigureRecord;
+import main.model.figure.OffHeapFigureStore;
+
+/**
+ * The DrawingFile class saves and opens documents in a compact, versioned binary format.
+ * A file is a header followed by one fixed-size record per Figure object, most recently created first:
+ * <pre>
+ * int   magic        "DRAW"
+ * short version      VERSION
+ * short recordBytes  size of each record, at least FigureRecord.BYTES
+ * long  count        number of records
+ * int   headerBytes  size of the header, HEADER_BYTES (since version 2, version 1 headers end after count)
+ * int   reserved     0
+ * long  maxId        the greatest id of the records, 0 if there are none (since version 2)
+ * </pre>
+ * Each record is the binary form of a FigureRecord object: id, type tag, x1, y1, width, height as doubles,
+ * ARGB color and fill. Later versions may only add fields after these, to the header or to the records,
+ * so readers open them too, skipping the bytes they don't know.
+ * Because records have a fixed size, opened files are memory-mapped and records are read on access,
+ * so opening costs the pages actually touched rather than the size of the document.
+ * openStore opens a file as the storage of a DrawModel object in the same way, see DrawModel#DrawModel(FigureStorage).
+ */
+public final class DrawingFile {
+    public static final int MAGIC = 0x44524157; // "DRAW"
+    public static final short VERSION = 2;
+    public static final int HEADER_BYTES = 32;
+    static final int VERSION_1_HEADER_BYTES = 16;
+    static final int MAX_RECORD_BYTES = 4096; // larger records are taken for corruption
+    private static final int BUFFER_BYTES = 64 * 1024; // records buffered per write while saving
+
+    private DrawingFile() {
+    }
+
+    /**
+     * Writes the record at an index into a buffer.
+     */
+    private interface RecordSource {
+        void write(int i, ByteBuffer out);
+    }
+
+    /**
+     * Save Figure objects to a file, replacing it once the whole document is written.
+     * Records are encoded straight from the Figure objects into one reused buffer.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param path the file to write
+     * @throws IOException if the file can't be written
+     */
+    public static void save(List<? extends Figure> figures, Path path) throws IOException {
+        save(path, figures.size(), new RecordSource() {
+            public void write(int i, ByteBuffer out) {
+                FigureRecord.write(figures.get(i), out);
+            }
+        });
+    }
+
+    /**
+     * Save a FigureSnapshot object to a file, e.g. from a background thread while editing continues.
+     * @param snapshot the state to save
+     * @param path the file to write
+     * @throws IOException if the file can't be written
+     */
+    public static void save(FigureSnapshot snapshot, Path path) throws IOException {
+        save(path, snapshot.size(), new RecordSource() {
+            public void write(int i, ByteBuffer out) {
+                snapshot.get(i).write(out);
+            }
+        });
+    }
+
+    /**
+     * Save the records of an OffHeapFigureStore object to a file. Records are copied as they are, without decoding them.
+     * @param store the records to save
+     * @param path the file to write
+     * @throws IOException if the file can't be written
+     */
+    public static void save(OffHeapFigureStore store, Path path) throws IOException {
+        save(path, store.size(), new RecordSource() {
+            public void write(int i, ByteBuffer out) {
+                store.copyRecord(i, out);
+            }
+        });
+    }
+
+    /**
+     * Open a file for reading. Nothing but the header is read until records are accessed.
+     * @param path the file to open
+     * @return MappedDrawing the records of the file, most recently created first.
+     * @throws IOException if the file can't be read or isn't a supported document
+     */
+    public static MappedDrawing open(Path path) throws IOException {
+        return new MappedDrawing(path);
+    }
+
+    /**
+     * Open a file as an OffHeapFigureStore object, e.g. to edit it with new DrawModel(DrawingFile.openStore(path)).
+     * Like open, nothing but the header is read: records are read in place, and copied to memory a region at a time
+     * when first changed. The file itself is never written. Ids of new Figure objects are made greater than
+     * the ids in the file, which scans them for files of version 1.
+     * @param path the file to open
+     * @return OffHeapFigureStore the records of the file, most recently created first.
+     * @throws IOException if the file can't be read or isn't a supported document
+     */
+    public static OffHeapFigureStore openStore(Path path) throws IOException {
+        try (MappedDrawing drawing = new MappedDrawing(path)) {
+            Figure.reserveIds(drawing.getMaxId());
+            return drawing.toStore();
+        }
+    }
+
+    private static void save(Path path, int count, RecordSource source) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.putShort((short) FigureRecord.BYTES);
+            buffer.putLong(count);
+            buffer.putInt(HEADER_BYTES);
+            buffer.putInt(0);
+            buffer.putLong(0); // maxId, written once the records are
+            long maxId = 0;
+            for (int i = 0; i < count; i += 1) {
+                if (buffer.remaining() < FigureRecord.BYTES) {
+                    drain(buffer, channel);
+                }
+                int position = buffer.position();
+                source.write(i, buffer);
+                maxId = Math.max(maxId, buffer.getLong(position));
+            }
+            drain(buffer, channel);
+            buffer.putLong(maxId);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, HEADER_BYTES - Long.BYTES + buffer.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
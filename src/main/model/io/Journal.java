@@ -0,0 +1,616 @@
+package main.model.io;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import main.model.FigureSnapshot;
+import main.model.figure.Figure;
+import main.model.figure.FigureRecord;
+
+/**
+ * The Journal class is a write-ahead log of the changes made to a DrawModel object, so a crash loses nothing.
+ * A journal is a directory of generations. Generation g is a DrawingFile snapshot-g.draw, absent for the first
+ * generation, and a segment journal-g.log of the changes made after it. Changes are recorded by Figure id,
+ * each as a length, a body and a CRC32 of the body, so a torn last record is detected and ignored on recovery.
+ * Records are encoded on the editing thread and queued. A writer thread writes everything queued at once
+ * and forces it to disk, so one disk flush commits all the changes made while the previous one was running.
+ * A checkpoint starts a new generation from a FigureSnapshot object, which a compactor thread saves as
+ * a DrawingFile before deleting the older generations.
+ * @see main.model.DrawModel#setJournal(Journal)
+ */
+public class Journal implements Closeable {
+    public static final int MAGIC = 0x444a4e4c; // "DJNL"
+    public static final short VERSION = 1;
+    private static final int HEADER_BYTES = 6;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte BOUND = 3;
+    private static final byte COLOR = 4;
+    private static final byte FILL = 5;
+    private static final byte REPLACE = 6;
+    private static final byte MOVE = 7;
+
+    private Path directory;
+    private volatile int generation; // generation of the segment being written
+    private long checkpointBytes; // bytes appended after which a checkpoint is due
+    private long segmentBytes; // bytes appended to the current generation
+    private volatile boolean compacting; // whether a checkpoint is being saved
+
+    private ByteArrayOutputStream record; // the record being encoded, reused between records
+    private DataOutputStream recordOut;
+    private CRC32 crc;
+
+    private final Object lock = new Object(); // guards the fields below, shared with the writer thread
+    private ArrayList<Object> queue; // encoded records as byte[] and checkpoints as FigureSnapshot, oldest first
+    private long queuedCount; // records and checkpoints queued since opening
+    private long durableCount; // records and checkpoints on disk
+    private IOException failure; // the first write failure, reported by flush
+    private boolean closing;
+
+    private FileChannel segment; // written by the writer thread only
+    private Thread writer;
+    private ExecutorService compactor;
+
+    private Journal(Path directory, int generation, long checkpointBytes) throws IOException {
+        this.directory = directory;
+        this.generation = generation;
+        this.checkpointBytes = checkpointBytes;
+        record = new ByteArrayOutputStream(64);
+        recordOut = new DataOutputStream(record);
+        crc = new CRC32();
+        queue = new ArrayList<Object>();
+        segment = openSegment(generation);
+        compactor = Executors.newSingleThreadExecutor();
+        writer = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, "journal writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /**
+     * Open a journal directory for appending. Appending starts a new generation after the existing ones,
+     * so a torn segment of a crashed run is never written to again.
+     * @param directory the journal directory, created if missing
+     * @param checkpointBytes bytes of changes after which needsCheckpoint() becomes true
+     * @return Journal the open journal.
+     * @throws IOException if the directory can't be read or the segment can't be created
+     */
+    public static Journal open(Path directory, long checkpointBytes) throws IOException {
+        Files.createDirectories(directory);
+        int last = 0;
+        for (int g : generations(directory, "journal-", ".log")) {
+            last = Math.max(last, g);
+        }
+        for (int g : generations(directory, "snapshot-", ".draw")) {
+            last = Math.max(last, g);
+        }
+        return new Journal(directory, last + 1, checkpointBytes);
+    }
+
+
+    /**
+     * Rebuild the state recorded in a journal directory: the latest snapshot, then every later segment replayed.
+     * Records after a torn or corrupt one in a segment are ignored, as are changes on unknown Figure objects.
+     * @param directory the journal directory
+     * @return ArrayList<Figure> the Figure objects ordered from top to bottom, with their recorded ids.
+     * @throws IOException if a file can't be read
+     */
+    public static ArrayList<Figure> recover(Path directory) throws IOException {
+        LinkedHashMap<Long, Figure> figures = new LinkedHashMap<Long, Figure>(); // bottom to top
+        int base = 0;
+        if (Files.isDirectory(directory)) {
+            TreeSet<Integer> snapshots = generations(directory, "snapshot-", ".draw");
+            if (!snapshots.isEmpty()) {
+                base = snapshots.last();
+                try (MappedDrawing drawing = DrawingFile.open(directory.resolve("snapshot-" + base + ".draw"))) {
+                    for (int i = drawing.size() - 1; i >= 0; i -= 1) {
+                        Figure figure = drawing.get(i).toFigure();
+                        figures.put(figure.getId(), figure);
+                    }
+                }
+            }
+            for (int g : generations(directory, "journal-", ".log").tailSet(base)) {
+                replay(directory.resolve("journal-" + g + ".log"), figures);
+            }
+        }
+        ArrayList<Figure> topFirst = new ArrayList<Figure>(figures.values());
+        Collections.reverse(topFirst);
+        return topFirst;
+    }
+
+
+    /**
+     * Record a Figure object added on top of all others.
+     * @param figure the added Figure object
+     */
+    public void added(Figure figure) {
+        begin(ADD);
+        writeRecord(figure);
+        end();
+    }
+
+    /**
+     * Record a removed Figure object.
+     * @param figure the removed Figure object
+     */
+    public void removed(Figure figure) {
+        begin(REMOVE);
+        writeLong(figure.getId());
+        end();
+    }
+
+    /**
+     * Record the bounding box of a Figure object, after an update or a shift.
+     * @param figure the updated Figure object
+     */
+    public void boundChanged(Figure figure) {
+        begin(BOUND);
+        writeLong(figure.getId());
+        writeDouble(figure.getX1());
+        writeDouble(figure.getY1());
+        writeDouble(figure.getWidth());
+        writeDouble(figure.getHeight());
+        end();
+    }
+
+    /**
+     * Record the color of a Figure object.
+     * @param figure the updated Figure object
+     */
+    public void colorChanged(Figure figure) {
+        begin(COLOR);
+        writeLong(figure.getId());
+        writeInt(figure.getColor().getRGB());
+        end();
+    }
+
+    /**
+     * Record the fill option of a Figure object.
+     * @param figure the updated Figure object
+     */
+    public void fillChanged(Figure figure) {
+        begin(FILL);
+        writeLong(figure.getId());
+        writeInt(figure.getFill() ? 1 : 0);
+        end();
+    }
+
+    /**
+     * Record a Figure object moved in the z-order.
+     * @param figure the moved Figure object
+     * @param index the index of the Figure object from the top afterwards
+     */
+    public void moved(Figure figure, int index) {
+        begin(MOVE);
+        writeLong(figure.getId());
+        writeInt(index);
+        end();
+    }
+
+    /**
+     * Record all Figure objects being replaced, e.g. cleared.
+     * @param figures the new Figure objects ordered from top to bottom
+     */
+    public void replaced(List<Figure> figures) {
+        begin(REPLACE);
+        writeInt(figures.size());
+        for (Figure figure : figures) {
+            writeRecord(figure);
+        }
+        end();
+    }
+
+
+    /**
+     * @return boolean whether enough changes were appended since the last checkpoint to compact the journal.
+     */
+    public boolean needsCheckpoint() {
+        return segmentBytes >= checkpointBytes && !compacting;
+    }
+
+
+    /**
+     * Start a new generation from the current state. The snapshot is saved and older generations deleted
+     * in the background; changes recorded from now on go to the new generation.
+     * @param snapshot the state after all changes recorded so far
+     */
+    public void checkpoint(FigureSnapshot snapshot) {
+        compacting = true;
+        segmentBytes = 0;
+        enqueue(snapshot);
+    }
+
+
+    /**
+     * Wait until all changes recorded so far are on disk.
+     * @throws IOException if the journal failed to write them
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = queuedCount;
+            while (durableCount < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while flushing the journal.");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+
+    /**
+     * Write all recorded changes, wait for a running checkpoint and close the files.
+     * @throws IOException if the journal failed to write
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closing = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+
+    /**
+     * @return int the generation changes are recorded to.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+
+    /**
+     * Start encoding a record.
+     * @param type the type of the record
+     */
+    private void begin(byte type) {
+        record.reset();
+        writeInt(0); // room for the length, filled in by end()
+        record.write(type);
+    }
+
+    /**
+     * Frame the encoded record with its length and checksum, and queue it for the writer thread.
+     */
+
+    private void end() {
+        byte[] bytes = record.toByteArray();
+        int length = bytes.length - 4;
+        bytes[0] = (byte) (length >>> 24);
+        bytes[1] = (byte) (length >>> 16);
+        bytes[2] = (byte) (length >>> 8);
+        bytes[3] = (byte) length;
+        crc.reset();
+        crc.update(bytes, 4, length);
+        byte[] framed = Arrays.copyOf(bytes, bytes.length + 4);
+        int sum = (int) crc.getValue();
+        framed[bytes.length] = (byte) (sum >>> 24);
+        framed[bytes.length + 1] = (byte) (sum >>> 16);
+        framed[bytes.length + 2] = (byte) (sum >>> 8);
+        framed[bytes.length + 3] = (byte) sum;
+        segmentBytes += framed.length;
+        enqueue(framed);
+    }
+
+    private void writeRecord(Figure figure) {
+        try {
+            FigureRecord.of(figure).write(recordOut);
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't fail
+        }
+    }
+
+    private void writeInt(int value) {
+        try {
+            recordOut.writeInt(value);
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't fail
+        }
+    }
+
+    private void writeLong(long value) {
+        try {
+            recordOut.writeLong(value);
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't fail
+        }
+    }
+
+    private void writeDouble(double value) {
+        try {
+            recordOut.writeDouble(value);
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't fail
+        }
+    }
+
+    private void enqueue(Object item) {
+        synchronized (lock) {
+            queue.add(item);
+            queuedCount += 1;
+            lock.notifyAll();
+        }
+    }
+
+
+    /**
+     * Write queued items until closed, one disk flush per batch.
+     */
+    private void writeLoop() {
+        while (true) {
+            ArrayList<Object> batch;
+            synchronized (lock) {
+                while (queue.isEmpty() && !closing) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closing = true;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    closeSegment();
+                    return;
+                }
+                batch = queue;
+                queue = new ArrayList<Object>();
+            }
+            IOException error = null;
+            try {
+                writeBatch(batch);
+            } catch (IOException e) {
+                error = e;
+                System.out.println("Can't write the journal: " + e.getMessage());
+            }
+            synchronized (lock) {
+                durableCount += batch.size();
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void writeBatch(ArrayList<Object> batch) throws IOException {
+        ArrayList<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        for (Object item : batch) {
+            if (item instanceof byte[]) {
+                buffers.add(ByteBuffer.wrap((byte[]) item));
+            } else {
+                writeAll(buffers);
+                buffers.clear();
+                startGeneration((FigureSnapshot) item);
+            }
+        }
+        writeAll(buffers);
+        segment.force(false);
+    }
+
+    private void writeAll(ArrayList<ByteBuffer> buffers) throws IOException {
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        for (ByteBuffer buffer : array) {
+            while (buffer.hasRemaining()) {
+                segment.write(array);
+            }
+        }
+    }
+
+    /**
+     * Close the current segment, open the next generation and save the snapshot it starts from in the background.
+     * @param snapshot the state at the end of the current segment
+     * @throws IOException if the segment can't be closed or the next one created
+     */
+    private void startGeneration(FigureSnapshot snapshot) throws IOException {
+        segment.force(false);
+        segment.close();
+        int next = generation + 1;
+        segment = openSegment(next);
+        generation = next;
+        compactor.execute(new Runnable() {
+            public void run() {
+                compact(snapshot, next);
+            }
+        });
+    }
+
+    /**
+     * Save the snapshot a generation starts from, then delete the older generations it replaces.
+     * @param snapshot the state at the start of the generation
+     * @param g the generation
+     */
+    private void compact(FigureSnapshot snapshot, int g) {
+        try {
+            DrawingFile.save(snapshot, directory.resolve("snapshot-" + g + ".draw"));
+            for (int old : generations(directory, "snapshot-", ".draw").headSet(g)) {
+                Files.deleteIfExists(directory.resolve("snapshot-" + old + ".draw"));
+            }
+            for (int old : generations(directory, "journal-", ".log").headSet(g)) {
+                Files.deleteIfExists(directory.resolve("journal-" + old + ".log"));
+            }
+        } catch (IOException e) {
+            System.out.println("Can't compact the journal: " + e.getMessage());
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private FileChannel openSegment(int g) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve("journal-" + g + ".log"),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return channel;
+    }
+
+    private void closeSegment() {
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            System.out.println("Can't close the journal: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Apply the records of a segment to Figure objects by id.
+     * @param path the segment
+     * @param figures the Figure objects by id, ordered from bottom to top
+     * @throws IOException if the segment can't be read
+     */
+    private static void replay(Path path, LinkedHashMap<Long, Figure> figures) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC || in.getShort() > VERSION) {
+            System.out.println("Skipping unreadable journal segment " + path);
+            return;
+        }
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= 4) {
+            int length = in.getInt();
+            if (length <= 0 || in.remaining() < length + 4) {
+                return; // torn record at the end of a crashed run
+            }
+            int start = in.position();
+            crc.reset();
+            crc.update(in.array(), start, length);
+            if (in.getInt(start + length) != (int) crc.getValue()) {
+                return;
+            }
+            try {
+                apply(in, start, figures);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipping journal record: " + e.getMessage());
+            }
+            in.position(start + length + 4);
+        }
+    }
+
+    private static void apply(ByteBuffer in, int start, LinkedHashMap<Long, Figure> figures) throws IOException {
+        byte type = in.get(start);
+        int offset = start + 1;
+        if (type == ADD) {
+            Figure figure = FigureRecord.read(in, offset).toFigure();
+            figures.remove(figure.getId());
+            figures.put(figure.getId(), figure);
+        } else if (type == REPLACE) {
+            int count = in.getInt(offset);
+            ArrayList<Figure> topFirst = new ArrayList<Figure>(count);
+            for (int i = 0; i < count; i += 1) {
+                topFirst.add(FigureRecord.read(in, offset + 4 + i * FigureRecord.BYTES).toFigure());
+            }
+            figures.clear();
+            for (int i = count - 1; i >= 0; i -= 1) {
+                figures.put(topFirst.get(i).getId(), topFirst.get(i));
+            }
+        } else {
+            long id = in.getLong(offset);
+            Figure figure = figures.get(id);
+            if (figure == null) {
+                return;
+            }
+            offset += 8;
+            if (type == REMOVE) {
+                figures.remove(id);
+            } else if (type == BOUND) {
+                figure.updateBound(in.getDouble(offset), in.getDouble(offset + 8), in.getDouble(offset + 16), in.getDouble(offset + 24));
+            } else if (type == COLOR) {
+                figure.updateColor(new Color(in.getInt(offset), true));
+            } else if (type == FILL) {
+                figure.updateFill(in.getInt(offset) != 0);
+            } else if (type == MOVE) {
+                move(figures, figure, in.getInt(offset));
+            }
+        }
+    }
+
+
+    /**
+     * Move a Figure object to an index from the top. Moving it to the top is O(1), anywhere else O(n).
+     * @param figures the Figure objects by id, ordered from bottom to top
+     * @param figure the Figure object to move
+     * @param index the index of the Figure object from the top afterwards
+     */
+    private static void move(LinkedHashMap<Long, Figure> figures, Figure figure, int index) {
+        figures.remove(figure.getId());
+        if (index <= 0) {
+            figures.put(figure.getId(), figure);
+            return;
+        }
+        ArrayList<Figure> bottomFirst = new ArrayList<Figure>(figures.values());
+        bottomFirst.add(Math.max(0, bottomFirst.size() - index), figure);
+        figures.clear();
+        for (Figure f : bottomFirst) {
+            figures.put(f.getId(), f);
+        }
+    }
+
+
+    /**
+     * @param directory the journal directory
+     * @param prefix the file name before the generation
+     * @param suffix the file name after the generation
+     * @return TreeSet<Integer> the generations of the files with the prefix and suffix.
+     * @throws IOException if the directory can't be read
+     */
+    private static TreeSet<Integer> generations(Path directory, String prefix, String suffix) throws IOException {
+        TreeSet<Integer> generations = new TreeSet<Integer>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                String name = iterator.next().getFileName().toString();
+                try {
+                    generations.add(Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // not a journal file
+                }
+            }
+        }
+        return generations;
+    }
+}
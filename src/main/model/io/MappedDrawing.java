@@ -0,0 +1,150 @@
+package main.model.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+
+import main.model.figure.FigureRecord;
+import main.model.figure.OffHeapFigureStore;
+
+/**
+ * The MappedDrawing class is the read-only list of records of a DrawingFile, most recently created first.
+ * The file is memory-mapped in chunks and a FigureRecord object is decoded each time a record is accessed,
+ * so only the pages of accessed records are read from disk. It can be read from any thread.
+ * The mapping stays valid after close until it is garbage collected.
+ * Regions are mapped by size in bytes, so records of any accepted size fit them.
+ * @see DrawingFile
+ */
+public class MappedDrawing extends AbstractList<FigureRecord> implements Closeable {
+    private static final int CHUNK_BYTES = 1 << 24; // bytes per mapped region at most, regions are limited to 2 GB
+
+    private FileChannel channel;
+    private MappedByteBuffer[] chunks; // mapped regions of recordsPerChunk records
+    private int recordsPerChunk;
+    private int count;
+    private int recordBytes;
+    private long maxId; // the greatest id of the records, -1 until scanned for files of version 1
+
+    /**
+     * Open a file and read its header.
+     * Files of later versions are opened as long as their records start with the fields of FigureRecord.
+     * @param path the file to open
+     * @throws IOException if the file can't be read or isn't a supported document
+     */
+    MappedDrawing(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(DrawingFile.HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < DrawingFile.VERSION_1_HEADER_BYTES || header.getInt() != DrawingFile.MAGIC) {
+                throw new IOException(path + " is not a drawing file.");
+            }
+            short version = header.getShort();
+            if (version < 1) {
+                throw new IOException(String.format("Drawing file version %d is not supported.", version));
+            }
+            recordBytes = header.getShort();
+            long records = header.getLong();
+            int headerBytes = DrawingFile.VERSION_1_HEADER_BYTES;
+            maxId = -1;
+            if (version >= 2) {
+                if (header.remaining() < DrawingFile.HEADER_BYTES - DrawingFile.VERSION_1_HEADER_BYTES) {
+                    throw new IOException(path + " is truncated or corrupt.");
+                }
+                headerBytes = header.getInt();
+                header.getInt();
+                maxId = header.getLong();
+            }
+            if (recordBytes < FigureRecord.BYTES || recordBytes > DrawingFile.MAX_RECORD_BYTES
+                    || headerBytes < header.position() || records < 0 || records > Integer.MAX_VALUE
+                    || channel.size() < headerBytes + records * recordBytes) {
+                throw new IOException(path + " is truncated or corrupt.");
+            }
+            count = (int) records;
+            recordsPerChunk = CHUNK_BYTES / recordBytes;
+            chunks = new MappedByteBuffer[(count + recordsPerChunk - 1) / recordsPerChunk];
+            for (int c = 0; c < chunks.length; c += 1) {
+                // mapping reads nothing, pages are read when records in them are accessed
+                long first = (long) c * recordsPerChunk;
+                long size = Math.min(recordsPerChunk, count - first) * recordBytes;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, headerBytes + first * recordBytes, size);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param i the index from the top
+     * @return FigureRecord the record at index i.
+     * @throws IndexOutOfBoundsException if i is out of range
+     * @throws UncheckedIOException if the record can't be read
+     */
+    @Override
+    public FigureRecord get(int i) throws IndexOutOfBoundsException, UncheckedIOException {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of range for size %d.", i, count));
+        }
+        try {
+            return FigureRecord.read(chunks[i / recordsPerChunk], (i % recordsPerChunk) * recordBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return int the number of records.
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return long the greatest id of the records, 0 if there are none. Files of version 1 are scanned the first time.
+     */
+    public long getMaxId() {
+        if (maxId < 0) {
+            long max = 0;
+            for (int i = 0; i < count; i += 1) {
+                max = Math.max(max, chunks[i / recordsPerChunk].getLong((i % recordsPerChunk) * recordBytes));
+            }
+            maxId = max;
+        }
+        return maxId;
+    }
+
+    /**
+     * Create an OffHeapFigureStore object starting from the mapped records, which reads them in place.
+     * @return OffHeapFigureStore the new OffHeapFigureStore object.
+     * @see DrawingFile#openStore(Path)
+     */
+    OffHeapFigureStore toStore() {
+        ByteBuffer[] records = new ByteBuffer[chunks.length];
+        for (int c = 0; c < chunks.length; c += 1) {
+            records[c] = chunks[c].duplicate();
+        }
+        return OffHeapFigureStore.of(records, recordsPerChunk, recordBytes, count);
+    }
+
+    /**
+     * Close the file. Records already mapped stay readable.
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,26 +1,91 @@
 package main.view;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
 import java.awt.Graphics2D;
 import java.awt.Graphics;
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Rectangle;
 
+import javax.swing.AbstractAction;
 import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.MouseInputAdapter;
 
 import main.controller.DrawController;
+import main.metrics.Metrics;
 import main.model.figure.Figure;
 
 /**
  * The CanvasPanel component render Figure objects and listens for MouseEvent on the canvas.
+ * Figure objects are painted by a FigureRenderer object, which can also render them without Swing.
+ * The canvas shows the model through a viewport: the mouse wheel zooms around the cursor
+ * and dragging with a button other than the left one pans. Mouse positions are mapped back
+ * to model coordinates before they reach the controller.
+ * Only Figure objects whose stroked bounds intersect the visible part of the clip are rendered,
+ * so repainting a damaged region costs the Figure objects within it.
+ * In retained mode, while a Figure object is dragged, all other Figure objects are rendered once
+ * into a layer under it and a layer over it, and each drag only draws the layers and the dragged Figure object.
+ * In tiled mode, the canvas is otherwise painted from a TileCache of 256x256 tiles,
+ * and only the tiles overlapping a reported damage are rendered again.
+ * Tiles are laid out in zoomed model space, so panning reuses them and only zooming drops them.
+ * The least recently painted tiles are dropped beyond TILE_MEMORY bytes of images.
+ * F3 toggles a PerformanceHud over the canvas, refreshed HUD_REFRESH times a second while it is shown.
+ * Each frame counts the Figure objects drawn and culled in the visible part of its clip once, whether it is painted
+ * from layers, tiles or directly. Repaints asked for by the HUD alone aren't recorded as frames.
+ * Figure objects up to POINT_SIZE device pixels are painted as a point and up to BOX_SIZE as a box,
+ * see FigureRenderer#setLevelOfDetail, so zooming far out doesn't stroke thousands of specks.
  */
 public class CanvasPanel extends JPanel {
 
     DrawController controller;
     BasicStroke stroke;
+    private FigureRenderer renderer; // paints Figure objects, shared with headless exports
     private Color BACKGROUND_COLOR = Color.white;
+    private static final int TILE_SIZE = 256;
+    private static final long TILE_MEMORY = 64L << 20; // bytes of tile images kept, a few 4K screens worth
+    private static final double MIN_ZOOM = 0.1;
+    private static final double MAX_ZOOM = 16;
+    private static final double ZOOM_STEP = 1.1; // zoom factor per wheel notch
+    private static final int HUD_REFRESH = 4; // refreshes of the performance HUD per second
+    private static final double POINT_SIZE = 2; // device pixels up to which a Figure object is painted as a point
+    private static final double BOX_SIZE = 6; // device pixels up to which a Figure object is painted as a box
+
+    private boolean retainedMode; // whether to cache the other Figure objects while dragging
+    private boolean dragging; // whether the left mouse button is down on the canvas
+    private BufferedImage belowLayer; // Figure objects under the active one, on the background
+    private BufferedImage aboveLayer; // Figure objects over the active one, null if there are none
+    private Figure layerFigure; // the active Figure object the layers were rendered around, null if no layers
+    private double layerScaleX; // device scale the layers were rendered at
+    private double layerScaleY;
+
+    private boolean tiledMode; // whether to paint from the tile cache
+    private TileCache tileCache;
+
+    private double zoom; // component pixels per model unit
+    private int offsetX; // component position of the model origin, whole pixels so panning keeps tiles aligned
+    private int offsetY;
+    private boolean panning; // whether the canvas is being panned
+    private int panX; // last mouse position while panning
+    private int panY;
+
+    private PerformanceHud hud;
+    private Timer hudTimer; // refreshes the HUD while it is shown
+    private boolean refreshingHud; // whether the repaint being asked for only refreshes the HUD
+    private boolean hudRefreshPending; // whether a refresh of the HUD is waiting for the next paint
+    private boolean canvasRepaintPending; // whether any other repaint is waiting for the next paint
 
     /**
      * Construct the CanvasPanel object.
@@ -29,45 +94,467 @@ public class CanvasPanel extends JPanel {
     public CanvasPanel(DrawController controller) {
         this.controller = controller;
         this.stroke = new BasicStroke(5);
+        this.renderer = new FigureRenderer(stroke, BACKGROUND_COLOR);
+        this.renderer.setLevelOfDetail(POINT_SIZE, BOX_SIZE);
+        this.retainedMode = true;
+        this.tiledMode = true;
+        this.tileCache = new TileCache(TILE_SIZE, TILE_MEMORY);
+        this.zoom = 1;
+        this.hud = new PerformanceHud();
+        this.hudTimer = new Timer(1000 / HUD_REFRESH, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                hud.tick(System.nanoTime());
+                refreshHud();
+            }
+        });
+
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleHud");
+        getActionMap().put("toggleHud", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                setHudVisible(!hud.isVisible());
+            }
+        });
 
         addMouseListener(new MouseInputAdapter() {
             public void mousePressed(MouseEvent e) {
-                controller.pressedCanvas(e.getX(), e.getY());
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    panning = true;
+                    panX = e.getX();
+                    panY = e.getY();
+                    return;
+                }
+                Point2D point = toModel(e.getX(), e.getY());
+                if (point.getX() < 0 || point.getY() < 0) {
+                    return; // the model has no negative coordinates
+                }
+                dragging = true;
+                controller.pressedCanvas(point.getX(), point.getY());
             }
 
             public void mouseReleased(MouseEvent e) {
-                controller.releasedCanvas();
+                if (panning && !SwingUtilities.isLeftMouseButton(e)) {
+                    panning = false;
+                    return;
+                }
+                if (dragging) {
+                    controller.releasedCanvas();
+                    dragging = false;
+                    invalidateLayers();
+                }
             }
         });
 
         addMouseMotionListener(new MouseInputAdapter() {
             public void mouseDragged(MouseEvent e) {
-                controller.draggedCanvas(e.getX(), e.getY(), e.isShiftDown());
+                if (panning) {
+                    panBy(e.getX() - panX, e.getY() - panY);
+                    panX = e.getX();
+                    panY = e.getY();
+                } else if (dragging) {
+                    Point2D point = toModel(e.getX(), e.getY());
+                    controller.draggedCanvas(point.getX(), point.getY(), e.isShiftDown());
+                }
+            }
+        });
+
+        addMouseWheelListener(new MouseWheelListener() {
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomAt(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
             }
         });
 
         setBackground(BACKGROUND_COLOR);
     }
 
-    
-    /** 
-     * Render all Figure objects passed by controller.
+
+    /**
+     * Render all Figure objects passed by controller that intersect the visible part of the clip.
+     * The repaint is timed as the "paint" operation of the Metrics object of the controller,
+     * and recorded by the PerformanceHud unless only the HUD asked for it, which is then drawn on top.
      * @param g
      */
     public void paint(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        AffineTransform transform = g2d.getTransform();
+        Rectangle clip = g2d.getClipBounds();
+        boolean hudOnly = hudRefreshPending && !canvasRepaintPending && clip != null && hud.getBounds().contains(clip);
+        hudRefreshPending = false;
+        canvasRepaintPending = false;
+        Metrics.Timer timer = controller.getMetrics().start("paint");
+        long nanos = 0;
+        try {
+            paintCanvas(g);
+        } finally {
+            nanos = timer.stop(controller.getFigures().size());
+        }
+        if (hud.isVisible()) {
+            if (!hudOnly) {
+                Rectangle visible = new Rectangle(0, 0, getWidth(), getHeight());
+                if (clip != null) {
+                    visible = visible.intersection(clip);
+                }
+                List<Figure> figures = controller.getFigures();
+                int drawn = visible.isEmpty() ? 0 : renderer.countVisible(figures, toModel(visible));
+                hud.countFigures(drawn, figures.size() - drawn);
+                hud.endFrame(nanos);
+            }
+            g2d.setTransform(transform);
+            hud.paint(g2d);
+        }
+    }
+
+
+    /**
+     * Note every repaint asked for, so paint can tell the ones asked for by the HUD alone.
+     * All repaint methods of the component end here.
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        if (!refreshingHud) {
+            canvasRepaintPending = true;
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+
+    /**
+     * Repaint the area of the HUD, as a refresh of the HUD rather than a frame of the canvas.
+     */
+    private void refreshHud() {
+        refreshingHud = true;
+        try {
+            repaint(hud.getBounds());
+        } finally {
+            refreshingHud = false;
+        }
+        hudRefreshPending = true;
+    }
+
+
+    /**
+     * Render all Figure objects that intersect the visible part of the clip, from layers, tiles or directly.
+     * @param g
+     */
+    private void paintCanvas(Graphics g) {
         super.paint(g);
         Graphics2D g2d = (Graphics2D) g;
-        ArrayList<Figure> figures = controller.getFigures();
-
-        // render most recently added Figure object on top (last)
-        for(int i = figures.size() - 1; i >= 0; i -= 1) {
-            Figure fig = figures.get(i);
-            g2d.setColor(fig.getColor());
-            g2d.setStroke(stroke);
-            g2d.draw(fig.getShape2D());
-            if (fig.getFill()) {
-                g2d.fill(fig.getShape2D());
+        List<Figure> figures = controller.getFigures();
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        Figure active = controller.getCurrentFigure();
+
+        if (retainedMode && dragging && active != null && paintLayers(g2d, figures, active, clip)) {
+            return;
+        }
+        if (tiledMode) {
+            g2d.translate(offsetX, offsetY);
+            Rectangle zoomedClip = new Rectangle(clip.x - offsetX, clip.y - offsetY, clip.width, clip.height);
+            tileCache.paint(g2d, zoomedClip, new TileCache.TileRenderer() {
+                public void render(Graphics2D tile, Rectangle region) {
+                    tile.setColor(getBackground());
+                    tile.fillRect(region.x, region.y, region.width, region.height);
+                    tile.scale(zoom, zoom);
+                    renderer.paintFigures(tile, figures, 0, figures.size(), new Rectangle2D.Double(
+                        region.x / zoom, region.y / zoom, region.width / zoom, region.height / zoom));
+                }
+            });
+            g2d.translate(-offsetX, -offsetY);
+            return;
+        }
+        Rectangle2D visible = toModel(clip);
+        AffineTransform saved = g2d.getTransform();
+        g2d.transform(getViewTransform());
+        renderer.paintFigures(g2d, figures, 0, figures.size(), visible);
+        g2d.setTransform(saved); // graphics painted again, as offscreen, must not compound the view
+    }
+
+
+    /**
+     * Render the cached layers around the active Figure object, rebuilding them if they are stale.
+     * @param g2d the graphics to render to
+     * @param figures all Figure objects ordered from top to bottom
+     * @param active the dragged Figure object
+     * @param clip the clip rectangle in component pixels
+     * @return boolean whether the layers were rendered, false if the active Figure object is not on the canvas.
+     */
+    private boolean paintLayers(Graphics2D g2d, List<Figure> figures, Figure active, Rectangle clip) {
+        AffineTransform transform = g2d.getTransform();
+        if (layerFigure != active || belowLayer == null
+                || transform.getScaleX() != layerScaleX || transform.getScaleY() != layerScaleY
+                || belowLayer.getWidth() != deviceSize(getWidth(), transform.getScaleX())
+                || belowLayer.getHeight() != deviceSize(getHeight(), transform.getScaleY())) {
+            if (!buildLayers(figures, active, transform)) {
+                return false;
             }
         }
+        g2d.drawImage(belowLayer, 0, 0, getWidth(), getHeight(), null);
+        if (FigureRenderer.intersects(active, toModel(clip), getStrokePadding())) {
+            AffineTransform saved = g2d.getTransform();
+            g2d.transform(getViewTransform());
+            renderer.paintFigure(g2d, active);
+            g2d.setTransform(saved);
+        }
+        if (aboveLayer != null) {
+            g2d.drawImage(aboveLayer, 0, 0, getWidth(), getHeight(), null);
+        }
+        return true;
+    }
+
+
+    /**
+     * Render all Figure objects but the active one into the below and above layers,
+     * through the viewport at the resolution of the device transform.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param active the dragged Figure object
+     * @param transform the device transform of the canvas graphics, only its scale is used
+     * @return boolean whether the layers were built, false if the active Figure object is not on the canvas.
+     */
+    private boolean buildLayers(List<Figure> figures, Figure active, AffineTransform transform) {
+        invalidateLayers();
+        int activeIndex = figures.indexOf(active);
+        if (activeIndex < 0) {
+            return false;
+        }
+        int width = deviceSize(getWidth(), transform.getScaleX());
+        int height = deviceSize(getHeight(), transform.getScaleY());
+        Rectangle2D visible = toModel(new Rectangle(0, 0, getWidth(), getHeight()));
+
+        belowLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D below = belowLayer.createGraphics();
+        below.scale(transform.getScaleX(), transform.getScaleY());
+        below.setColor(getBackground());
+        below.fillRect(0, 0, getWidth(), getHeight());
+        below.transform(getViewTransform());
+        renderer.paintFigures(below, figures, activeIndex + 1, figures.size(), visible);
+        below.dispose();
+
+        if (activeIndex > 0) {
+            aboveLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D above = aboveLayer.createGraphics();
+            above.scale(transform.getScaleX(), transform.getScaleY());
+            above.transform(getViewTransform());
+            renderer.paintFigures(above, figures, 0, activeIndex, visible);
+            above.dispose();
+        }
+        layerFigure = active;
+        layerScaleX = transform.getScaleX();
+        layerScaleY = transform.getScaleY();
+        return true;
+    }
+
+
+    /**
+     * Drop the cached layers, e.g. after Figure objects other than the active one changed.
+     */
+    public void invalidateLayers() {
+        belowLayer = null;
+        aboveLayer = null;
+        layerFigure = null;
+    }
+
+
+    /**
+     * Invalidate the tiles overlapping a damaged region.
+     * Must be called for every change of the Figure objects, before the repaint of the region.
+     * @param region the damaged region in model coordinates, empty if nothing changed, null if everything did
+     */
+    public void invalidateTiles(Rectangle2D region) {
+        if (region == null || region.isEmpty()) {
+            tileCache.invalidate(region);
+        } else {
+            tileCache.invalidate(new Rectangle2D.Double(
+                region.getX() * zoom, region.getY() * zoom, region.getWidth() * zoom, region.getHeight() * zoom));
+        }
+    }
+
+
+    /**
+     * Turn tiled mode on or off.
+     * @param tiledMode whether to paint from the tile cache
+     */
+    public void setTiledMode(boolean tiledMode) {
+        this.tiledMode = tiledMode;
+        tileCache.clear();
+    }
+
+
+    /**
+     * Set the level of detail of the canvas and paint it again, dropping the tiles and layers rendered before.
+     * @param pointSize the size in device pixels up to which a Figure object is painted as a point, 0 for never
+     * @param boxSize the size in device pixels up to which a Figure object is painted as a box, 0 for never
+     * @throws IllegalArgumentException if a size is negative or not a number
+     */
+    public void setLevelOfDetail(double pointSize, double boxSize) throws IllegalArgumentException {
+        renderer.setLevelOfDetail(pointSize, boxSize);
+        tileCache.clear();
+        invalidateLayers();
+        repaint();
+    }
+
+
+    /**
+     * Show or hide the PerformanceHud over the canvas.
+     * @param visible whether to show the HUD
+     */
+    public void setHudVisible(boolean visible) {
+        hud.setVisible(visible);
+        if (visible) {
+            hudTimer.start();
+        } else {
+            hudTimer.stop();
+        }
+        refreshHud();
+    }
+
+
+    /**
+     * @return PerformanceHud the performance HUD of the canvas, hidden unless toggled.
+     */
+    public PerformanceHud getHud() {
+        return hud;
+    }
+
+
+    /**
+     * @return TileCache the tile cache, with its hit and miss counters.
+     */
+    public TileCache getTileCache() {
+        return tileCache;
+    }
+
+
+    /**
+     * Zoom by a factor, keeping the model point under a component position in place.
+     * The zoom is kept between MIN_ZOOM and MAX_ZOOM.
+     * @param factor the zoom factor, above 1 to zoom in
+     * @param x x coordinate of the fixed point in component pixels
+     * @param y y coordinate of the fixed point in component pixels
+     */
+    public void zoomAt(double factor, int x, int y) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        Point2D point = toModel(x, y);
+        setView(newZoom, (int) Math.round(x - point.getX() * newZoom), (int) Math.round(y - point.getY() * newZoom));
+    }
+
+
+    /**
+     * Move the viewport.
+     * @param dx horizontal move of the content in component pixels
+     * @param dy vertical move of the content in component pixels
+     */
+    public void panBy(int dx, int dy) {
+        setView(zoom, offsetX + dx, offsetY + dy);
+    }
+
+
+    /**
+     * Set the viewport and repaint the canvas.
+     * Panning keeps the tiles, zooming drops them.
+     * @param zoom component pixels per model unit
+     * @param offsetX component position of the model origin
+     * @param offsetY component position of the model origin
+     * @throws IllegalArgumentException if zoom is not positive
+     */
+    public void setView(double zoom, int offsetX, int offsetY) throws IllegalArgumentException {
+        if (!(zoom > 0)) {
+            throw new IllegalArgumentException("zoom must be positive.");
+        }
+        if (zoom != this.zoom) {
+            tileCache.clear();
+        }
+        this.zoom = zoom;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        invalidateLayers();
+        repaint();
+    }
+
+
+    /**
+     * @return AffineTransform the transform from model coordinates to component pixels.
+     */
+    public AffineTransform getViewTransform() {
+        AffineTransform transform = AffineTransform.getTranslateInstance(offsetX, offsetY);
+        transform.scale(zoom, zoom);
+        return transform;
+    }
+
+
+    /**
+     * @return double component pixels per model unit.
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+
+    /**
+     * @param x x coordinate in component pixels
+     * @param y y coordinate in component pixels
+     * @return Point2D the point in model coordinates.
+     */
+    public Point2D toModel(double x, double y) {
+        return new Point2D.Double((x - offsetX) / zoom, (y - offsetY) / zoom);
+    }
+
+
+    /**
+     * @param rect a rectangle in component pixels
+     * @return Rectangle2D the rectangle in model coordinates.
+     */
+    public Rectangle2D toModel(Rectangle rect) {
+        return new Rectangle2D.Double((rect.x - offsetX) / zoom, (rect.y - offsetY) / zoom, rect.width / zoom, rect.height / zoom);
+    }
+
+
+    /**
+     * @param region a region in model coordinates, empty for nothing, null for everything
+     * @return Rectangle2D the region in component pixels, empty for nothing, null for everything.
+     */
+    public Rectangle2D toView(Rectangle2D region) {
+        if (region == null || region.isEmpty()) {
+            return region;
+        }
+        return new Rectangle2D.Double(region.getX() * zoom + offsetX, region.getY() * zoom + offsetY,
+            region.getWidth() * zoom, region.getHeight() * zoom);
+    }
+
+
+    /**
+     * Turn retained mode on or off.
+     * @param retainedMode whether to cache the other Figure objects while dragging
+     */
+    public void setRetainedMode(boolean retainedMode) {
+        this.retainedMode = retainedMode;
+        invalidateLayers();
+    }
+
+
+    /**
+     * How far the stroke of a Figure object can reach outside its bounding box.
+     * @return double the margin in model units.
+     */
+    public double getStrokePadding() {
+        return renderer.getStrokePadding();
+    }
+
+
+    /**
+     * @return FigureRenderer the renderer the canvas paints Figure objects with.
+     */
+    public FigureRenderer getRenderer() {
+        return renderer;
+    }
+
+
+    /**
+     * @param size a size in component pixels
+     * @param scale the device scale
+     * @return int the size in device pixels, at least 1.
+     */
+    private static int deviceSize(int size, double scale) {
+        return Math.max(1, (int) Math.ceil(size * scale));
     }
-}
\ No newline at end of file
+}
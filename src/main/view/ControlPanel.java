@@ -115,6 +115,8 @@ public class ControlPanel extends JToolBar implements ActionListener {
         makeButton("Undo");
         makeButton("Redo");
         makeButton("Clear");
+        makeButton("Front");
+        makeButton("Back");
         makeFigureButtons();
     }
 
@@ -153,6 +155,10 @@ public class ControlPanel extends JToolBar implements ActionListener {
             controller.toggleDrawMode();
         } else if (e.getActionCommand().equals("clear")) {
             controller.clearAll();
+        } else if (e.getActionCommand().equals("front")) {
+            controller.bringToFront();
+        } else if (e.getActionCommand().equals("back")) {
+            controller.sendToBack();
         } else {
             controller.setFigureType(e.getActionCommand());
         }
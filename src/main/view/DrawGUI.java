@@ -11,6 +11,7 @@ import main.model.ControlModel;
 import main.model.DrawModel;
 
 import java.awt.BorderLayout;
+import java.awt.geom.Rectangle2D;
 
 /**
  * GUI for the Draw program. Combining the ControlPanel and the CanvasPanel.
@@ -20,10 +21,12 @@ public class DrawGUI implements PropertyChangeListener {
     private JFrame frame;
     private CanvasPanel canvasPanel;
     private ControlPanel controlPanel;
+    private RepaintCoalescer canvasRepainter; // merges DrawModel changes into one canvas repaint per frame
 
 
     private static int FRAME_WIDTH = 1000;
     private static int FRAME_HEIGHT = 700;
+    private static int FRAME_RATE = 60;
 
     /**
      * Construct a JFrame component and add CanvasPanel, ControlPanel for rendering.
@@ -49,6 +52,8 @@ public class DrawGUI implements PropertyChangeListener {
         frame.paintAll(frame.getGraphics());
 
         // add listener
+        canvasRepainter = new RepaintCoalescer(canvasPanel, FRAME_RATE);
+        drawModel.setDamagePadding(canvasPanel.getStrokePadding());
         drawModel.addListener(this);
         controlModel.addListener(this);
     }
@@ -56,16 +61,37 @@ public class DrawGUI implements PropertyChangeListener {
     
     /** 
      * Call to repaint whenever a property change is detected in the DrawModel and ControlModel.
+     * DrawModel changes only repaint the damaged region of the canvas, ControlModel changes the tool bar.
+     * DrawModel changes within one frame are merged into a single repaint.
+     * Structure updates also drop the layers the canvas caches while dragging.
+     * Each DrawModel change is counted by the performance HUD of the canvas.
      * @param event change event detected.
      */
     @Override
     public void propertyChange(PropertyChangeEvent event) {
-        SwingUtilities.invokeLater(
-            new Runnable() {
-                public void run() {
-                    frame.repaint();
-                }
+        if (event.getSource() instanceof DrawModel) {
+            canvasPanel.getHud().countModelEvent();
+            if (DrawModel.STRUCTURE_UPDATE.equals(event.getPropertyName())) {
+                canvasPanel.invalidateLayers();
             }
-        );
+            canvasPanel.invalidateTiles((Rectangle2D) event.getNewValue());
+            canvasRepainter.damage(canvasPanel.toView((Rectangle2D) event.getNewValue()));
+        } else {
+            SwingUtilities.invokeLater(
+                new Runnable() {
+                    public void run() {
+                        controlPanel.repaint();
+                    }
+                }
+            );
+        }
+    }
+
+    
+    /** 
+     * @return RepaintCoalescer the object merging canvas repaints, with its counters.
+     */
+    public RepaintCoalescer getCanvasRepainter() {
+        return canvasRepainter;
     }
 }
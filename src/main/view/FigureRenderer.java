@@ -0,0 +1,544 @@
+package main.view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import main.model.FigureSnapshot;
+import main.model.figure.Figure;
+import main.model.figure.FigureStorage;
+
+/**
+ * The FigureRenderer object rasterizes Figure objects without any Swing component,
+ * so thumbnails and exports can be rendered with java.awt.headless=true.
+ * It applies the same stroke, fill, culling and z-order rules as the CanvasPanel, which paints through it.
+ * A FigureRenderer object holds no state that changes while rendering and can be shared by threads.
+ * Each thread renders into its own image buffer, which is reused by the next call of the same size.
+ * Lists of Figure objects are rendered in batches of consecutive Figure objects in paint order with the same color
+ * and fill option: the stroke is set once per call and the color once per batch.
+ * With mergeBatches on, Figure objects of a batch with an opaque color, a curved or polygonal shape and the same class
+ * and orientation are also merged into paths of up to MAX_MERGED shapes, drawn and filled with one call each.
+ * Since every pixel of such a path gets the same opaque color, the result is identical to rendering them one by one.
+ * Merging is off by default, as the software pipeline rasterizes merged paths no faster,
+ * while pipelines with a high cost per call may gain from it.
+ * Antialiased graphics are never merged, as overlapping edges would blend differently.
+ * With a level of detail set, Figure objects that are small on the device are rendered by a cheaper approximation,
+ * picked from the larger side of their stroked bounding box in device pixels: up to pointSize they are one pixel
+ * at their center, up to boxSize their stroked bounding box, filled, or outlined if they aren't filled
+ * and their stroke is thinner than a pixel. The level of detail is off by default, so exports are exact,
+ * and only applies through transforms that keep axes aligned.
+ * A FigureStorage object, e.g. the getFigures() of a DrawModel object keeping its Figure objects as records,
+ * is rendered from its records in place, on one reused Figure object per type.
+ */
+public class FigureRenderer {
+    private final BasicStroke stroke;
+    private final Color background;
+    private final ThreadLocal<BufferedImage> buffers; // the last image rendered by each thread
+    private final ThreadLocal<ArrayList<Figure>> snapshotFigures; // Figure objects of the last snapshot rendered by each thread
+    private volatile boolean mergeBatches; // whether to merge batches into paths
+    private static final int MAX_MERGED = 16; // shapes per merged path, more rasterize slower
+    private volatile double[] levelOfDetail; // point and box sizes in device pixels, set together
+
+    /**
+     * Construct a FigureRenderer object with the stroke and background of the canvas.
+     */
+    public FigureRenderer() {
+        this(new BasicStroke(5), Color.white);
+    }
+
+    /**
+     * Construct a FigureRenderer object.
+     * @param stroke the stroke to outline Figure objects with
+     * @param background the color behind all Figure objects
+     */
+    public FigureRenderer(BasicStroke stroke, Color background) {
+        this.stroke = stroke;
+        this.background = background;
+        buffers = new ThreadLocal<BufferedImage>();
+        snapshotFigures = new ThreadLocal<ArrayList<Figure>>();
+        levelOfDetail = new double[2];
+    }
+
+
+    /**
+     * Render Figure objects into an image of the given size, in model coordinates.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @return BufferedImage the image, reused by the next call on this thread with the same size.
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public BufferedImage render(List<? extends Figure> figures, int width, int height) throws IllegalArgumentException {
+        return render(figures, width, height, new AffineTransform());
+    }
+
+
+    /**
+     * Render Figure objects into an image of the given size through a transform, e.g. to scale a thumbnail.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param transform the transform from model coordinates to image pixels
+     * @return BufferedImage the image, reused by the next call on this thread with the same size.
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public BufferedImage render(List<? extends Figure> figures, int width, int height, AffineTransform transform) throws IllegalArgumentException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be positive.");
+        }
+        BufferedImage image = buffers.get();
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            buffers.set(image);
+        }
+        render(figures, image, transform);
+        return image;
+    }
+
+
+    /**
+     * Render a FigureSnapshot object into an image of the given size through a transform.
+     * Unlike the live Figure objects of a DrawModel object, a snapshot can be rendered from any thread.
+     * @param snapshot the snapshot to render
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param transform the transform from model coordinates to image pixels
+     * @return BufferedImage the image, reused by the next call on this thread with the same size.
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public BufferedImage render(FigureSnapshot snapshot, int width, int height, AffineTransform transform) throws IllegalArgumentException {
+        ArrayList<Figure> figures = snapshotFigures.get();
+        if (figures == null) {
+            figures = new ArrayList<Figure>();
+            snapshotFigures.set(figures);
+        }
+        for (int i = 0; i < snapshot.size(); i += 1) {
+            figures.add(snapshot.get(i).toFigure());
+        }
+        try {
+            return render(figures, width, height, transform);
+        } finally {
+            figures.clear();
+        }
+    }
+
+
+    /**
+     * Render Figure objects into an image owned by the caller.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param image the image to render into, cleared to the background first
+     * @param transform the transform from model coordinates to image pixels
+     */
+    public void render(List<? extends Figure> figures, BufferedImage image, AffineTransform transform) {
+        Graphics2D g2d = image.createGraphics();
+        Rectangle2D region = prepare(g2d, image, transform);
+        if (region != null) {
+            paintFigures(g2d, figures, 0, figures.size(), region);
+        }
+        g2d.dispose();
+    }
+
+
+    /**
+     * Clear an image to the background and apply a transform to its graphics.
+     * @return Rectangle2D the region of the image in model coordinates, null if nothing is visible through the transform.
+     */
+    private Rectangle2D prepare(Graphics2D g2d, BufferedImage image, AffineTransform transform) {
+        g2d.setColor(background);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.transform(transform);
+        try {
+            return transform.createInverse().createTransformedShape(
+                new Rectangle2D.Double(0, 0, image.getWidth(), image.getHeight())).getBounds2D();
+        } catch (NoninvertibleTransformException e) {
+            return null; // nothing is visible through a degenerate transform
+        }
+    }
+
+
+    /**
+     * Render Figure objects from index to - 1 up to index from, so the most recently added one is on top (last).
+     * Figure objects outside the region are skipped before touching the graphics,
+     * and runs of Figure objects in the same state are rendered as one batch.
+     * Figure objects small on the device are approximated as the level of detail allows.
+     * A FigureStorage object is rendered from its records, see paintFigures(Graphics2D, FigureStorage, int, int, Rectangle2D).
+     * @param g2d the graphics to render to, in model coordinates
+     * @param figures all Figure objects ordered from top to bottom
+     * @param from index of the top Figure object to render
+     * @param to index after the bottom Figure object to render
+     * @param region the region to render, in model coordinates
+     * @return int the number of Figure objects rendered, the others were culled.
+     */
+    public int paintFigures(Graphics2D g2d, List<? extends Figure> figures, int from, int to, Rectangle2D region) {
+        if (figures instanceof FigureStorage) {
+            return paintFigures(g2d, (FigureStorage) figures, from, to, region);
+        }
+        double padding = getStrokePadding();
+        Batch batch = newBatch(g2d);
+        int drawn = 0;
+        for(int i = to - 1; i >= from; i -= 1) {
+            Figure fig = figures.get(i);
+            if (intersects(fig, region, padding)) {
+                batch.add(fig);
+                drawn += 1;
+            }
+        }
+        batch.finish();
+        return drawn;
+    }
+
+
+    /**
+     * Render records of a FigureStorage object like paintFigures renders Figure objects, in the same batches.
+     * Records outside the region are skipped without reading them into a Figure object.
+     * @param g2d the graphics to render to, in model coordinates
+     * @param storage all records ordered from top to bottom
+     * @param from index of the top record to render
+     * @param to index after the bottom record to render
+     * @param region the region to render, in model coordinates
+     * @return int the number of records rendered, the others were culled.
+     */
+    public int paintFigures(Graphics2D g2d, FigureStorage storage, int from, int to, Rectangle2D region) {
+        final Batch batch = newBatch(g2d);
+        final int[] drawn = new int[1];
+        storage.visit(from, to, region, getStrokePadding(), new FigureStorage.Visitor() {
+            @Override
+            public void visit(int index, Figure figure) {
+                batch.add(figure);
+                drawn[0] += 1;
+            }
+        });
+        batch.finish();
+        return drawn[0];
+    }
+
+
+    /**
+     * Set the stroke on the graphics and start a batch on them.
+     */
+    private Batch newBatch(Graphics2D g2d) {
+        boolean merge = mergeBatches
+            && g2d.getRenderingHint(RenderingHints.KEY_ANTIALIASING) != RenderingHints.VALUE_ANTIALIAS_ON;
+        g2d.setStroke(stroke);
+        return new Batch(g2d, merge, stroke.getLineWidth(), levelOfDetail);
+    }
+
+
+    /**
+     * Count the Figure objects that paintFigures would render in a region, without rendering them.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param region the region, in model coordinates
+     * @return int the number of Figure objects whose stroked bounding box intersects the region.
+     */
+    public int countVisible(List<? extends Figure> figures, Rectangle2D region) {
+        if (figures instanceof FigureStorage) {
+            final int[] visited = new int[1];
+            ((FigureStorage) figures).visit(0, figures.size(), region, getStrokePadding(), new FigureStorage.Visitor() {
+                @Override
+                public void visit(int index, Figure figure) {
+                    visited[0] += 1;
+                }
+            });
+            return visited[0];
+        }
+        double padding = getStrokePadding();
+        int count = 0;
+        for (Figure fig : figures) {
+            if (intersects(fig, region, padding)) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Render one Figure object.
+     * @param g2d the graphics to render to, in model coordinates
+     * @param fig the Figure object
+     */
+    public void paintFigure(Graphics2D g2d, Figure fig) {
+        g2d.setColor(fig.getColor());
+        g2d.setStroke(stroke);
+        Shape shape = fig.getShape2D(); // cached by the Figure object until it changes
+        g2d.draw(shape);
+        if (fig.getFill()) {
+            g2d.fill(shape);
+        }
+    }
+
+
+    /**
+     * The Batch class renders consecutive Figure objects with the same color and fill option, setting the color once.
+     * When merging, only Figure objects whose shapes wind the same way share a path, so filling it
+     * with the non-zero rule covers the union of their fills.
+     * Points and boxes of the level of detail are filled in device pixels, through a copy of the graphics
+     * without transform that is created by the first of them.
+     * The state of the last Figure object is copied rather than referenced, as Figure objects read from records
+     * are reused for the next record.
+     */
+    private static class Batch {
+        private final Graphics2D g2d;
+        private final boolean merge;
+        private final Path2D.Double path; // shapes merged so far, after the first one
+        private Shape first; // the first shape to merge, only appended to path when another one joins it
+        private boolean started; // whether a Figure object was added
+        private Color lastColor; // the color, fill option, class and orientation of the last Figure object added
+        private boolean lastFill;
+        private Class<?> lastClass;
+        private boolean lastFlipped;
+        private int merged; // the number of shapes to merge
+
+        private final boolean detail; // whether any level of detail applies
+        private final double pointSize; // device pixels up to which a Figure object is a point
+        private final double boxSize; // device pixels up to which a Figure object is a box
+        private final double lineWidth; // stroke width in model units
+        private final double scaleX; // model to device transform, if axis-aligned
+        private final double scaleY;
+        private final double translateX;
+        private final double translateY;
+        private Graphics2D device; // the graphics in device pixels, null until a point or box is filled
+        private Color deviceColor; // the color last set on device
+
+        Batch(Graphics2D g2d, boolean merge, double lineWidth, double[] levelOfDetail) {
+            this.g2d = g2d;
+            this.merge = merge;
+            this.lineWidth = lineWidth;
+            path = new Path2D.Double(Path2D.WIND_NON_ZERO);
+            AffineTransform transform = g2d.getTransform();
+            scaleX = transform.getScaleX();
+            scaleY = transform.getScaleY();
+            translateX = transform.getTranslateX();
+            translateY = transform.getTranslateY();
+            pointSize = levelOfDetail[0];
+            boxSize = levelOfDetail[1];
+            detail = (pointSize > 0 || boxSize > 0)
+                && transform.getShearX() == 0 && transform.getShearY() == 0;
+        }
+
+        /**
+         * Render a Figure object after the ones added before, setting the color if it changed.
+         */
+        void add(Figure fig) {
+            if (!started || !fig.getColor().equals(lastColor) || fig.getFill() != lastFill) {
+                flush();
+                g2d.setColor(fig.getColor());
+            } else if (!canMerge(fig) || merged == MAX_MERGED) {
+                flush();
+            }
+            if (detail && addDetail(fig)) {
+                setLast(fig);
+                return;
+            }
+            if (canMerge(fig)) {
+                if (merged == 0) {
+                    first = fig.getShape2D();
+                } else {
+                    if (merged == 1) {
+                        path.append(first, false);
+                    }
+                    path.append(fig.getShape2D(), false);
+                }
+                merged += 1;
+            } else {
+                render(fig.getShape2D(), fig.getFill());
+            }
+            setLast(fig);
+        }
+
+        private void setLast(Figure fig) {
+            started = true;
+            lastColor = fig.getColor();
+            lastFill = fig.getFill();
+            lastClass = fig.getClass();
+            lastFlipped = isFlipped(fig);
+        }
+
+        /**
+         * Render a Figure object by an approximation if it is small enough on the device.
+         * Shapes merged so far are rendered first, as they are under it.
+         * @return boolean whether the Figure object was rendered.
+         */
+        private boolean addDetail(Figure fig) {
+            double width = Math.abs(fig.getWidth()) + lineWidth;
+            double height = Math.abs(fig.getHeight()) + lineWidth;
+            double size = Math.max(width * Math.abs(scaleX), height * Math.abs(scaleY));
+            if (size <= pointSize) {
+                flush();
+                double x = (fig.getX1() + fig.getWidth() / 2) * scaleX + translateX;
+                double y = (fig.getY1() + fig.getHeight() / 2) * scaleY + translateY;
+                fillDevice(fig.getColor(), (int) Math.floor(x), (int) Math.floor(y), 1, 1, false);
+                return true;
+            }
+            if (size <= boxSize) {
+                flush();
+                double x1 = (Math.min(fig.getX1(), fig.getX1() + fig.getWidth()) - lineWidth / 2) * scaleX + translateX;
+                double y1 = (Math.min(fig.getY1(), fig.getY1() + fig.getHeight()) - lineWidth / 2) * scaleY + translateY;
+                double x2 = x1 + width * scaleX;
+                double y2 = y1 + height * scaleY;
+                int left = (int) Math.floor(Math.min(x1, x2));
+                int top = (int) Math.floor(Math.min(y1, y2));
+                int right = Math.max(left + 1, (int) Math.ceil(Math.max(x1, x2)));
+                int bottom = Math.max(top + 1, (int) Math.ceil(Math.max(y1, y2)));
+                boolean outline = !fig.getFill() && lineWidth * Math.max(Math.abs(scaleX), Math.abs(scaleY)) < 1;
+                fillDevice(fig.getColor(), left, top, right - left, bottom - top, outline);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Fill a rectangle in device pixels, or only its one pixel wide outline.
+         */
+        private void fillDevice(Color color, int x, int y, int width, int height, boolean outline) {
+            if (device == null) {
+                device = (Graphics2D) g2d.create();
+                device.setTransform(new AffineTransform());
+                device.setStroke(new BasicStroke()); // outlines are one pixel wide
+            }
+            if (!color.equals(deviceColor)) {
+                device.setColor(color);
+                deviceColor = color;
+            }
+            if (outline && width > 2 && height > 2) {
+                device.drawRect(x, y, width - 1, height - 1);
+            } else {
+                device.fillRect(x, y, width, height);
+            }
+        }
+
+        /**
+         * Render the shapes left to merge and release the graphics in device pixels.
+         */
+        void finish() {
+            flush();
+            if (device != null) {
+                device.dispose();
+                device = null;
+            }
+        }
+
+        /**
+         * Render the shapes to merge, if any. A single shape is rendered as is, keeping the fast paths for its class.
+         */
+        void flush() {
+            if (merged > 0) {
+                render(merged == 1 ? first : path, lastFill);
+                path.reset();
+                first = null;
+                merged = 0;
+            }
+        }
+
+        /**
+         * Whether a Figure object can be merged into the path: it is opaque, its shape isn't a line or a rectangle,
+         * which are rasterized by their own loops with other pixel rules than paths, and if the path isn't empty,
+         * it is of the same class and flipped the same way as the last Figure object.
+         */
+        private boolean canMerge(Figure fig) {
+            Shape shape = fig.getShape2D();
+            return merge && fig.getColor().getAlpha() == 255 && !(shape instanceof Line2D) && !(shape instanceof Rectangle2D)
+                && (merged == 0 || (fig.getClass() == lastClass && isFlipped(fig) == lastFlipped));
+        }
+
+        private void render(Shape shape, boolean fill) {
+            g2d.draw(shape);
+            if (fill) {
+                g2d.fill(shape);
+            }
+        }
+
+        /**
+         * Whether the bounding box of a Figure object is mirrored, which reverses the winding of its shape.
+         */
+        private static boolean isFlipped(Figure fig) {
+            return (fig.getWidth() < 0) != (fig.getHeight() < 0);
+        }
+    }
+
+
+    /**
+     * How far the stroke of a Figure object can reach outside its bounding box.
+     * Mitered corners reach up to half the line width times the miter limit.
+     * @return double the margin in model units.
+     */
+    public double getStrokePadding() {
+        double halfWidth = stroke.getLineWidth() / 2.0;
+        return Math.ceil(halfWidth * Math.max(stroke.getMiterLimit(), Math.sqrt(2))) + 1;
+    }
+
+
+    /**
+     * Set the level of detail: the sizes in device pixels up to which Figure objects are rendered by an approximation.
+     * The size of a Figure object is the larger side of its stroked bounding box. A size of 0 turns an approximation off.
+     * @param pointSize the size up to which a Figure object is one pixel at its center
+     * @param boxSize the size up to which a Figure object is its stroked bounding box
+     * @throws IllegalArgumentException if a size is negative or not a number
+     */
+    public void setLevelOfDetail(double pointSize, double boxSize) throws IllegalArgumentException {
+        if (!(pointSize >= 0 && boxSize >= 0)) {
+            throw new IllegalArgumentException("level of detail sizes must not be negative.");
+        }
+        levelOfDetail = new double[] {pointSize, boxSize};
+    }
+
+
+    /**
+     * @return double[] the point and box sizes of the level of detail, in device pixels.
+     */
+    public double[] getLevelOfDetail() {
+        return levelOfDetail.clone();
+    }
+
+
+    /**
+     * Turn merging batches into paths on or off.
+     * @param mergeBatches whether to merge runs of opaque Figure objects of the same class into paths
+     */
+    public void setMergeBatches(boolean mergeBatches) {
+        this.mergeBatches = mergeBatches;
+    }
+
+
+    /**
+     * @return BasicStroke the stroke Figure objects are outlined with.
+     */
+    public BasicStroke getStroke() {
+        return stroke;
+    }
+
+
+    /**
+     * @return Color the color behind all Figure objects.
+     */
+    public Color getBackground() {
+        return background;
+    }
+
+
+    /**
+     * Test whether the stroked bounding box of a Figure object intersects a region.
+     * @param fig the Figure object
+     * @param region the region in model coordinates
+     * @param padding the stroke margin around the bounding box
+     * @return boolean whether the Figure object may draw pixels within the region.
+     */
+    public static boolean intersects(Figure fig, Rectangle2D region, double padding) {
+        double x1 = fig.getX1();
+        double y1 = fig.getY1();
+        double x2 = x1 + fig.getWidth();
+        double y2 = y1 + fig.getHeight();
+        return Math.max(x1, x2) + padding >= region.getMinX() && Math.min(x1, x2) - padding <= region.getMaxX()
+            && Math.max(y1, y2) + padding >= region.getMinY() && Math.min(y1, y2) - padding <= region.getMaxY();
+    }
+}
@@ -0,0 +1,200 @@
+package main.view;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * The PerformanceHud class collects the numbers of a heads-up display the CanvasPanel draws over the Figure objects
+ * to diagnose lag: the time of the last frame with the median and 99th percentile of the last FRAMES frames,
+ * the Figure objects drawn and culled by the last frame, the DrawModel update events per second and the heap in use.
+ * While it is hidden every count returns after one test, so the canvas can report to it unconditionally.
+ * A PerformanceHud object must only be used on the event dispatch thread.
+ */
+public class PerformanceHud {
+    public static final int FRAMES = 128; // frames the percentiles are taken over
+    private static final long RATE_WINDOW = 1000000000L; // nanoseconds model events are counted over
+    private static final Rectangle BOUNDS = new Rectangle(8, 8, 250, 74);
+    private static final Color BOX_COLOR = new Color(0, 0, 0, 160);
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    private boolean visible;
+    private long[] frameNanos; // ring of the last frame times
+    private int frameCount; // frames recorded since shown
+    private int drawn; // Figure objects drawn in the frame being painted
+    private int culled;
+    private int lastDrawn; // Figure objects drawn in the last frame
+    private int lastCulled;
+    private int modelEvents; // DrawModel events in the current window
+    private long windowStart; // System.nanoTime at the start of the current window
+    private double modelEventRate; // DrawModel events per second over the last full window
+
+    /**
+     * Construct a hidden PerformanceHud object.
+     */
+    public PerformanceHud() {
+        frameNanos = new long[FRAMES];
+    }
+
+    /**
+     * Show or hide the display. Showing it starts all numbers afresh.
+     * @param visible whether to collect and draw the numbers
+     */
+    public void setVisible(boolean visible) {
+        if (visible && !this.visible) {
+            frameCount = 0;
+            drawn = 0;
+            culled = 0;
+            lastDrawn = 0;
+            lastCulled = 0;
+            modelEvents = 0;
+            modelEventRate = 0;
+            windowStart = System.nanoTime();
+        }
+        this.visible = visible;
+    }
+
+    /**
+     * @return boolean whether the display is shown.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Count Figure objects rendered or skipped by the frame being painted.
+     * @param drawn the number of Figure objects rendered
+     * @param culled the number of Figure objects skipped outside the region
+     */
+    public void countFigures(int drawn, int culled) {
+        if (visible) {
+            this.drawn += drawn;
+            this.culled += culled;
+        }
+    }
+
+    /**
+     * Count one update event of the DrawModel object.
+     */
+    public void countModelEvent() {
+        if (visible) {
+            modelEvents += 1;
+        }
+    }
+
+    /**
+     * Record the end of a frame and the Figure objects it counted.
+     * @param nanos the time the frame took to paint
+     */
+    public void endFrame(long nanos) {
+        if (visible) {
+            frameNanos[frameCount % FRAMES] = nanos;
+            frameCount += 1;
+            lastDrawn = drawn;
+            lastCulled = culled;
+            drawn = 0;
+            culled = 0;
+        }
+    }
+
+    /**
+     * Forget the Figure objects counted by a frame that isn't recorded, e.g. one only refreshing the display.
+     */
+    public void discardFrame() {
+        drawn = 0;
+        culled = 0;
+    }
+
+    /**
+     * Close the window of model events if it is over, e.g. from a timer refreshing the display.
+     * @param now the current System.nanoTime
+     */
+    public void tick(long now) {
+        if (visible && now - windowStart >= RATE_WINDOW) {
+            modelEventRate = modelEvents * 1e9 / (now - windowStart);
+            modelEvents = 0;
+            windowStart = now;
+        }
+    }
+
+    /**
+     * @return long the time of the last frame in nanoseconds, 0 if none was recorded.
+     */
+    public long getLastFrameNanos() {
+        return frameCount == 0 ? 0 : frameNanos[(frameCount - 1) % FRAMES];
+    }
+
+    /**
+     * @param percentile the percentile, from 0 to 100
+     * @return long the frame time in nanoseconds that the percentile of the last FRAMES frames don't exceed, 0 if none.
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getFramePercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be from 0 to 100.");
+        }
+        int n = Math.min(frameCount, FRAMES);
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(frameNanos, n);
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, (int) Math.ceil(n * percentile / 100) - 1)];
+    }
+
+    /**
+     * @return int the number of Figure objects drawn by the last frame.
+     */
+    public int getDrawn() {
+        return lastDrawn;
+    }
+
+    /**
+     * @return int the number of Figure objects culled by the last frame.
+     */
+    public int getCulled() {
+        return lastCulled;
+    }
+
+    /**
+     * @return double the DrawModel update events per second over the last full window.
+     */
+    public double getModelEventRate() {
+        return modelEventRate;
+    }
+
+    /**
+     * @return Rectangle the area of the display in component pixels.
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(BOUNDS);
+    }
+
+    /**
+     * Draw the display if it is shown. Heap use is read here, once per drawing.
+     * @param g2d the graphics to draw to, in component pixels
+     */
+    public void paint(Graphics2D g2d) {
+        if (!visible) {
+            return;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        String[] lines = {
+            String.format("frame %6.2f ms p50 %.2f p99 %.2f", getLastFrameNanos() / 1e6,
+                getFramePercentile(50) / 1e6, getFramePercentile(99) / 1e6),
+            String.format("figures %d drawn %d culled", lastDrawn, lastCulled),
+            String.format("model %.1f events/s", modelEventRate),
+            String.format("heap %.1f MB", heap / 1048576.0)
+        };
+        g2d.setColor(BOX_COLOR);
+        g2d.fillRect(BOUNDS.x, BOUNDS.y, BOUNDS.width, BOUNDS.height);
+        g2d.setColor(Color.white);
+        g2d.setFont(FONT);
+        for (int i = 0; i < lines.length; i += 1) {
+            g2d.drawString(lines[i], BOUNDS.x + 8, BOUNDS.y + 18 + 16 * i);
+        }
+    }
+}
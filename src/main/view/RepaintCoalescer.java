@@ -0,0 +1,127 @@
+package main.view;
+
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.geom.Rectangle2D;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * The RepaintCoalescer object folds damaged regions reported within one frame interval into a single repaint.
+ * The first damage after a repaint schedules the next repaint at the target frame rate,
+ * later damages in the same interval are merged into it, so fast input can't flood the event queue.
+ * Damages can be reported from any thread, repaints are issued on the event dispatch thread.
+ */
+public class RepaintCoalescer implements ActionListener {
+    private JComponent component;
+    private Timer timer;
+    private long frameInterval; // nanoseconds between repaints
+    private long lastRepaint; // System.nanoTime() of the last repaint
+
+    private Rectangle2D pending; // merged damage waiting for the next repaint, null if none
+    private boolean pendingAll; // whether the whole component waits for the next repaint
+    private long receivedCount; // damages reported
+    private long mergedCount; // damages folded into an already scheduled repaint
+    private long repaintCount; // repaints issued
+
+    /**
+     * Construct a RepaintCoalescer object.
+     * @param component the component to repaint
+     * @param frameRate the target number of repaints per second
+     */
+    public RepaintCoalescer(JComponent component, int frameRate) {
+        this.component = component;
+        timer = new Timer(0, this);
+        timer.setRepeats(false);
+        setFrameRate(frameRate);
+    }
+
+    /**
+     * Update the target frame rate.
+     * @param frameRate the target number of repaints per second
+     * @throws IllegalArgumentException if frameRate is not positive
+     */
+    public synchronized void setFrameRate(int frameRate) throws IllegalArgumentException {
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("frameRate must be positive.");
+        }
+        frameInterval = 1000000000L / frameRate;
+    }
+
+    /**
+     * Report a damaged region.
+     * @param region the damaged region, empty if nothing needs repainting, null if everything does
+     */
+    public synchronized void damage(Rectangle2D region) {
+        receivedCount += 1;
+        if (region != null && region.isEmpty()) {
+            return;
+        }
+        boolean scheduled = pendingAll || pending != null;
+        if (region == null) {
+            pendingAll = true;
+            pending = null;
+        } else if (!pendingAll) {
+            if (pending == null) {
+                pending = (Rectangle2D) region.clone();
+            } else {
+                pending.add(region);
+            }
+        }
+        if (scheduled) {
+            mergedCount += 1;
+        } else {
+            long wait = lastRepaint + frameInterval - System.nanoTime();
+            timer.setInitialDelay((int) Math.max(0, wait / 1000000));
+            timer.restart();
+        }
+    }
+
+    /**
+     * Issue the merged repaint. Called by the timer on the event dispatch thread.
+     * @param e the timer event
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        Rectangle region = null;
+        boolean all;
+        synchronized (this) {
+            all = pendingAll;
+            if (pending != null) {
+                region = pending.getBounds();
+            }
+            pending = null;
+            pendingAll = false;
+            lastRepaint = System.nanoTime();
+            repaintCount += 1;
+        }
+        if (all) {
+            component.repaint();
+        } else if (region != null) {
+            component.repaint(region);
+        }
+    }
+
+    /**
+     * @return long the number of damages reported.
+     */
+    public synchronized long getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * @return long the number of damages merged into an already scheduled repaint.
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * @return long the number of repaints issued.
+     */
+    public synchronized long getRepaintCount() {
+        return repaintCount;
+    }
+}
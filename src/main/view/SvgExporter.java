@@ -0,0 +1,282 @@
+package main.view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.geom.PathIterator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import main.model.FigureSnapshot;
+import main.model.figure.DiagonalCross;
+import main.model.figure.Ellipse;
+import main.model.figure.Figure;
+import main.model.figure.Line;
+import main.model.figure.FigureStorage;
+import main.model.figure.Rectangle;
+
+/**
+ * The SvgExporter object writes Figure objects as an SVG document, one element per Figure object.
+ * Rectangle and Ellipse objects become rect and ellipse elements, Line objects line elements,
+ * and other Figure objects path elements built from the path iterator of their Shape.
+ * Elements are written in paint order with the stroke and background of a FigureRenderer object,
+ * so the document looks like the canvas. Output is streamed element by element, so memory stays
+ * bounded by one element whatever the size of the document.
+ */
+public class SvgExporter {
+    private FigureRenderer renderer;
+    private StringBuilder element; // the element being written, reused between elements
+    private double[] coords; // path iterator coordinates, reused between segments
+
+    /**
+     * Construct an SvgExporter object. An SvgExporter object must be used by one thread at a time.
+     * @param renderer the renderer whose stroke and background to use
+     */
+    public SvgExporter(FigureRenderer renderer) {
+        this.renderer = renderer;
+        element = new StringBuilder(256);
+        coords = new double[6];
+    }
+
+
+    /**
+     * Write Figure objects as an SVG document in UTF-8. The stream is flushed but not closed.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param width the document width
+     * @param height the document height
+     * @param out the stream to write to
+     * @throws IOException if the stream fails
+     */
+    public void write(List<? extends Figure> figures, double width, double height, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(figures, width, height, writer);
+        writer.flush();
+    }
+
+
+    /**
+     * Write Figure objects as an SVG document.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param width the document width
+     * @param height the document height
+     * @param out the writer to write to, buffered by the caller
+     * @throws IOException if the writer fails
+     */
+    public void write(List<? extends Figure> figures, double width, double height, Writer out) throws IOException {
+        if (figures instanceof FigureStorage) {
+            write((FigureStorage) figures, width, height, out);
+            return;
+        }
+        writeHeader(width, height, out);
+        for (int i = figures.size() - 1; i >= 0; i -= 1) {
+            writeFigure(figures.get(i), out);
+        }
+        writeFooter(out);
+    }
+
+
+    /**
+     * Write a FigureSnapshot object as an SVG document, e.g. from a background thread while editing continues.
+     * @param snapshot the state to write
+     * @param width the document width
+     * @param height the document height
+     * @param out the writer to write to, buffered by the caller
+     * @throws IOException if the writer fails
+     */
+    public void write(FigureSnapshot snapshot, double width, double height, Writer out) throws IOException {
+        writeHeader(width, height, out);
+        for (int i = snapshot.size() - 1; i >= 0; i -= 1) {
+            writeFigure(snapshot.get(i).toFigure(), out);
+        }
+        writeFooter(out);
+    }
+
+
+    /**
+     * Write the records of a FigureStorage object as an SVG document, without creating a Figure object per record.
+     * @param store all records ordered from top to bottom
+     * @param width the document width
+     * @param height the document height
+     * @param out the writer to write to, buffered by the caller
+     * @throws IOException if the writer fails
+     */
+    public void write(FigureStorage store, double width, double height, Writer out) throws IOException {
+        writeHeader(width, height, out);
+        try {
+            store.visit(0, store.size(), null, 0, new FigureStorage.Visitor() {
+                public void visit(int index, Figure figure) {
+                    try {
+                        writeFigure(figure, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeFooter(out);
+    }
+
+
+    private void writeHeader(double width, double height, Writer out) throws IOException {
+        BasicStroke stroke = renderer.getStroke();
+        element.setLength(0);
+        element.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        element.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        appendNumber(width).append("\" height=\"");
+        appendNumber(height).append("\" viewBox=\"0 0 ");
+        appendNumber(width).append(' ');
+        appendNumber(height).append("\">\n");
+        element.append("<rect width=\"100%\" height=\"100%\"");
+        appendPaint(" fill", renderer.getBackground()).append("/>\n");
+        element.append("<g stroke-width=\"");
+        appendNumber(stroke.getLineWidth()).append("\" stroke-linecap=\"");
+        element.append(stroke.getEndCap() == BasicStroke.CAP_BUTT ? "butt" : stroke.getEndCap() == BasicStroke.CAP_ROUND ? "round" : "square");
+        element.append("\" stroke-linejoin=\"");
+        element.append(stroke.getLineJoin() == BasicStroke.JOIN_MITER ? "miter" : stroke.getLineJoin() == BasicStroke.JOIN_ROUND ? "round" : "bevel");
+        element.append("\" stroke-miterlimit=\"");
+        appendNumber(stroke.getMiterLimit()).append("\">\n");
+        out.append(element);
+    }
+
+
+    private void writeFooter(Writer out) throws IOException {
+        out.write("</g>\n</svg>\n");
+    }
+
+
+    /**
+     * Write the element of one Figure object. Stroke and fill share the color of the Figure object,
+     * so the order the canvas draws them in doesn't matter.
+     * @param fig the Figure object
+     * @param out the writer to write to
+     * @throws IOException if the writer fails
+     */
+    private void writeFigure(Figure fig, Writer out) throws IOException {
+        element.setLength(0);
+        double x1 = fig.getX1();
+        double y1 = fig.getY1();
+        double width = fig.getWidth();
+        double height = fig.getHeight();
+        if (fig instanceof Rectangle || fig instanceof Ellipse) {
+            if (width < 0 || height < 0) {
+                return; // Java2D draws nothing for a negative size, and SVG rejects it
+            }
+            if (fig instanceof Rectangle) {
+                element.append("<rect x=\"");
+                appendNumber(x1).append("\" y=\"");
+                appendNumber(y1).append("\" width=\"");
+                appendNumber(width).append("\" height=\"");
+                appendNumber(height).append('"');
+            } else {
+                element.append("<ellipse cx=\"");
+                appendNumber(x1 + width / 2).append("\" cy=\"");
+                appendNumber(y1 + height / 2).append("\" rx=\"");
+                appendNumber(width / 2).append("\" ry=\"");
+                appendNumber(height / 2).append('"');
+            }
+        } else if (fig instanceof Line) {
+            element.append("<line x1=\"");
+            appendNumber(x1).append("\" y1=\"");
+            appendNumber(y1).append("\" x2=\"");
+            appendNumber(x1 + width).append("\" y2=\"");
+            appendNumber(y1 + height).append('"');
+        } else {
+            element.append("<path d=\"");
+            appendPath(fig.getShape2D().getPathIterator(null));
+            element.append('"');
+        }
+        appendPaint(" stroke", fig.getColor());
+        if (fig.getFill() && !(fig instanceof Line || fig instanceof DiagonalCross)) {
+            appendPaint(" fill", fig.getColor());
+        } else {
+            element.append(" fill=\"none\"");
+        }
+        element.append("/>\n");
+        out.append(element);
+    }
+
+
+    private void appendPath(PathIterator path) {
+        boolean first = true;
+        while (!path.isDone()) {
+            int type = path.currentSegment(coords);
+            if (!first) {
+                element.append(' ');
+            }
+            first = false;
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                    element.append('M');
+                    appendPoints(1);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    element.append('L');
+                    appendPoints(1);
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    element.append('Q');
+                    appendPoints(2);
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    element.append('C');
+                    appendPoints(3);
+                    break;
+                default:
+                    element.append('Z');
+            }
+            path.next();
+        }
+    }
+
+
+    private void appendPoints(int count) {
+        for (int i = 0; i < count; i += 1) {
+            if (i > 0) {
+                element.append(' ');
+            }
+            appendNumber(coords[2 * i]).append(',');
+            appendNumber(coords[2 * i + 1]);
+        }
+    }
+
+
+    /**
+     * Append a paint attribute, with an opacity attribute if the color is translucent.
+     * @param name the attribute name with a leading space
+     * @param color the color
+     * @return StringBuilder the element.
+     */
+    private StringBuilder appendPaint(String name, Color color) {
+        element.append(name).append("=\"#");
+        int rgb = color.getRGB() & 0xffffff;
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            element.append(Character.forDigit((rgb >>> shift) & 0xf, 16));
+        }
+        element.append('"');
+        if (color.getAlpha() < 255) {
+            element.append(name).append("-opacity=\"");
+            appendNumber(color.getAlpha() / 255.0).append('"');
+        }
+        return element;
+    }
+
+
+    /**
+     * Append a number, without a fraction if it is whole.
+     * @param value the number
+     * @return StringBuilder the element.
+     */
+    private StringBuilder appendNumber(double value) {
+        if (value == (long) value) {
+            return element.append((long) value);
+        }
+        return element.append(value);
+    }
+}
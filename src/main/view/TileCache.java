@@ -0,0 +1,261 @@
+package main.view;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The TileCache object is a backing store for a canvas split into square tiles.
+ * Each tile keeps its rendered image until a damaged region overlapping it is reported,
+ * and only invalid tiles within the clip are rendered again on the next paint.
+ * The images are kept within a memory budget: after each paint, the least recently painted tiles
+ * are dropped until the rest fit, so panning across a large document doesn't grow the heap.
+ * Tiles painted by the same call are never dropped, so a clip larger than the budget still paints in one pass.
+ * Hits and misses are counted for tuning the tile size.
+ */
+public class TileCache {
+
+    /**
+     * Renders the content of one tile.
+     */
+    public interface TileRenderer {
+
+        /**
+         * Render the content within a region.
+         * @param g the graphics of the tile image, already translated so the region is at its location
+         * @param region the region of the tile in canvas coordinates
+         */
+        void render(Graphics2D g, Rectangle region);
+    }
+
+    private int tileSize;
+    private long maxBytes; // memory budget of the tile images
+    private long bytes; // memory of the tile images
+    private LinkedHashMap<Long, Tile> tiles; // tiles by column and row, least recently painted first
+    private long paintCount; // calls of paint, to tell the tiles painted by the last one
+    private double scaleX; // device scale the tiles were rendered at
+    private double scaleY;
+    private long hitCount; // tiles painted from cache
+    private long missCount; // tiles rendered again
+
+    /**
+     * Construct an empty TileCache object without a memory budget.
+     * @param tileSize the width and height of a tile in canvas pixels
+     * @throws IllegalArgumentException if tileSize is not positive
+     */
+    public TileCache(int tileSize) throws IllegalArgumentException {
+        this(tileSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Construct an empty TileCache object.
+     * @param tileSize the width and height of a tile in canvas pixels
+     * @param maxBytes the memory budget of the tile images in bytes
+     * @throws IllegalArgumentException if tileSize or maxBytes is not positive
+     */
+    public TileCache(int tileSize, long maxBytes) throws IllegalArgumentException {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be positive.");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive.");
+        }
+        this.tileSize = tileSize;
+        this.maxBytes = maxBytes;
+        tiles = new LinkedHashMap<Long, Tile>(16, 0.75f, true);
+    }
+
+    /**
+     * Paint the tiles within a clip, rendering invalid tiles first.
+     * @param g the graphics to paint to
+     * @param clip the region to paint
+     * @param renderer the renderer of invalid tiles
+     */
+    public void paint(Graphics2D g, Rectangle clip, TileRenderer renderer) {
+        double sx = g.getTransform().getScaleX();
+        double sy = g.getTransform().getScaleY();
+        if (sx != scaleX || sy != scaleY) {
+            clear();
+            scaleX = sx;
+            scaleY = sy;
+        }
+        paintCount += 1;
+        int firstColumn = Math.floorDiv(clip.x, tileSize);
+        int firstRow = Math.floorDiv(clip.y, tileSize);
+        int lastColumn = Math.floorDiv(clip.x + clip.width - 1, tileSize);
+        int lastRow = Math.floorDiv(clip.y + clip.height - 1, tileSize);
+        for (int row = firstRow; row <= lastRow; row += 1) {
+            for (int column = firstColumn; column <= lastColumn; column += 1) {
+                Tile tile = tiles.get(key(column, row));
+                if (tile == null) {
+                    tile = new Tile(column, row);
+                    tiles.put(key(column, row), tile);
+                }
+                if (tile.valid) {
+                    hitCount += 1;
+                } else {
+                    missCount += 1;
+                    tile.render(renderer);
+                }
+                tile.painted = paintCount;
+                g.drawImage(tile.image, column * tileSize, row * tileSize, tileSize, tileSize, null);
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Drop the least recently painted tiles until the images fit the memory budget,
+     * keeping the ones painted by the last call.
+     */
+    private void evict() {
+        Iterator<Tile> iterator = tiles.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Tile tile = iterator.next();
+            if (tile.painted == paintCount) {
+                break; // all others were painted by the last call too
+            }
+            iterator.remove();
+            bytes -= tile.getBytes();
+        }
+    }
+
+    /**
+     * Invalidate the tiles overlapping a damaged region.
+     * Invalidating all tiles drops their images, as none of them can be painted again.
+     * @param region the damaged region in canvas coordinates, empty to invalidate nothing, null to invalidate all tiles
+     */
+    public void invalidate(Rectangle2D region) {
+        if (region == null) {
+            clear();
+            return;
+        }
+        if (region.isEmpty()) {
+            return;
+        }
+        int firstColumn = (int) Math.floor(region.getMinX() / tileSize);
+        int firstRow = (int) Math.floor(region.getMinY() / tileSize);
+        int lastColumn = (int) Math.floor(region.getMaxX() / tileSize);
+        int lastRow = (int) Math.floor(region.getMaxY() / tileSize);
+        if ((long) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) > tiles.size()) {
+            // fewer tiles exist than the region covers, test each of them instead
+            for (Tile tile : tiles.values()) {
+                if (tile.column >= firstColumn && tile.column <= lastColumn && tile.row >= firstRow && tile.row <= lastRow) {
+                    tile.valid = false;
+                }
+            }
+            return;
+        }
+        for (int row = firstRow; row <= lastRow; row += 1) {
+            for (int column = firstColumn; column <= lastColumn; column += 1) {
+                Tile tile = tiles.get(key(column, row));
+                if (tile != null) {
+                    tile.valid = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop all tile images, e.g. to free memory.
+     */
+    public void clear() {
+        tiles.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Reset the hit and miss counters.
+     */
+    public void resetCounters() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * @return long the number of tiles painted from cache.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return long the number of tiles rendered again.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return int the number of tiles with an image.
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * @return long the memory of the tile images in bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return int the width and height of a tile in canvas pixels.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @param column the column of a tile
+     * @param row the row of a tile
+     * @return long the key of the tile.
+     */
+    private static long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+
+    /**
+     * A tile image and whether it is up to date.
+     */
+    private class Tile {
+        private final int column;
+        private final int row;
+        private BufferedImage image;
+        private boolean valid;
+        private long painted; // the call of paint that last painted the tile
+
+        private Tile(int column, int row) {
+            this.column = column;
+            this.row = row;
+        }
+
+        private void render(TileRenderer renderer) {
+            if (image == null) {
+                int width = Math.max(1, (int) Math.ceil(tileSize * scaleX));
+                int height = Math.max(1, (int) Math.ceil(tileSize * scaleY));
+                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                bytes += getBytes();
+            }
+            Graphics2D g = image.createGraphics();
+            g.scale(scaleX, scaleY);
+            g.translate(-column * tileSize, -row * tileSize);
+            Rectangle region = new Rectangle(column * tileSize, row * tileSize, tileSize, tileSize);
+            g.setClip(region);
+            renderer.render(g, region);
+            g.dispose();
+            valid = true;
+        }
+
+        /**
+         * @return long the memory of the image in bytes, 4 per pixel.
+         */
+        private long getBytes() {
+            return image == null ? 0 : 4L * image.getWidth() * image.getHeight();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package main.view;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import main.model.figure.Figure;
+
+/**
+ * The TileExporter object renders large images, e.g. exports at print resolution, on a ForkJoinPool.
+ * The output is split into square tiles. Figure objects are first sorted into the tiles their stroked bounds
+ * intersect, keeping their z-order, then every tile renders only its own Figure objects with a FigureRenderer,
+ * directly into its part of the output image through the same transform as a single-threaded render.
+ * The rasterizer clips paths to the clip, which moves a few stroke edge pixels near it, so each tile is rendered
+ * with a clip padded by TILE_PADDING pixels on every side and the pixels of its neighbours it drew over are put back.
+ * The tiles are rendered in 4 phases of every other column and row, so tiles rendered at the same time
+ * never touch the same pixels, and the export matches a single-threaded render exactly.
+ * Rendering each tile into a buffer of its own is not exact: the rasterizer rounds edges in fixed point
+ * relative to the device origin, so moving the origin moves a pixel now and then.
+ * The Figure objects must not change during an export; render a copy, e.g. from a FigureSnapshot, if they may.
+ */
+public class TileExporter {
+    private static final int TILE_PADDING = 16; // pixels rendered around each tile and put back
+    private FigureRenderer renderer;
+    private int tileSize;
+
+    /**
+     * Construct a TileExporter object.
+     * @param renderer the renderer of the tiles
+     * @param tileSize the width and height of a tile in output pixels
+     * @throws IllegalArgumentException if tileSize is not positive
+     */
+    public TileExporter(FigureRenderer renderer, int tileSize) throws IllegalArgumentException {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be positive.");
+        }
+        this.renderer = renderer;
+        this.tileSize = tileSize;
+    }
+
+
+    /**
+     * Render Figure objects into a new image on the common ForkJoinPool.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param transform the transform from model coordinates to image pixels
+     * @return BufferedImage the image.
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public BufferedImage export(List<? extends Figure> figures, int width, int height, AffineTransform transform) throws IllegalArgumentException {
+        return export(figures, width, height, transform, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * Render Figure objects into a new image.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param transform the transform from model coordinates to image pixels
+     * @param pool the pool rendering the tiles
+     * @return BufferedImage the image.
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public BufferedImage export(List<? extends Figure> figures, int width, int height, AffineTransform transform, ForkJoinPool pool) throws IllegalArgumentException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be positive.");
+        }
+        int columns = (width + tileSize - 1) / tileSize;
+        int rows = (height + tileSize - 1) / tileSize;
+        int[][] tiles = sortIntoTiles(figures, columns, rows, transform);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(renderer.getBackground());
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        for (int phase = 0; phase < 4; phase += 1) {
+            int[] phaseTiles = new int[tiles.length];
+            int count = 0;
+            for (int row = phase / 2; row < rows; row += 2) {
+                for (int column = phase % 2; column < columns; column += 2) {
+                    phaseTiles[count] = row * columns + column;
+                    count += 1;
+                }
+            }
+            if (count > 0) {
+                pool.invoke(new RenderTiles(figures, tiles, phaseTiles, columns, transform, image, 0, count));
+            }
+        }
+        return image;
+    }
+
+
+    /**
+     * List the Figure objects of each tile, ordered from bottom to top.
+     * Also builds the cached Shape of every Figure object, so worker threads only read it.
+     * @param figures all Figure objects ordered from top to bottom
+     * @param columns the number of tile columns
+     * @param rows the number of tile rows
+     * @param transform the transform from model coordinates to image pixels
+     * @return int[][] for each tile, row by row, the indexes of its Figure objects, ending with -1 if shorter than the array.
+     */
+    private int[][] sortIntoTiles(List<? extends Figure> figures, int columns, int rows, AffineTransform transform) {
+        int[][] tiles = new int[columns * rows][];
+        int[] counts = new int[tiles.length];
+        double padding = renderer.getStrokePadding();
+        for (int i = figures.size() - 1; i >= 0; i -= 1) {
+            Figure fig = figures.get(i);
+            fig.getShape2D();
+            double x1 = Math.min(fig.getX1(), fig.getX1() + fig.getWidth()) - padding;
+            double y1 = Math.min(fig.getY1(), fig.getY1() + fig.getHeight()) - padding;
+            Rectangle2D bounds = transform.createTransformedShape(new Rectangle2D.Double(
+                x1, y1, Math.abs(fig.getWidth()) + 2 * padding, Math.abs(fig.getHeight()) + 2 * padding)).getBounds2D();
+            int firstColumn = Math.max(0, (int) Math.floor(bounds.getMinX() / tileSize));
+            int firstRow = Math.max(0, (int) Math.floor(bounds.getMinY() / tileSize));
+            int lastColumn = Math.min(columns - 1, (int) Math.floor(bounds.getMaxX() / tileSize));
+            int lastRow = Math.min(rows - 1, (int) Math.floor(bounds.getMaxY() / tileSize));
+            for (int row = firstRow; row <= lastRow; row += 1) {
+                for (int column = firstColumn; column <= lastColumn; column += 1) {
+                    int tile = row * columns + column;
+                    if (tiles[tile] == null) {
+                        tiles[tile] = new int[8];
+                    } else if (counts[tile] == tiles[tile].length) {
+                        tiles[tile] = Arrays.copyOf(tiles[tile], counts[tile] * 2);
+                    }
+                    tiles[tile][counts[tile]] = i;
+                    counts[tile] += 1;
+                }
+            }
+        }
+        for (int tile = 0; tile < tiles.length; tile += 1) {
+            if (tiles[tile] == null) {
+                tiles[tile] = new int[0];
+            } else if (counts[tile] < tiles[tile].length) {
+                tiles[tile][counts[tile]] = -1;
+            }
+        }
+        return tiles;
+    }
+
+
+    /**
+     * Renders a range of the tiles of a phase, splitting it in halves until one tile is left.
+     */
+    private class RenderTiles extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends Figure> figures;
+        private final int[][] tiles;
+        private final int[] phaseTiles; // the tiles of the phase, far enough apart that their padded clips don't meet
+        private final int columns;
+        private final AffineTransform transform;
+        private final BufferedImage image;
+        private final int from; // first index of the range in phaseTiles
+        private final int to; // index after the range
+
+        private RenderTiles(List<? extends Figure> figures, int[][] tiles, int[] phaseTiles, int columns,
+                AffineTransform transform, BufferedImage image, int from, int to) {
+            this.figures = figures;
+            this.tiles = tiles;
+            this.phaseTiles = phaseTiles;
+            this.columns = columns;
+            this.transform = transform;
+            this.image = image;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RenderTiles(figures, tiles, phaseTiles, columns, transform, image, from, middle),
+                    new RenderTiles(figures, tiles, phaseTiles, columns, transform, image, middle, to));
+                return;
+            }
+            int tile = phaseTiles[from];
+            int x = (tile % columns) * tileSize;
+            int y = (tile / columns) * tileSize;
+            int width = Math.min(tileSize, image.getWidth() - x);
+            int height = Math.min(tileSize, image.getHeight() - y);
+            Rectangle2D region;
+            try {
+                region = transform.createInverse().createTransformedShape(
+                    new Rectangle2D.Double(x, y, width, height)).getBounds2D();
+            } catch (NoninvertibleTransformException e) {
+                return; // nothing is visible through a degenerate transform
+            }
+            TileFigures tileFigures = new TileFigures(figures, tiles[tile]);
+            // the padding reaches at most half way into the neighbours, which are in other phases
+            int padding = Math.min(TILE_PADDING, tileSize / 2);
+            Rectangle padded = new Rectangle(x - padding, y - padding, width + 2 * padding, height + 2 * padding)
+                .intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+            Rectangle[] ring = {
+                new Rectangle(padded.x, padded.y, padded.width, y - padded.y),
+                new Rectangle(padded.x, y + height, padded.width, padded.y + padded.height - y - height),
+                new Rectangle(padded.x, y, x - padded.x, height),
+                new Rectangle(x + width, y, padded.x + padded.width - x - width, height)
+            };
+            Raster[] saved = new Raster[ring.length];
+            for (int k = 0; k < ring.length; k += 1) {
+                if (!ring[k].isEmpty()) {
+                    saved[k] = image.getData(ring[k]);
+                }
+            }
+            Graphics2D g2d = image.createGraphics();
+            g2d.setClip(padded);
+            g2d.transform(transform);
+            renderer.paintFigures(g2d, tileFigures, 0, tileFigures.size(), region);
+            g2d.dispose();
+            for (Raster raster : saved) {
+                if (raster != null) {
+                    image.getRaster().setRect(raster);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The Figure objects of one tile, ordered from top to bottom like the list FigureRenderer expects.
+     */
+    private static class TileFigures extends AbstractList<Figure> {
+        private final List<? extends Figure> figures;
+        private final int[] indexes; // bottom to top
+        private final int size;
+
+        private TileFigures(List<? extends Figure> figures, int[] indexes) {
+            this.figures = figures;
+            this.indexes = indexes;
+            int size = 0;
+            while (size < indexes.length && indexes[size] >= 0) {
+                size += 1;
+            }
+            this.size = size;
+        }
+
+        @Override
+        public Figure get(int i) {
+            return figures.get(indexes[size - 1 - i]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
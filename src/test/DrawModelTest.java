@@ -4,11 +4,16 @@ import org.junit.Before;
 import org.junit.Test;
 
 import main.model.*;
+import main.model.history.HistoryEntry;
+import main.model.history.ReboundCommand;
+import main.model.history.RecolorCommand;
 import main.model.figure.Rectangle;
 import main.model.figure.Figure;
 
 import java.awt.Color;
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -129,18 +134,79 @@ public class DrawModelTest {
     }
 
     /**
-     * Test saving deep copy of the state.
+     * Test saving a step of reversible changes.
      */
     @Test
     public void testSaveHistory() {
         model.saveHistory();
-        // ensure copy
         assertEquals(1, model.getUndoStack().size());
-        assertNotSame(model.getCurrentFigure(), model.getUndoStack().get(0));
-        // ensure deep copy
-        Figure savedFigure = model.getUndoStack().get(0).get(0);
-        assertTrue(compareFigure(testFigure, savedFigure));
-        assertNotSame(savedFigure, model.getCurrentFigure());
+        assertEquals(0, model.getUndoStack().get(0).size());
+
+        // successive updates of the current figure merge into one change
+        model.updateCurrentFigure(10, 10, 5, 5);
+        model.updateCurrentFigure(10, 10, 6, 6);
+        model.updateCurrentFigure(Color.pink);
+        HistoryEntry entry = model.getUndoStack().get(0);
+        assertEquals(2, entry.size());
+        assertTrue(entry.getCommands().get(0) instanceof ReboundCommand);
+        assertTrue(entry.getCommands().get(1) instanceof RecolorCommand);
+
+        // the saved step reverts the current state to the state before it
+        model.undo();
+        assertTrue(compareFigure(testFigure, model.getFigures().get(0)));
+    }
+
+    /**
+     * Test undoing and redoing each kind of change.
+     */
+    @Test
+    public void testUndoRedoCommands() {
+        Figure rectangle = model.getCurrentFigure();
+        model.saveHistory();
+        model.createNewFigure("ellipse", 20, 20, Color.pink, false);
+        Figure ellipse = model.getCurrentFigure();
+        model.updateCurrentFigure(20, 20, 10, 10);
+        model.saveHistory();
+        model.shiftCurrentFigure(5, 5);
+        model.shiftCurrentFigure(5, 5);
+        model.saveHistory();
+        model.updateCurrentFigure(Color.blue);
+        model.saveHistory();
+        model.updateCurrentFigure(true);
+        model.saveHistory();
+        model.clearAll();
+        assertEquals(0, model.getFigures().size());
+
+        model.undo(); // clear
+        assertEquals(2, model.getFigures().size());
+        assertSame(ellipse, model.getFigures().get(0));
+        model.undo(); // fill
+        assertEquals(false, ellipse.getFill());
+        model.undo(); // color
+        assertEquals(Color.pink, ellipse.getColor());
+        model.undo(); // shift
+        assertEquals(20, (int) ellipse.getX1());
+        assertEquals(10, (int) ellipse.getWidth());
+        model.undo(); // create and resize
+        assertEquals(1, model.getFigures().size());
+        assertSame(rectangle, model.getFigures().get(0));
+
+        model.redo();
+        model.redo();
+        assertSame(ellipse, model.getFigures().get(0));
+        assertEquals(30, (int) ellipse.getX1());
+        assertEquals(30, (int) ellipse.getY1());
+        model.redo();
+        model.redo();
+        model.redo();
+        assertEquals(0, model.getFigures().size());
+        assertEquals(Color.blue, ellipse.getColor());
+        assertTrue(ellipse.getFill());
+
+        // the spatial index follows undone and redone changes
+        model.undo();
+        model.selectTopFigureContains(35, 35);
+        assertSame(ellipse, model.getCurrentFigure());
     }
 
     /**
@@ -157,34 +223,58 @@ public class DrawModelTest {
             model.updateCurrentFigure(i, i, 0, 0);
         }
         // REDO | CURRENT | UNDO
-        //      | state 11 | state 10, 9, ..., 1
-        // only last 10 records are saved, state 0 was removed
-        assertEquals(10, model.getUndoStack().size());
+        //      | state 11 | state 10, 9, ..., 0
+        // the history is limited by memory, not by count, so state 0 is kept
+        assertEquals(12, model.getUndoStack().size());
         assertEquals(0, model.getRedoStack().size());
         assertEquals(11, (int) model.getCurrentFigure().getX1());
 
         // undo thrice
         model.undo();
         model.undo();
-        ArrayList<Figure> state9 = model.getFigures();
+        List<Figure> state9 = model.getFigures();
         model.undo();
-        // state 11, 10, 9 | state 8 | state 7, 6, .., 1
+        // state 11, 10, 9 | state 8 | state 7, 6, .., 0
         assertEquals(8, (int) model.getFigures().get(0).getX1());
-        assertEquals(7, model.getUndoStack().size());
+        assertEquals(9, model.getUndoStack().size());
         assertEquals(3, model.getRedoStack().size());
 
-        // state 11, 10 | state 9 | state 8, 7, .., 1
+        // state 11, 10 | state 9 | state 8, 7, .., 0
         model.redo();
         assertSame(state9, model.getFigures());
 
-        // null       | state 12 | state 9, 8, .., 1
+        // null       | state 12 | state 9, 8, .., 0
         model.saveHistory();
         model.createNewFigure("rectangle", 12, 12, Color.pink, true);
-        assertEquals(9, model.getUndoStack().size());
+        assertEquals(11, model.getUndoStack().size());
         assertEquals(0, model.getRedoStack().size());
         
     }
 
+    /**
+     * Test the damaged region carried by update events.
+     */
+    @Test
+    public void testDamage() {
+        ArrayList<Object> damages = new ArrayList<Object>();
+        model.addListener(event -> damages.add(event.getNewValue()));
+        model.setDamagePadding(5);
+
+        // union of old and new bounds, padded
+        model.updateCurrentFigure(10, 10, 20, 30);
+        assertEquals(new Rectangle2D.Double(5, 5, 30, 40), damages.get(0));
+        model.shiftCurrentFigure(10, 0);
+        assertEquals(new Rectangle2D.Double(5, 5, 40, 40), damages.get(1));
+        model.updateCurrentFigure(Color.pink);
+        assertEquals(new Rectangle2D.Double(15, 5, 30, 40), damages.get(2));
+
+        // selecting changes nothing visible, clearing changes everything
+        model.selectTopFigureContains(25, 25);
+        assertTrue(((Rectangle2D) damages.get(3)).isEmpty());
+        model.clearAll();
+        assertNull(damages.get(4));
+    }
+
     /**
      * Test undo with no history.
      */
@@ -199,6 +289,49 @@ public class DrawModelTest {
         model.redo();
     }
 
+    /**
+     * Test bringing Figure objects to the front and sending them to the back, and undoing it.
+     */
+    @Test
+    public void testRestack() {
+        model.updateCurrentFigure(10, 10, 50, 50);
+        Figure bottom = model.getCurrentFigure();
+        for (int i = 1; i < 4; i += 1) {
+            model.saveHistory();
+            model.createNewFigure("ellipse", 10 * i, 10 * i, Color.red, true);
+            model.updateCurrentFigure(10 * i, 10 * i, 50, 50);
+        }
+        Figure top = model.getFigures().get(0);
+        model.selectTopFigureContains(15, 15);
+        assertSame(bottom, model.getCurrentFigure());
+
+        model.saveHistory();
+        model.bringCurrentFigureToFront();
+        assertSame(bottom, model.getFigures().get(0));
+        assertSame(top, model.getFigures().get(1));
+        model.selectTopFigureContains(35, 35);
+        assertSame(bottom, model.getCurrentFigure());
+        assertEquals(bottom.getId(), model.snapshot().get(0).getId());
+
+        model.selectTopFigureContains(70, 70);
+        assertSame(top, model.getCurrentFigure());
+        model.saveHistory();
+        model.sendCurrentFigureToBack();
+        assertSame(top, model.getFigures().get(3));
+        model.selectTopFigureContains(55, 55);
+        assertSame(bottom, model.getCurrentFigure());
+
+        model.undo();
+        assertSame(top, model.getFigures().get(1));
+        model.undo();
+        assertSame(top, model.getFigures().get(0));
+        assertSame(bottom, model.getFigures().get(3));
+        model.selectTopFigureContains(55, 55);
+        assertSame(top, model.getCurrentFigure());
+        model.redo();
+        assertSame(bottom, model.getFigures().get(0));
+    }
+
     /** Test clear all Figure objects from state */
     @Test
     public void clearAll() {
@@ -0,0 +1,185 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.DrawModel;
+import main.model.figure.Figure;
+import main.model.figure.FigureRecord;
+import main.model.figure.FigureType;
+import main.model.io.DrawingFile;
+import main.model.io.MappedDrawing;
+
+/**
+ * Test saving and opening documents in the binary format.
+ */
+public class DrawingFileTest {
+    private DrawModel model;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        model = new DrawModel();
+        path = Files.createTempFile("drawing", ".draw");
+        FigureType[] types = FigureType.values();
+        ArrayList<Figure> figures = new ArrayList<Figure>();
+        for (int i = 0; i < 100; i += 1) {
+            Figure figure = types[i % types.length].create(i, 2 * i, i % 2 == 0 ? Color.red : Color.blue, i % 3 == 0);
+            figure.updateBound(i, 2 * i, 10 + i, 5 + i);
+            figures.add(0, figure);
+        }
+        model.loadFigures(figures);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void testSaveAndOpen() throws IOException {
+        DrawingFile.save(model.getFigures(), path);
+        assertEquals(DrawingFile.HEADER_BYTES + 100 * FigureRecord.BYTES, Files.size(path));
+        try (MappedDrawing drawing = DrawingFile.open(path)) {
+            assertEquals(100, drawing.size());
+            for (int i = 0; i < 100; i += 1) {
+                FigureStoreTest.assertSameFigure(model.getFigures().get(i), drawing.get(i).toFigure());
+            }
+        }
+    }
+
+    @Test
+    public void testSaveSnapshot() throws IOException {
+        DrawingFile.save(model.snapshot(), path);
+        try (MappedDrawing drawing = DrawingFile.open(path)) {
+            assertEquals(100, drawing.size());
+            for (int i = 0; i < 100; i += 1) {
+                FigureStoreTest.assertSameFigure(model.getFigures().get(i), drawing.get(i).toFigure());
+            }
+        }
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        DrawingFile.save(model.getFigures(), path);
+        DrawModel loaded = new DrawModel();
+        try (MappedDrawing drawing = DrawingFile.open(path)) {
+            loaded.load(drawing);
+        }
+        assertEquals(100, loaded.getFigures().size());
+        for (int i = 0; i < 100; i += 1) {
+            FigureStoreTest.assertSameFigure(model.getFigures().get(i), loaded.getFigures().get(i));
+        }
+        assertEquals(0, loaded.getHistory().getUndoCount());
+        loaded.selectTopFigureContains(60, 110);
+        assertTrue(loaded.hasCurrentFigure());
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenWrongMagic() throws IOException {
+        Files.write(path, new byte[DrawingFile.HEADER_BYTES]);
+        DrawingFile.open(path);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenTruncated() throws IOException {
+        DrawingFile.save(model.getFigures(), path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        DrawingFile.open(path);
+    }
+
+    @Test
+    public void testOpenNewerVersion() throws IOException {
+        // a later version with a longer header and longer records
+        write(DrawingFile.VERSION + 1, DrawingFile.HEADER_BYTES + 8, FigureRecord.BYTES + 4);
+        try (MappedDrawing drawing = DrawingFile.open(path)) {
+            assertEquals(100, drawing.size());
+            for (int i = 0; i < 100; i += 1) {
+                FigureStoreTest.assertSameFigure(model.getFigures().get(i), drawing.get(i).toFigure());
+            }
+            assertEquals(model.getFigures().get(0).getId(), drawing.getMaxId());
+        }
+    }
+
+    @Test
+    public void testOpenVersion1() throws IOException {
+        write(1, 16, FigureRecord.BYTES);
+        try (MappedDrawing drawing = DrawingFile.open(path)) {
+            assertEquals(100, drawing.size());
+            FigureStoreTest.assertSameFigure(model.getFigures().get(99), drawing.get(99).toFigure());
+            assertEquals(model.getFigures().get(0).getId(), drawing.getMaxId());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenHugeRecords() throws IOException {
+        DrawingFile.save(model.getFigures(), path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(6);
+            file.writeShort(Short.MAX_VALUE);
+            file.setLength(DrawingFile.HEADER_BYTES + 100L * Short.MAX_VALUE);
+        }
+        DrawingFile.open(path);
+    }
+
+    @Test
+    public void testOpenStore() throws IOException {
+        DrawingFile.save(model.getFigures(), path);
+        byte[] saved = Files.readAllBytes(path);
+        DrawModel opened = new DrawModel(DrawingFile.openStore(path));
+        assertEquals(100, opened.getFigures().size());
+        for (int i = 0; i < 100; i += 1) {
+            FigureStoreTest.assertSameFigure(model.getFigures().get(i), opened.getFigures().get(i));
+        }
+        opened.selectTopFigureContains(60, 110);
+        assertTrue(opened.hasCurrentFigure());
+        long id = opened.getCurrentFigure().getId();
+        opened.updateCurrentFigure(Color.green);
+        opened.bringCurrentFigureToFront();
+        opened.createNewFigure("line", 1, 1, Color.black, false);
+        assertTrue(opened.getCurrentFigure().getId() > model.getFigures().get(0).getId());
+        assertEquals(101, opened.getFigures().size());
+        assertEquals(id, opened.getFigures().get(1).getId());
+        assertEquals(Color.green, opened.getFigures().get(1).getColor());
+        // changes stay in memory
+        assertArrayEquals(saved, Files.readAllBytes(path));
+    }
+
+    /**
+     * Write the Figure objects of the model in the format of a version with its header and record sizes.
+     */
+    private void write(int version, int headerBytes, int recordBytes) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(DrawingFile.MAGIC);
+            out.writeShort(version);
+            out.writeShort(recordBytes);
+            out.writeLong(model.getFigures().size());
+            if (version >= 2) {
+                out.writeInt(headerBytes);
+                out.writeInt(0);
+                out.writeLong(model.getFigures().get(0).getId());
+                out.write(new byte[headerBytes - DrawingFile.HEADER_BYTES]);
+            }
+            for (Figure figure : model.getFigures()) {
+                FigureRecord.of(figure).write(out);
+                out.write(new byte[recordBytes - FigureRecord.BYTES]);
+            }
+        }
+    }
+}
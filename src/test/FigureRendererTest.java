@@ -0,0 +1,169 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.DrawModel;
+import main.model.figure.Figure;
+import main.model.figure.FigureType;
+import main.view.FigureRenderer;
+
+/**
+ * Test rendering Figure objects without Swing.
+ */
+public class FigureRendererTest {
+    private DrawModel model;
+    private FigureRenderer renderer;
+
+    @Before
+    public void setUp() {
+        model = new DrawModel();
+        renderer = new FigureRenderer();
+        model.createNewFigure("rectangle", 10, 10, Color.red, true);
+        model.updateCurrentFigure(10, 10, 50, 50);
+        model.createNewFigure("rectangle", 40, 40, Color.blue, true);
+        model.updateCurrentFigure(40, 40, 50, 50);
+    }
+
+    @Test
+    public void testRender() {
+        BufferedImage image = renderer.render(model.getFigures(), 100, 100);
+        assertEquals(Color.white.getRGB(), image.getRGB(2, 2));
+        assertEquals(Color.red.getRGB(), image.getRGB(20, 20));
+        assertEquals(Color.blue.getRGB(), image.getRGB(50, 50)); // the later Figure object is on top
+        assertEquals(Color.blue.getRGB(), image.getRGB(80, 80));
+    }
+
+    @Test
+    public void testRenderTransform() {
+        BufferedImage image = renderer.render(model.getFigures(), 50, 50, AffineTransform.getScaleInstance(0.5, 0.5));
+        assertEquals(Color.red.getRGB(), image.getRGB(10, 10));
+        assertEquals(Color.blue.getRGB(), image.getRGB(40, 40));
+    }
+
+    @Test
+    public void testRenderSnapshot() {
+        BufferedImage image = renderer.render(model.getFigures(), 100, 100);
+        int[] expected = image.getRGB(0, 0, 100, 100, null, 0, 100);
+        BufferedImage snapshotImage = renderer.render(model.snapshot(), 100, 100, new AffineTransform());
+        for (int i = 0; i < expected.length; i += 1) {
+            assertEquals(expected[i], snapshotImage.getRGB(i % 100, i / 100));
+        }
+    }
+
+    @Test
+    public void testBufferReuse() {
+        BufferedImage image = renderer.render(model.getFigures(), 100, 100);
+        assertSame(image, renderer.render(new ArrayList<>(), 100, 100));
+        assertEquals(Color.white.getRGB(), image.getRGB(20, 20)); // cleared before rendering again
+        assertNotSame(image, renderer.render(model.getFigures(), 120, 100));
+    }
+
+    /**
+     * Test that batched rendering, with and without merging, is pixel-identical to rendering Figure objects one by one,
+     * on random documents of runs in few colors, some translucent, with mirrored bounding boxes and scaled transforms.
+     */
+    @Test
+    public void testBatchesPixelIdentical() {
+        Color[] colors = {Color.orange, Color.blue, new Color(255, 0, 0, 128)};
+        double[] scales = {1, 1.37, 0.5, 2};
+        for (int seed = 0; seed < 200; seed += 1) {
+            Random random = new Random(seed);
+            ArrayList<Figure> figures = new ArrayList<Figure>();
+            for (int i = 0; i < 40; i += 1) {
+                FigureType type = FigureType.values()[random.nextInt(FigureType.values().length)];
+                Figure figure = type.create(random.nextInt(200), random.nextInt(200), colors[random.nextInt(colors.length)], random.nextBoolean());
+                figure.updateArea(random.nextInt(160) - 80, random.nextInt(160) - 80);
+                figures.add(figure);
+            }
+            AffineTransform transform = AffineTransform.getScaleInstance(scales[seed % scales.length], scales[seed % scales.length]);
+            BufferedImage expected = new BufferedImage(260, 260, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = expected.createGraphics();
+            g2d.setColor(Color.white);
+            g2d.fillRect(0, 0, 260, 260);
+            g2d.transform(transform);
+            for (int i = figures.size() - 1; i >= 0; i -= 1) {
+                renderer.paintFigure(g2d, figures.get(i));
+            }
+            g2d.dispose();
+            int[] expectedPixels = expected.getRGB(0, 0, 260, 260, null, 0, 260);
+            for (boolean merge : new boolean[] {false, true}) {
+                renderer.setMergeBatches(merge);
+                BufferedImage image = renderer.render(figures, 260, 260, transform);
+                int[] pixels = image.getRGB(0, 0, 260, 260, null, 0, 260);
+                for (int i = 0; i < pixels.length; i += 1) {
+                    assertEquals("seed " + seed + " merge " + merge + " pixel " + i, expectedPixels[i], pixels[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that Figure objects larger than the level of detail are rendered exactly,
+     * and smaller ones as a point or as their stroked bounding box in device pixels.
+     */
+    @Test
+    public void testLevelOfDetail() {
+        int[] expected = renderer.render(model.getFigures(), 100, 100).getRGB(0, 0, 100, 100, null, 0, 100);
+        renderer.setLevelOfDetail(2, 6);
+        int[] pixels = renderer.render(model.getFigures(), 100, 100).getRGB(0, 0, 100, 100, null, 0, 100);
+        for (int i = 0; i < pixels.length; i += 1) {
+            assertEquals("pixel " + i, expected[i], pixels[i]);
+        }
+
+        ArrayList<Figure> figures = new ArrayList<Figure>();
+        figures.add(FigureType.ELLIPSE.create(100, 100, Color.red, false)); // 15 units stroked, 0.75 pixels
+        figures.get(0).updateArea(10, 10);
+        BufferedImage image = renderer.render(figures, 20, 20, AffineTransform.getScaleInstance(0.05, 0.05));
+        assertEquals(Color.red.getRGB(), image.getRGB(5, 5));
+        assertEquals(1, countPixels(image, Color.red));
+
+        figures.set(0, FigureType.HEART.create(100, 100, Color.red, false)); // 55 units stroked, 5.5 pixels
+        figures.get(0).updateArea(50, 20);
+        image = renderer.render(figures, 20, 20, AffineTransform.getScaleInstance(0.1, 0.1));
+        assertEquals(Color.red.getRGB(), image.getRGB(9, 9));
+        assertEquals(Color.red.getRGB(), image.getRGB(15, 12));
+        assertEquals(Color.white.getRGB(), image.getRGB(12, 11)); // outlined, as the stroke is thinner than a pixel
+        assertEquals(18, countPixels(image, Color.red));
+        figures.get(0).updateFill(true);
+        image = renderer.render(figures, 20, 20, AffineTransform.getScaleInstance(0.1, 0.1));
+        assertEquals(28, countPixels(image, Color.red));
+
+        renderer.setLevelOfDetail(0, 0);
+        image = renderer.render(figures, 20, 20, AffineTransform.getScaleInstance(0.1, 0.1));
+        assertEquals(Color.white.getRGB(), image.getRGB(9, 9)); // the heart has no corners
+    }
+
+    private static int countPixels(BufferedImage image, Color color) {
+        int count = 0;
+        for (int y = 0; y < image.getHeight(); y += 1) {
+            for (int x = 0; x < image.getWidth(); x += 1) {
+                if (image.getRGB(x, y) == color.getRGB()) {
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLevelOfDetail() {
+        renderer.setLevelOfDetail(-1, 6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRenderInvalidSize() {
+        renderer.render(model.getFigures(), 0, 100);
+    }
+}
@@ -1,9 +1,11 @@
 package test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -106,4 +108,30 @@ public class FigureShapeTest {
         assertFalse(heart.contains(10, 20));
         assertFalse(triangle.contains(10, 10));
     }
+
+    /**
+     * Test that the closed-form contains of each subclass agrees with intersecting its Shape object with a 2x2 box,
+     * on random figures with mirrored and zero-size bounding boxes, at whole, half and random coordinates,
+     * which put many boxes exactly on edges and corners.
+     */
+    @Test
+    public void testContainsMatchesShape() {
+        Random random = new Random(7);
+        for (FigureType type : FigureType.values()) {
+            for (int i = 0; i < 2000; i += 1) {
+                boolean whole = i % 2 == 0;
+                Figure fig = type.create(whole ? random.nextInt(40) : random.nextDouble() * 40,
+                    whole ? random.nextInt(40) : random.nextDouble() * 40, Color.pink, false);
+                double width = whole ? random.nextInt(41) - 20 : random.nextDouble() * 40 - 20;
+                double height = whole ? random.nextInt(41) - 20 : random.nextDouble() * 40 - 20;
+                fig.updateArea(i % 10 == 1 ? 0 : width, i % 10 == 3 ? 0 : height);
+                for (int k = 0; k < 50; k += 1) {
+                    double x = whole ? random.nextInt(141) / 2.0 - 15 : random.nextDouble() * 70 - 15;
+                    double y = whole ? random.nextInt(141) / 2.0 - 15 : random.nextDouble() * 70 - 15;
+                    assertEquals(type + " " + fig.getAttributes() + " at " + x + ", " + y,
+                        fig.getShape2D().intersects(x, y, 2, 2), fig.contains(x, y));
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.DrawModel;
+import main.model.figure.Figure;
+import main.model.figure.FigureRecord;
+import main.model.figure.FigureStore;
+import main.model.figure.FigureType;
+
+/**
+ * Test storing Figure objects in primitive arrays.
+ */
+public class FigureStoreTest {
+    private DrawModel model;
+    private FigureStore store;
+
+    @Before
+    public void setUp() {
+        model = new DrawModel();
+        FigureType[] types = FigureType.values();
+        ArrayList<Figure> figures = new ArrayList<Figure>();
+        for (int i = 0; i < 50; i += 1) {
+            Figure figure = types[i % types.length].create(3 * i, 2 * i, new Color(i, 255 - i, 7, 200), i % 3 == 0);
+            figure.updateBound(3 * i, 2 * i, 10 + i, i % 4 == 0 ? -5 : 20);
+            figures.add(0, figure);
+        }
+        model.loadFigures(figures);
+        store = FigureStore.of(model.getFigures());
+    }
+
+    @Test
+    public void testViews() {
+        assertEquals(50, store.size());
+        List<Figure> figures = model.getFigures();
+        for (int i = 0; i < figures.size(); i += 1) {
+            assertSameFigure(figures.get(i), store.get(i));
+            assertEquals(FigureType.of(figures.get(i)), store.getType(i));
+            assertEquals(figures.get(i).getFill(), store.getFill(i));
+        }
+        // views are detached until set back
+        Figure view = store.get(4);
+        view.shift(1, 1);
+        assertEquals(figures.get(4).getX1(), store.getX1(4), 0);
+        store.set(4, view);
+        assertEquals(figures.get(4).getX1() + 1, store.getX1(4), 0);
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        List<Figure> figures = model.getFigures();
+        Figure removed = store.remove(10);
+        assertSameFigure(figures.get(10), removed);
+        assertEquals(49, store.size());
+        assertSameFigure(figures.get(11), store.get(10));
+        assertEquals(figures.get(11).getFill(), store.getFill(10));
+        assertFalse(store.getFill(48) != figures.get(49).getFill());
+
+        store.add(0, removed);
+        assertSameFigure(removed, store.get(0));
+        assertSameFigure(figures.get(0), store.get(1));
+        assertEquals(figures.get(0).getFill(), store.getFill(1));
+        store.clear();
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void testScans() {
+        for (int x = 0; x < 160; x += 7) {
+            for (int y = 0; y < 110; y += 5) {
+                model.selectTopFigureContains(x, y);
+                int index = store.indexOfTopContains(x, y);
+                if (model.hasCurrentFigure()) {
+                    assertEquals(model.getCurrentFigure().getId(), store.getId(index));
+                } else {
+                    assertEquals(-1, index);
+                }
+            }
+        }
+        assertEquals(50, store.countIntersecting(new Rectangle2D.Double(0, 0, 500, 500)));
+        assertEquals(0, store.countIntersecting(new Rectangle2D.Double(0, 200, 5, 5)));
+    }
+
+    @Test
+    public void testLoadIntoModel() {
+        DrawModel loaded = new DrawModel();
+        loaded.loadFigures(store.toFigures());
+        for (int i = 0; i < store.size(); i += 1) {
+            assertSameFigure(model.getFigures().get(i), loaded.getFigures().get(i));
+        }
+    }
+
+    @Test
+    public void testViewsKeepIds() {
+        long before = FigureType.of("line").create(0, 0, Color.black, false).getId();
+        for (int i = 0; i < store.size(); i += 1) {
+            store.get(i);
+        }
+        store.indexOfTopContains(30, 20);
+        store.indexOfTopContains(500, 500);
+        assertEquals(before + 1, FigureType.of("line").create(0, 0, Color.black, false).getId());
+    }
+
+    @Test
+    public void testDrawModelOnStore() {
+        DrawModel stored = new DrawModel(new FigureStore());
+        DrawModel objects = new DrawModel();
+        edit(stored);
+        edit(objects);
+        assertSameFigures(objects, stored);
+        for (int i = 0; i < 3; i += 1) {
+            stored.undo();
+            objects.undo();
+            assertSameFigures(objects, stored);
+        }
+        stored.redo();
+        objects.redo();
+        assertSameFigures(objects, stored);
+        List<FigureRecord> expected = objects.snapshot();
+        List<FigureRecord> actual = stored.snapshot();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i += 1) {
+            assertEquals(expected.get(i).toFigure().getAttributes(), actual.get(i).toFigure().getAttributes());
+        }
+    }
+
+    /**
+     * Edit a DrawModel object the same way each time: create, select, change, restack, clear and undo.
+     */
+    static void edit(DrawModel model) {
+        FigureType[] types = FigureType.values();
+        for (int i = 0; i < 20; i += 1) {
+            model.saveHistory();
+            model.createNewFigure(types[i % types.length].getName(), 5 * i, 4 * i, new Color(i, 100, 7), i % 2 == 0);
+            model.updateCurrentFigure(5 * i, 4 * i, 30, 25);
+        }
+        model.snapshot();
+        model.saveHistory();
+        model.selectTopFigureContains(12, 10);
+        model.updateCurrentFigure(Color.red);
+        model.updateCurrentFigure(true);
+        model.shiftCurrentFigure(3, 3);
+        model.sendCurrentFigureToBack();
+        model.saveHistory();
+        model.selectTopFigureContains(60, 50);
+        model.updateCurrentFigure(60, 50, 40, 40);
+        model.bringCurrentFigureToFront();
+        model.saveHistory();
+        model.clearAll();
+        model.undo();
+        model.saveHistory();
+        model.selectTopFigureContains(95, 80);
+        model.updateCurrentFigure(false);
+        model.emptyCurrentFigure();
+    }
+
+    /**
+     * Assert that a Figure object read back from a store is the same as the one stored, id included.
+     */
+    static void assertSameFigure(Figure figure, Figure copy) {
+        assertEquals(figure.getId(), copy.getId());
+        assertEquals(figure.getClass(), copy.getClass());
+        assertEquals(figure.getAttributes(), copy.getAttributes());
+    }
+
+    /**
+     * Assert that two DrawModel objects hold the same Figure objects in the same order, ids aside.
+     */
+    static void assertSameFigures(DrawModel expected, DrawModel actual) {
+        List<Figure> figures = expected.getFigures();
+        assertEquals(figures.size(), actual.getFigures().size());
+        for (int i = 0; i < figures.size(); i += 1) {
+            assertEquals(figures.get(i).getClass(), actual.getFigures().get(i).getClass());
+            assertEquals(figures.get(i).getAttributes(), actual.getFigures().get(i).getAttributes());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() {
+        store.get(50);
+    }
+}
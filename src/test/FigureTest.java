@@ -8,6 +8,8 @@ import org.junit.Test;
 import main.model.figure.*;
 
 import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Testing general Figure object's functionality.
@@ -103,4 +105,39 @@ public class FigureTest {
         assertEquals(figure.getFill(), figureClone.getFill());
     }
 
+    /**
+     * Test caching the Shape object until the bounding box changes.
+     */
+    @Test
+    public void testShapeCache() {
+        Shape shape = figure.getShape2D();
+        assertSame(shape, figure.getShape2D());
+
+        // color and fill don't change the geometry
+        figure.updateColor(Color.pink);
+        figure.updateFill(true);
+        assertSame(shape, figure.getShape2D());
+
+        // every bounding box update rebuilds the geometry
+        figure.updateBound(5, 5, 5, 5);
+        Shape updated = figure.getShape2D();
+        assertNotSame(shape, updated);
+        assertEquals(new Rectangle2D.Double(5, 5, 5, 5), updated);
+        figure.updateArea(6, 6);
+        assertNotSame(updated, figure.getShape2D());
+        updated = figure.getShape2D();
+        figure.updateAnchorPoint(1, 1);
+        assertNotSame(updated, figure.getShape2D());
+        updated = figure.getShape2D();
+        figure.shift(1, 1);
+        assertNotSame(updated, figure.getShape2D());
+        assertEquals(new Rectangle2D.Double(2, 2, 6, 6), figure.getShape2D());
+
+        // clones don't share the cache
+        Figure figureClone = figure.clone();
+        assertNotSame(figure.getShape2D(), figureClone.getShape2D());
+        figureClone.shift(1, 1);
+        assertEquals(new Rectangle2D.Double(2, 2, 6, 6), figure.getShape2D());
+    }
+
 }
@@ -0,0 +1,145 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.DrawModel;
+import main.model.figure.Figure;
+import main.model.history.History;
+
+/**
+ * Test the memory budget of the History object and its spill to disk.
+ */
+public class HistoryTest {
+    private DrawModel model;
+
+    @Before
+    public void setup() {
+        model = new DrawModel();
+        model.setHistoryBudget(2000);
+    }
+
+    @After
+    public void teardown() {
+        model.getHistory().close();
+    }
+
+    /**
+     * Test undoing every step after most of them spilled to disk.
+     */
+    @Test
+    public void testUndoSpilledSteps() {
+        for (int i = 0; i < 100; i += 1) {
+            model.saveHistory();
+            model.createNewFigure("rectangle", i, i, Color.pink, false);
+            model.updateCurrentFigure(i, i, 10, 10);
+            model.saveHistory();
+            model.shiftCurrentFigure(1, 1);
+            model.updateCurrentFigure(Color.blue);
+            model.updateCurrentFigure(true);
+        }
+        History history = model.getHistory();
+        assertEquals(200, history.getUndoCount());
+        assertTrue(history.getSpilledCount() > 150);
+        assertTrue(history.getMemorySize() <= 2000);
+
+        // undo steps read back from disk
+        for (int i = 0; i < 160; i += 1) {
+            model.undo();
+        }
+        assertEquals(20, model.getFigures().size());
+        Figure top = model.getFigures().get(0);
+        assertEquals(20, (int) top.getX1());
+        assertEquals(Color.blue, top.getColor());
+        model.undo();
+        assertEquals(19, (int) top.getX1());
+        assertEquals(10, (int) top.getWidth());
+        assertEquals(Color.pink, top.getColor());
+
+        for (int i = 0; i < 39; i += 1) {
+            model.undo();
+        }
+        assertEquals(0, model.getFigures().size());
+        assertEquals(0, history.getUndoCount());
+
+        for (int i = 0; i < 200; i += 1) {
+            model.redo();
+        }
+        assertEquals(100, model.getFigures().size());
+        assertEquals(100, (int) model.getFigures().get(0).getX1());
+        assertEquals(Color.blue, model.getFigures().get(0).getColor());
+    }
+
+    /**
+     * Test undoing a clear after it spilled to disk.
+     */
+    @Test
+    public void testUndoSpilledClear() {
+        model.setHistoryBudget(200);
+        for (int i = 0; i < 50; i += 1) {
+            model.createNewFigure("ellipse", i, i, Color.pink, true);
+            model.updateCurrentFigure(i, i, 10, 10);
+        }
+        Figure bottom = model.getFigures().get(49);
+        model.saveHistory();
+        model.clearAll();
+        for (int i = 0; i < 10; i += 1) {
+            model.saveHistory();
+            model.createNewFigure("line", i, i, Color.pink, false);
+        }
+        // the clear is the oldest step, so it spilled first
+        assertEquals(11, model.getHistory().getUndoCount());
+        assertTrue(model.getUndoStack().size() < 11);
+
+        for (int i = 0; i < 11; i += 1) {
+            model.undo();
+        }
+        assertEquals(50, model.getFigures().size());
+        Figure restored = model.getFigures().get(49);
+        assertNotSame(bottom, restored);
+        assertEquals(bottom.getId(), restored.getId());
+        assertEquals(0, (int) restored.getX1());
+
+        // restored figures are selectable and editable by the next steps
+        model.selectTopFigureContains(54, 54);
+        assertEquals(model.getFigures().get(0), model.getCurrentFigure());
+        model.redo();
+        assertEquals(0, model.getFigures().size());
+    }
+
+    /**
+     * Test undoing a spilled step that draws a Figure object and then clears it with the others.
+     * The commands before the clear act on the Figure objects the clear brings back.
+     */
+    @Test
+    public void testUndoSpilledDrawThenClear() {
+        model.createNewFigure("rectangle", 5, 5, Color.pink, false);
+        model.updateCurrentFigure(5, 5, 10, 10);
+        long kept = model.getCurrentFigure().getId();
+        model.saveHistory();
+        model.createNewFigure("ellipse", 40, 40, Color.blue, true);
+        model.updateCurrentFigure(40, 40, 20, 20);
+        model.clearAll();
+        model.setHistoryBudget(100);
+        for (int i = 0; i < 30; i += 1) {
+            model.saveHistory();
+            model.createNewFigure("line", i, i, Color.pink, false);
+        }
+        assertTrue(model.getHistory().getSpilledCount() > 0);
+
+        for (int i = 0; i < 31; i += 1) {
+            model.undo();
+        }
+        assertEquals(1, model.getFigures().size());
+        assertEquals(kept, model.getFigures().get(0).getId());
+        model.redo();
+        assertEquals(0, model.getFigures().size());
+    }
+}
@@ -0,0 +1,165 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.DrawModel;
+import main.model.figure.Figure;
+import main.model.figure.FigureType;
+import main.model.io.Journal;
+
+/**
+ * Test journaling DrawModel changes and recovering them.
+ */
+public class JournalTest {
+    private Path directory;
+    private DrawModel model;
+    private Journal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        model = new DrawModel();
+        journal = Journal.open(directory, Long.MAX_VALUE);
+        model.setJournal(journal);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Make every kind of change, including undone ones.
+     * @return Figure the Figure object shifted and recolored.
+     */
+    private Figure edit() {
+        FigureType[] types = FigureType.values();
+        for (int i = 0; i < 20; i += 1) {
+            model.saveHistory();
+            model.createNewFigure(types[i % types.length].getName(), i, i, Color.red, false);
+            model.updateCurrentFigure(i, i, 10, 20);
+        }
+        model.selectTopFigureContains(5, 10);
+        Figure selected = model.getCurrentFigure();
+        model.saveHistory();
+        model.shiftCurrentFigure(3, 4);
+        model.updateCurrentFigure(Color.blue);
+        model.saveHistory();
+        model.updateCurrentFigure(true);
+        model.undo(); // fill
+        model.saveHistory();
+        model.clearAll();
+        model.undo(); // clear
+        return selected;
+    }
+
+    private void assertRecovered(List<Figure> expected) throws IOException {
+        ArrayList<Figure> recovered = Journal.recover(directory);
+        assertEquals(expected.size(), recovered.size());
+        for (int i = 0; i < expected.size(); i += 1) {
+            Figure figure = expected.get(i);
+            Figure copy = recovered.get(i);
+            assertEquals(figure.getId(), copy.getId());
+            assertEquals(figure.getClass(), copy.getClass());
+            assertEquals(figure.getAttributes(), copy.getAttributes());
+        }
+    }
+
+    @Test
+    public void testRecover() throws IOException {
+        Figure selected = edit();
+        journal.flush();
+        assertRecovered(model.getFigures());
+        Figure shifted = Journal.recover(directory).get(model.getFigures().indexOf(selected));
+        assertEquals(8, shifted.getX1(), 0);
+        assertEquals(Color.blue, shifted.getColor());
+        assertFalse(shifted.getFill());
+    }
+
+    @Test
+    public void testRecoverIntoModel() throws IOException {
+        edit();
+        journal.flush();
+        DrawModel recovered = new DrawModel();
+        recovered.loadFigures(Journal.recover(directory));
+        recovered.selectTopFigureContains(8, 14);
+        assertTrue(recovered.hasCurrentFigure());
+        assertEquals(model.getFigures().get(0).getId(), recovered.getFigures().get(0).getId());
+    }
+
+    @Test
+    public void testRestack() throws IOException {
+        edit();
+        model.selectTopFigureContains(5, 10);
+        model.bringCurrentFigureToFront();
+        model.selectTopFigureContains(20, 25);
+        model.sendCurrentFigureToBack();
+        model.selectTopFigureContains(12, 12);
+        model.bringCurrentFigureToFront();
+        model.saveHistory();
+        model.undo();
+        journal.flush();
+        assertRecovered(model.getFigures());
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        edit();
+        journal.flush();
+        Path segment = directory.resolve("journal-" + journal.getGeneration() + ".log");
+        byte[] bytes = Files.readAllBytes(segment);
+        // a record cut short by a crash
+        Files.write(segment, new byte[] {0, 0, 0, 50, 1, 2, 3}, StandardOpenOption.APPEND);
+        assertRecovered(model.getFigures());
+        // a corrupted record is dropped with everything after it, here the last undo of the clear
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(segment, bytes);
+        assertEquals(0, Journal.recover(directory).size());
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        edit();
+        int generation = journal.getGeneration();
+        journal.checkpoint(model.snapshot());
+        model.createNewFigure("ellipse", 50, 50, Color.green, true);
+        model.updateCurrentFigure(50, 50, 5, 5);
+        journal.close();
+        assertTrue(Files.exists(directory.resolve("snapshot-" + (generation + 1) + ".draw")));
+        assertFalse(Files.exists(directory.resolve("journal-" + generation + ".log")));
+        assertRecovered(model.getFigures());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        edit();
+        journal.close();
+        DrawModel reopened = new DrawModel();
+        reopened.loadFigures(Journal.recover(directory));
+        journal = Journal.open(directory, Long.MAX_VALUE);
+        reopened.setJournal(journal);
+        reopened.createNewFigure("rectangle", 70, 70, Color.pink, false);
+        journal.flush();
+        assertRecovered(reopened.getFigures());
+        assertEquals(model.getFigures().size() + 1, reopened.getFigures().size());
+    }
+}
@@ -0,0 +1,98 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import main.controller.DrawController;
+import main.metrics.LatencyHistogram;
+import main.metrics.Metrics;
+import main.metrics.OperationEvent;
+import main.model.ControlModel;
+import main.model.DrawModel;
+
+/**
+ * Test timing operations with LatencyHistogram and Metrics objects.
+ */
+public class MetricsTest {
+    /**
+     * Test that percentiles are reported within 12.5% of the recorded durations.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (long nanos = 1; nanos <= 1000; nanos += 1) {
+            histogram.record(nanos * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getMean(), 1e-6);
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500000, histogram.getPercentile(50), 500000 * 0.125);
+        assertEquals(990000, histogram.getPercentile(99), 990000 * 0.125);
+        assertTrue(histogram.getPercentile(50) >= 500000);
+        assertEquals(1000000, histogram.getPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentileOutOfRange() {
+        new LatencyHistogram().getPercentile(101);
+    }
+
+    /**
+     * Test that controller actions are timed by name.
+     */
+    @Test
+    public void testControllerActions() {
+        DrawController controller = new DrawController(new DrawModel(), new ControlModel());
+        controller.pressedCanvas(10, 10);
+        controller.draggedCanvas(50, 50, false);
+        controller.releasedCanvas();
+        controller.pressedCanvas(60, 60);
+        controller.undo();
+        Metrics metrics = controller.getMetrics();
+        assertEquals(2, metrics.getHistogram("pressedCanvas").getCount());
+        assertEquals(1, metrics.getHistogram("draggedCanvas").getCount());
+        assertEquals(1, metrics.getHistogram("undo").getCount());
+        assertEquals(0, metrics.getHistogram("redo").getCount());
+        assertTrue(metrics.toString().contains("pressedCanvas: count=2"));
+        metrics.reset();
+        assertEquals(0, metrics.getHistogram("pressedCanvas").getCount());
+    }
+
+    /**
+     * Test that timed operations are emitted to a flight recording with their figure count.
+     */
+    @Test
+    public void testFlightRecorderEvents() throws IOException {
+        DrawController controller = new DrawController(new DrawModel(), new ControlModel());
+        Path file = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(OperationEvent.NAME);
+            recording.start();
+            controller.pressedCanvas(10, 10);
+            controller.draggedCanvas(50, 50, false);
+            controller.clearAll();
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertEquals(3, events.size());
+        assertEquals("pressedCanvas", events.get(0).getString("operation"));
+        assertEquals(1, events.get(0).getInt("figureCount"));
+        assertEquals("clearAll", events.get(2).getString("operation"));
+        assertEquals(0, events.get(2).getInt("figureCount"));
+    }
+}
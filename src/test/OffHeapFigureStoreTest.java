@@ -0,0 +1,186 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.DrawModel;
+import main.model.figure.Figure;
+import main.model.figure.FigureType;
+import main.model.figure.OffHeapFigureStore;
+import main.model.figure.Rectangle;
+import main.model.io.DrawingFile;
+import main.view.FigureRenderer;
+import main.view.SvgExporter;
+
+/**
+ * Test keeping Figure objects as records outside the heap.
+ */
+public class OffHeapFigureStoreTest {
+    private DrawModel model;
+    private OffHeapFigureStore store;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        model = new DrawModel();
+        FigureType[] types = FigureType.values();
+        ArrayList<Figure> figures = new ArrayList<Figure>();
+        for (int i = 0; i < 60; i += 1) {
+            Figure figure = types[i % types.length].create(4 * i, 3 * i, i % 2 == 0 ? Color.red : new Color(0, 0, 255, 128), i % 3 == 0);
+            figure.updateBound(4 * i, 3 * i, 30 - i, 25);
+            figures.add(0, figure);
+        }
+        model.loadFigures(figures);
+        file = Files.createTempFile("figures", ".bin");
+        store = OffHeapFigureStore.mapped(file);
+        store.addAll(model.getFigures());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testList() {
+        List<Figure> figures = model.getFigures();
+        assertEquals(60, store.size());
+        for (int i = 0; i < figures.size(); i += 1) {
+            FigureStoreTest.assertSameFigure(figures.get(i), store.get(i));
+        }
+        FigureStoreTest.assertSameFigure(figures.get(20), store.remove(20));
+        FigureStoreTest.assertSameFigure(figures.get(21), store.get(20));
+        Figure top = new Rectangle(1, 2, Color.green, true);
+        store.add(0, top);
+        FigureStoreTest.assertSameFigure(top, store.get(0));
+        FigureStoreTest.assertSameFigure(figures.get(0), store.get(1));
+        FigureStoreTest.assertSameFigure(figures.get(59), store.get(59));
+        store.set(0, figures.get(20));
+        FigureStoreTest.assertSameFigure(figures.get(20), store.get(0));
+    }
+
+    @Test
+    public void testDirectChunks() {
+        OffHeapFigureStore direct = new OffHeapFigureStore();
+        Figure figure = new Rectangle(0, 0, Color.red, false);
+        for (int i = 0; i < 70000; i += 1) {
+            figure.updateBound(i, 1, 2, 3);
+            direct.add(0, figure);
+        }
+        assertEquals(69999, direct.get(0).getX1(), 0);
+        assertEquals(0, direct.get(69999).getX1(), 0);
+        direct.remove(69999);
+        assertEquals(1, direct.get(69998).getX1(), 0);
+        // the 2x2 box tested at the point reaches the top Rectangle object at x = 3
+        assertEquals(3, direct.getRecord(direct.indexOfTopContains(1.5, 2)).getX1(), 0);
+    }
+
+    @Test
+    public void testHitTest() {
+        for (int x = 0; x < 260; x += 6) {
+            for (int y = 0; y < 200; y += 4) {
+                model.selectTopFigureContains(x, y);
+                int index = store.indexOfTopContains(x, y);
+                if (model.hasCurrentFigure()) {
+                    assertEquals(model.getCurrentFigure().getId(), store.getRecord(index).getId());
+                } else {
+                    assertEquals(-1, index);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRender() {
+        FigureRenderer renderer = new FigureRenderer();
+        AffineTransform transform = AffineTransform.getScaleInstance(1.5, 1.5);
+        BufferedImage expected = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        renderer.render(model.getFigures(), expected, transform);
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        renderer.render(store, image, transform);
+        assertArrayEquals(expected.getRGB(0, 0, 400, 300, null, 0, 400), image.getRGB(0, 0, 400, 300, null, 0, 400));
+    }
+
+    @Test
+    public void testExport() throws IOException {
+        SvgExporter exporter = new SvgExporter(new FigureRenderer());
+        StringWriter expected = new StringWriter();
+        exporter.write(model.getFigures(), 400, 300, expected);
+        StringWriter svg = new StringWriter();
+        exporter.write(store, 400, 300, svg);
+        assertEquals(expected.toString(), svg.toString());
+
+        Path saved = Files.createTempFile("drawing", ".draw");
+        Path copied = Files.createTempFile("drawing", ".draw");
+        try {
+            DrawingFile.save(model.getFigures(), saved);
+            DrawingFile.save(store, copied);
+            assertArrayEquals(Files.readAllBytes(saved), Files.readAllBytes(copied));
+        } finally {
+            Files.deleteIfExists(saved);
+            Files.deleteIfExists(copied);
+        }
+    }
+
+    @Test
+    public void testMove() {
+        List<Figure> figures = model.getFigures();
+        store.move(5, 40);
+        FigureStoreTest.assertSameFigure(figures.get(5), store.get(40));
+        FigureStoreTest.assertSameFigure(figures.get(6), store.get(5));
+        FigureStoreTest.assertSameFigure(figures.get(40), store.get(39));
+        store.move(40, 5);
+        for (int i = 0; i < figures.size(); i += 1) {
+            FigureStoreTest.assertSameFigure(figures.get(i), store.get(i));
+        }
+    }
+
+    @Test
+    public void testReadsKeepIds() {
+        long before = new Rectangle(0, 0, Color.black, false).getId();
+        for (int i = 0; i < store.size(); i += 1) {
+            store.get(i);
+        }
+        store.indexOfTopContains(40, 30);
+        store.visit(0, store.size(), null, 0, new OffHeapFigureStore.Visitor() {
+            public void visit(int index, Figure figure) {
+            }
+        });
+        assertEquals(before + 1, new Rectangle(0, 0, Color.black, false).getId());
+    }
+
+    @Test
+    public void testDrawModelOnStore() throws IOException {
+        DrawModel objects = new DrawModel();
+        DrawModel stored = new DrawModel(store.newEmpty());
+        FigureStoreTest.edit(objects);
+        FigureStoreTest.edit(stored);
+        FigureStoreTest.assertSameFigures(objects, stored);
+        objects.undo();
+        stored.undo();
+        FigureStoreTest.assertSameFigures(objects, stored);
+
+        FigureRenderer renderer = new FigureRenderer();
+        renderer.setMergeBatches(true);
+        BufferedImage expected = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        renderer.render(objects.getFigures(), expected, new AffineTransform());
+        BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        renderer.render(stored.getFigures(), image, new AffineTransform());
+        assertArrayEquals(expected.getRGB(0, 0, 200, 150, null, 0, 200), image.getRGB(0, 0, 200, 150, null, 0, 200));
+    }
+}
@@ -0,0 +1,150 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import main.controller.DrawController;
+import main.model.ControlModel;
+import main.model.DrawModel;
+import main.view.CanvasPanel;
+import main.view.PerformanceHud;
+
+/**
+ * Test collecting and drawing the numbers of the PerformanceHud.
+ */
+public class PerformanceHudTest {
+    @Test
+    public void testHiddenCollectsNothing() {
+        PerformanceHud hud = new PerformanceHud();
+        hud.countFigures(5, 5);
+        hud.countModelEvent();
+        hud.endFrame(1000);
+        hud.tick(System.nanoTime() + 2000000000L);
+        assertFalse(hud.isVisible());
+        assertEquals(0, hud.getLastFrameNanos());
+        assertEquals(0, hud.getDrawn());
+        assertEquals(0, hud.getModelEventRate(), 0);
+    }
+
+    @Test
+    public void testFrames() {
+        PerformanceHud hud = new PerformanceHud();
+        hud.setVisible(true);
+        for (int i = 1; i <= 200; i += 1) {
+            hud.countFigures(3, 1);
+            hud.countFigures(2, 4);
+            hud.endFrame(i * 1000);
+        }
+        assertEquals(200000, hud.getLastFrameNanos());
+        // the percentiles are over the last FRAMES frames, 73 to 200 microseconds
+        assertEquals(136000, hud.getFramePercentile(50));
+        assertEquals(199000, hud.getFramePercentile(99));
+        assertEquals(5, hud.getDrawn());
+        assertEquals(5, hud.getCulled());
+        hud.countFigures(7, 7);
+        hud.discardFrame();
+        hud.endFrame(1000);
+        assertEquals(0, hud.getDrawn());
+    }
+
+    @Test
+    public void testModelEventRate() {
+        PerformanceHud hud = new PerformanceHud();
+        long start = System.nanoTime();
+        hud.setVisible(true);
+        for (int i = 0; i < 30; i += 1) {
+            hud.countModelEvent();
+        }
+        hud.tick(start - 1);
+        assertEquals(0, hud.getModelEventRate(), 0);
+        hud.tick(start + 2000000000L);
+        assertTrue(hud.getModelEventRate() > 14 && hud.getModelEventRate() < 16);
+    }
+
+    /**
+     * Test that the canvas reports its frames and draws the HUD over the Figure objects.
+     */
+    @Test
+    public void testCanvas() {
+        DrawModel model = new DrawModel();
+        model.createNewFigure("rectangle", 10, 10, Color.red, true);
+        model.updateCurrentFigure(10, 10, 280, 180);
+        model.createNewFigure("rectangle", 500, 500, Color.blue, true);
+        model.updateCurrentFigure(500, 500, 10, 10);
+        CanvasPanel canvas = new CanvasPanel(new DrawController(model, new ControlModel()));
+        canvas.setSize(300, 200);
+        canvas.setTiledMode(false);
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        canvas.paint(image.createGraphics());
+        assertEquals(Color.red.getRGB(), image.getRGB(20, 20));
+
+        canvas.setHudVisible(true);
+        canvas.paint(image.createGraphics());
+        PerformanceHud hud = canvas.getHud();
+        assertEquals(1, hud.getDrawn());
+        assertEquals(1, hud.getCulled());
+        assertTrue(hud.getLastFrameNanos() > 0);
+        assertNotEquals(Color.red.getRGB(), image.getRGB(20, 20));
+        assertEquals(Color.red.getRGB(), image.getRGB(280, 180));
+        canvas.setHudVisible(false);
+    }
+
+    /**
+     * Test that a tiled frame counts the Figure objects once, however many tiles it renders,
+     * and that a repaint inside the HUD is a frame unless only the HUD asked for it.
+     */
+    @Test
+    public void testCanvasTiledFrames() {
+        DrawModel model = new DrawModel();
+        model.createNewFigure("rectangle", 10, 10, Color.red, true);
+        model.updateCurrentFigure(10, 10, 600, 400); // over several tiles
+        model.createNewFigure("rectangle", 900, 900, Color.blue, true);
+        model.updateCurrentFigure(900, 900, 10, 10);
+        CanvasPanel canvas = new CanvasPanel(new DrawController(model, new ControlModel()));
+        canvas.setSize(800, 600);
+        canvas.setTiledMode(true);
+        canvas.setHudVisible(true);
+        BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        canvas.repaint();
+        canvas.paint(image.createGraphics());
+        PerformanceHud hud = canvas.getHud();
+        assertEquals(1, hud.getDrawn());
+        assertEquals(1, hud.getCulled());
+
+        // a repaint of a change inside the HUD is a frame
+        model.selectTopFigureContains(905, 905);
+        model.updateCurrentFigure(20, 20, 10, 10);
+        model.emptyCurrentFigure();
+        canvas.invalidateTiles(null);
+        Rectangle bounds = hud.getBounds();
+        canvas.repaint(bounds);
+        paintClip(canvas, image, bounds);
+        assertEquals(2, hud.getDrawn());
+        assertEquals(0, hud.getCulled());
+
+        // a refresh of the HUD alone isn't
+        model.selectTopFigureContains(25, 25);
+        model.updateCurrentFigure(900, 900, 10, 10);
+        canvas.invalidateTiles(null);
+        canvas.setHudVisible(true); // refreshes the HUD
+        paintClip(canvas, image, bounds);
+        assertEquals(2, hud.getDrawn());
+        canvas.setHudVisible(false);
+    }
+
+    private void paintClip(CanvasPanel canvas, BufferedImage image, Rectangle clip) {
+        Graphics2D g = image.createGraphics();
+        g.setClip(clip);
+        canvas.paint(g);
+        g.dispose();
+    }
+}
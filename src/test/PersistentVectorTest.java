@@ -0,0 +1,187 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.model.DrawModel;
+import main.model.FigureSnapshot;
+import main.model.PersistentVector;
+import main.model.figure.Figure;
+
+/**
+ * Test PersistentVector object and the FigureSnapshot objects built on it.
+ */
+public class PersistentVectorTest {
+
+    /**
+     * Test random appends, pops and sets against an ArrayList, keeping every version.
+     */
+    @Test
+    public void testAgainstArrayList() {
+        Random random = new Random(7);
+        ArrayList<PersistentVector<Integer>> versions = new ArrayList<PersistentVector<Integer>>();
+        ArrayList<ArrayList<Integer>> expected = new ArrayList<ArrayList<Integer>>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < 40000; i += 1) {
+            int op = random.nextInt(10);
+            if (op < 6 || list.isEmpty()) {
+                vector = vector.append(i);
+                list.add(i);
+            } else if (op < 8) {
+                vector = vector.pop();
+                list.remove(list.size() - 1);
+            } else {
+                int index = random.nextInt(list.size());
+                vector = vector.set(index, -i);
+                list.set(index, -i);
+            }
+            if (i % 4000 == 0) {
+                versions.add(vector);
+                expected.add(new ArrayList<Integer>(list));
+            }
+        }
+        assertContent(list, vector);
+        // earlier versions are untouched
+        for (int i = 0; i < versions.size(); i += 1) {
+            assertContent(expected.get(i), versions.get(i));
+        }
+        // pop down to empty through every tree height
+        while (vector.size() > 0) {
+            vector = vector.pop();
+            list.remove(list.size() - 1);
+            if (list.size() % 1000 == 0) {
+                assertContent(list, vector);
+            }
+        }
+    }
+
+    /**
+     * Test random inserts, removals and moves at any index against an ArrayList, keeping every version.
+     */
+    @Test
+    public void testInsertRemoveMove() {
+        Random random = new Random(11);
+        ArrayList<PersistentVector<Integer>> versions = new ArrayList<PersistentVector<Integer>>();
+        ArrayList<ArrayList<Integer>> expected = new ArrayList<ArrayList<Integer>>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < 40000; i += 1) {
+            int op = random.nextInt(10);
+            if (op < 5 || list.isEmpty()) {
+                int index = random.nextInt(list.size() + 1);
+                vector = vector.insert(index, i);
+                list.add(index, i);
+            } else if (op < 8) {
+                int index = random.nextInt(list.size());
+                vector = vector.remove(index);
+                list.remove(index);
+            } else {
+                int from = random.nextInt(list.size());
+                int to = random.nextInt(list.size());
+                vector = vector.move(from, to);
+                list.add(to, list.remove(from));
+            }
+            if (i % 4000 == 0) {
+                versions.add(vector);
+                expected.add(new ArrayList<Integer>(list));
+            }
+        }
+        assertContent(list, vector);
+        for (int i = 0; i < versions.size(); i += 1) {
+            assertContent(expected.get(i), versions.get(i));
+        }
+        // remove from the front down to empty through every tree height
+        while (vector.size() > 0) {
+            vector = vector.remove(0);
+            list.remove(0);
+            if (list.size() % 1000 == 0) {
+                assertContent(list, vector);
+            }
+        }
+    }
+
+    /**
+     * Test DrawModel snapshots are immutable and follow the DrawModel object.
+     */
+    @Test
+    public void testSnapshot() {
+        DrawModel model = new DrawModel();
+        model.createNewFigure("rectangle", 10, 10, Color.pink, false);
+        model.updateCurrentFigure(10, 10, 5, 5);
+        FigureSnapshot first = model.snapshot();
+        model.saveHistory();
+        model.createNewFigure("moon", 20, 20, Color.blue, true);
+        model.updateCurrentFigure(20, 20, 8, 8);
+        FigureSnapshot second = model.snapshot();
+        model.clearAll();
+        FigureSnapshot third = model.snapshot();
+        model.undo();
+        FigureSnapshot fourth = model.snapshot();
+
+        assertEquals(1, first.size());
+        assertEquals(5, (int) first.get(0).getWidth());
+        assertEquals(2, second.size());
+        assertEquals("moon", second.get(0).getType().getName());
+        assertEquals(8, (int) second.get(0).getWidth());
+        assertEquals(0, third.size());
+        assertEquals(1, fourth.size());
+        assertEquals("rectangle", fourth.get(0).getType().getName());
+    }
+
+    /**
+     * Test snapshots follow restacks, removals below the top, and a clear undone, matching the live Figure objects.
+     */
+    @Test
+    public void testSnapshotFollowsEdits() {
+        DrawModel model = new DrawModel();
+        Random random = new Random(3);
+        Color[] colors = {Color.pink, Color.blue, Color.green};
+        model.snapshot();
+        for (int i = 0; i < 400; i += 1) {
+            int op = random.nextInt(6);
+            model.saveHistory();
+            if (op < 2 || model.getFigures().isEmpty()) {
+                model.createNewFigure("ellipse", random.nextInt(500), random.nextInt(500), colors[i % colors.length], false);
+                model.updateCurrentFigure(random.nextInt(500), random.nextInt(500), 20, 20);
+            } else if (op < 4) {
+                Figure figure = model.getFigures().get(random.nextInt(model.getFigures().size()));
+                model.selectTopFigureContains(figure.getX1() + 10, figure.getY1() + 10);
+                if (op == 2) {
+                    model.bringCurrentFigureToFront();
+                } else {
+                    model.sendCurrentFigureToBack();
+                }
+                model.updateCurrentFigure(colors[random.nextInt(colors.length)]);
+            } else if (op == 4 && model.getUndoStack().size() > 1) {
+                model.undo(); // may remove a Figure object below the top
+                model.undo();
+            } else if (i % 10 == 0) {
+                model.clearAll();
+                model.undo();
+            }
+            FigureSnapshot snapshot = model.snapshot();
+            List<Figure> figures = model.getFigures();
+            assertEquals(figures.size(), snapshot.size());
+            for (int j = 0; j < figures.size(); j += 1) {
+                assertEquals(figures.get(j).getId(), snapshot.get(j).getId());
+                assertEquals(figures.get(j).getColor(), snapshot.get(j).getColor());
+                assertEquals(figures.get(j).getX1(), snapshot.get(j).getX1(), 0);
+            }
+        }
+    }
+
+    /** Compare a PersistentVector object with a list */
+    private void assertContent(ArrayList<Integer> list, PersistentVector<Integer> vector) {
+        assertEquals(list.size(), vector.size());
+        for (int i = 0; i < list.size(); i += 1) {
+            assertEquals(list.get(i), vector.get(i));
+        }
+    }
+}
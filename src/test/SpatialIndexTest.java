@@ -0,0 +1,161 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.SpatialIndex;
+import main.model.figure.*;
+
+/**
+ * Test SpatialIndex object against a linear scan of the Figure objects.
+ */
+public class SpatialIndexTest {
+    private SpatialIndex index;
+    private ArrayList<Figure> figures; // top to bottom, as kept by DrawModel
+    private Random random;
+
+    @Before
+    public void setup() {
+        index = new SpatialIndex();
+        figures = new ArrayList<Figure>();
+        random = new Random(42);
+        for (int i = 0; i < 2000; i += 1) {
+            Figure figure = randomFigure();
+            figures.add(0, figure);
+            index.insert(figure);
+        }
+    }
+
+    /**
+     * Test picking the top Figure object at random points.
+     */
+    @Test
+    public void testTopFigureContains() {
+        assertEquals(figures.size(), index.size());
+        for (int i = 0; i < 2000; i += 1) {
+            double x = random.nextDouble() * 3000;
+            double y = random.nextDouble() * 3000;
+            assertSame(scan(x, y), index.topFigureContains(x, y));
+        }
+    }
+
+    /**
+     * Test picking after Figure objects move, grow and are removed.
+     */
+    @Test
+    public void testUpdateAndRemove() {
+        for (int i = 0; i < 500; i += 1) {
+            Figure figure = figures.get(random.nextInt(figures.size()));
+            if (i % 5 == 0) {
+                figures.remove(figure);
+                index.remove(figure);
+            } else {
+                figure.updateBound(random.nextDouble() * 5000, random.nextDouble() * 5000,
+                    random.nextDouble() * 300, random.nextDouble() * 300);
+                index.update(figure);
+            }
+        }
+        assertEquals(figures.size(), index.size());
+        for (int i = 0; i < 2000; i += 1) {
+            double x = random.nextDouble() * 5000;
+            double y = random.nextDouble() * 5000;
+            assertSame(scan(x, y), index.topFigureContains(x, y));
+        }
+    }
+
+    /**
+     * Test rebuilding and clearing the index.
+     */
+    @Test
+    public void testRebuildAndClear() {
+        Figure top = figures.get(0);
+        index.rebuild(figures);
+        assertTrue(index.contains(top));
+        double x = top.getX1() + top.getWidth() / 2;
+        double y = top.getY1() + top.getHeight() / 2;
+        assertSame(scan(x, y), index.topFigureContains(x, y));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.contains(top));
+        assertNull(index.topFigureContains(x, y));
+    }
+
+    /**
+     * Test picking among small Figure objects that all straddle the midlines of quadtree nodes,
+     * which a loose quadtree keeps in nodes of their own size rather than near the root.
+     */
+    @Test
+    public void testStraddlingFigures() {
+        index.clear();
+        figures.clear();
+        for (int i = 0; i < 4096; i += 1) {
+            Figure figure = new Rectangle(i % 64 * 64 + 58 + random.nextDouble() * 4, i / 64 * 64 + 58 + random.nextDouble() * 4,
+                Color.pink, random.nextBoolean());
+            figure.updateArea(8, 8);
+            figures.add(0, figure);
+            index.insert(figure);
+        }
+        for (int i = 0; i < 4000; i += 1) {
+            double x = random.nextInt(64) * 64 + 56 + random.nextDouble() * 16;
+            double y = random.nextInt(64) * 64 + 56 + random.nextDouble() * 16;
+            assertSame(scan(x, y), index.topFigureContains(x, y));
+        }
+    }
+
+    /** Linear scan for the top Figure object containing a point */
+    private Figure scan(double x, double y) {
+        for (Figure f : figures) {
+            if (f.contains(x, y)) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    /** Create a Figure object of random type and bounds */
+    private Figure randomFigure() {
+        double x1 = random.nextDouble() * 3000;
+        double y1 = random.nextDouble() * 3000;
+        Figure figure;
+        switch (random.nextInt(7)) {
+            case 0:
+                figure = new Line(x1, y1, Color.pink, false);
+                break;
+            case 1:
+                figure = new Rectangle(x1, y1, Color.pink, true);
+                break;
+            case 2:
+                figure = new Ellipse(x1, y1, Color.pink, false);
+                break;
+            case 3:
+                figure = new DiagonalCross(x1, y1, Color.pink, false);
+                break;
+            case 4:
+                figure = new Heart(x1, y1, Color.pink, true);
+                break;
+            case 5:
+                figure = new Triangle(x1, y1, Color.pink, false);
+                break;
+            default:
+                figure = new Moon(x1, y1, Color.pink, true);
+        }
+        if (figure instanceof Line) {
+            // lines may extend to the upper left of their anchor point
+            figure.updateArea(random.nextDouble() * 400 - 200, random.nextDouble() * 400 - 200);
+        } else {
+            figure.updateArea(random.nextDouble() * 200, random.nextDouble() * 200);
+        }
+        return figure;
+    }
+}
@@ -0,0 +1,100 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import main.model.DrawModel;
+import main.model.figure.FigureType;
+import main.view.FigureRenderer;
+import main.view.SvgExporter;
+
+/**
+ * Test writing Figure objects as SVG.
+ */
+public class SvgExporterTest {
+    private DrawModel model;
+    private SvgExporter exporter;
+
+    @Before
+    public void setUp() {
+        model = new DrawModel();
+        exporter = new SvgExporter(new FigureRenderer());
+        FigureType[] types = FigureType.values();
+        for (int i = 0; i < types.length; i += 1) {
+            model.createNewFigure(types[i].getName(), 10 * i, 20, i % 2 == 0 ? Color.red : Color.blue, true);
+            model.updateCurrentFigure(10 * i, 20, 30, 40.5);
+        }
+    }
+
+    @Test
+    public void testElements() throws Exception {
+        StringWriter out = new StringWriter();
+        exporter.write(model.getFigures(), 400, 300, out);
+        Document document = parse(out.toString().getBytes("UTF-8"));
+        Element svg = document.getDocumentElement();
+        assertEquals("svg", svg.getTagName());
+        assertEquals("400", svg.getAttribute("width"));
+        assertEquals(1, document.getElementsByTagName("line").getLength());
+        assertEquals(2, document.getElementsByTagName("rect").getLength()); // the background and the Rectangle object
+        assertEquals(1, document.getElementsByTagName("ellipse").getLength());
+        assertEquals(4, document.getElementsByTagName("path").getLength());
+
+        Element rect = (Element) document.getElementsByTagName("rect").item(1);
+        assertEquals("10", rect.getAttribute("x"));
+        assertEquals("40.5", rect.getAttribute("height"));
+        assertEquals("#0000ff", rect.getAttribute("stroke"));
+        assertEquals("#0000ff", rect.getAttribute("fill"));
+        Element line = (Element) document.getElementsByTagName("line").item(0);
+        assertEquals("#ff0000", line.getAttribute("stroke"));
+        assertEquals("none", line.getAttribute("fill"));
+        Element ellipse = (Element) document.getElementsByTagName("ellipse").item(0);
+        assertEquals("35", ellipse.getAttribute("cx"));
+        assertEquals("15", ellipse.getAttribute("rx"));
+    }
+
+    @Test
+    public void testPaintOrder() throws Exception {
+        StringWriter out = new StringWriter();
+        exporter.write(model.getFigures(), 400, 300, out);
+        String svg = out.toString();
+        // the first Figure object created is painted first
+        assertTrue(svg.indexOf("<line") < svg.indexOf("<ellipse"));
+        assertTrue(svg.indexOf("<ellipse") < svg.lastIndexOf("<path"));
+    }
+
+    @Test
+    public void testPath() throws Exception {
+        StringWriter out = new StringWriter();
+        exporter.write(model.getFigures(), 400, 300, out);
+        Element triangle = (Element) parse(out.toString().getBytes("UTF-8")).getElementsByTagName("path").item(1);
+        assertEquals("M55,20 L40,60.5 L70,60.5 Z", triangle.getAttribute("d"));
+    }
+
+    @Test
+    public void testSnapshotAndStream() throws Exception {
+        StringWriter out = new StringWriter();
+        exporter.write(model.getFigures(), 400, 300, out);
+        StringWriter snapshotOut = new StringWriter();
+        exporter.write(model.snapshot(), 400, 300, snapshotOut);
+        assertEquals(out.toString(), snapshotOut.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        exporter.write(model.getFigures(), 400, 300, bytes);
+        assertEquals(out.toString(), bytes.toString("UTF-8"));
+    }
+
+    private Document parse(byte[] svg) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(svg));
+    }
+}
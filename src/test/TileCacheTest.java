@@ -0,0 +1,86 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import main.view.TileCache;
+
+/**
+ * Test TileCache object keeps its tile images within its memory budget.
+ */
+public class TileCacheTest {
+    private static final int TILE_SIZE = 64;
+    private static final long TILE_BYTES = 4L * TILE_SIZE * TILE_SIZE;
+
+    /**
+     * Test panning across many tiles keeps the least recently painted ones within the budget.
+     */
+    @Test
+    public void testPanningIsBounded() {
+        TileCache cache = new TileCache(TILE_SIZE, 10 * TILE_BYTES);
+        BufferedImage screen = new BufferedImage(128, 128, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 64 * TILE_SIZE; x += TILE_SIZE / 2) {
+            paint(cache, screen, new Rectangle(x, 0, 128, 128));
+            assertTrue(cache.getBytes() <= 10 * TILE_BYTES);
+            assertEquals(cache.getBytes(), cache.getTileCount() * TILE_BYTES);
+        }
+        // the tiles just painted are still there, the first ones are gone
+        cache.resetCounters();
+        paint(cache, screen, new Rectangle(62 * TILE_SIZE, 0, 128, 128));
+        assertEquals(0, cache.getMissCount());
+        paint(cache, screen, new Rectangle(0, 0, 128, 128));
+        assertEquals(4, cache.getMissCount());
+    }
+
+    /**
+     * Test a clip larger than the budget is still painted from tiles rendered once.
+     */
+    @Test
+    public void testClipLargerThanBudget() {
+        TileCache cache = new TileCache(TILE_SIZE, TILE_BYTES);
+        BufferedImage screen = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        paint(cache, screen, new Rectangle(0, 0, 256, 256));
+        assertEquals(16, cache.getMissCount());
+        assertEquals(16, cache.getTileCount());
+        // the next paint drops the tiles of the first one
+        paint(cache, screen, new Rectangle(0, 0, 64, 64));
+        assertEquals(1, cache.getTileCount());
+    }
+
+    /**
+     * Test invalidating all tiles drops their images, and invalidating a region keeps them.
+     */
+    @Test
+    public void testInvalidate() {
+        TileCache cache = new TileCache(TILE_SIZE);
+        BufferedImage screen = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        paint(cache, screen, new Rectangle(0, 0, 256, 256));
+        cache.invalidate(new Rectangle2D.Double(10, 10, 10, 10));
+        assertEquals(16, cache.getTileCount());
+        cache.resetCounters();
+        paint(cache, screen, new Rectangle(0, 0, 256, 256));
+        assertEquals(1, cache.getMissCount());
+        cache.invalidate(null);
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getBytes());
+    }
+
+    /** Paint a clip of the canvas from the cache, rendering tiles as blank */
+    private void paint(TileCache cache, BufferedImage screen, Rectangle clip) {
+        Graphics2D g = screen.createGraphics();
+        g.translate(-clip.x, -clip.y);
+        cache.paint(g, clip, new TileCache.TileRenderer() {
+            @Override
+            public void render(Graphics2D tile, Rectangle region) {
+            }
+        });
+        g.dispose();
+    }
+}
@@ -0,0 +1,79 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.model.figure.Figure;
+import main.model.figure.FigureType;
+import main.view.FigureRenderer;
+import main.view.TileExporter;
+
+/**
+ * Test parallel tiled exports against a single-threaded render.
+ */
+public class TileExporterTest {
+    private ArrayList<Figure> figures;
+    private FigureRenderer renderer;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(7);
+        Color[] colors = {Color.red, Color.blue, Color.green, Color.black, Color.pink};
+        FigureType[] types = {FigureType.LINE, FigureType.RECTANGLE, FigureType.CROSS, FigureType.TRIANGLE};
+        figures = new ArrayList<Figure>();
+        for (int i = 0; i < 500; i += 1) {
+            Figure figure = types[i % types.length].create(random.nextInt(300), random.nextInt(200),
+                colors[random.nextInt(colors.length)], random.nextBoolean());
+            figure.updateArea(5 + random.nextInt(60), 5 + random.nextInt(60));
+            figures.add(figure);
+        }
+        renderer = new FigureRenderer();
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testExportMatchesRender() {
+        assertEquals(0, countDifferentPixels(new AffineTransform(), 360, 260));
+    }
+
+    @Test
+    public void testExportMatchesRenderScaled() {
+        assertEquals(0, countDifferentPixels(AffineTransform.getScaleInstance(2, 2), 720, 520));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTileSize() {
+        new TileExporter(renderer, 0);
+    }
+
+    private int countDifferentPixels(AffineTransform transform, int width, int height) {
+        BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        renderer.render(figures, expected, transform);
+        BufferedImage image = new TileExporter(renderer, 48).export(figures, width, height, transform, pool);
+        int count = 0;
+        for (int y = 0; y < height; y += 1) {
+            for (int x = 0; x < width; x += 1) {
+                if (expected.getRGB(x, y) != image.getRGB(x, y)) {
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+}
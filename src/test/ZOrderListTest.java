@@ -0,0 +1,61 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.model.ZOrderList;
+
+/**
+ * Test ZOrderList object against an ArrayList.
+ */
+public class ZOrderListTest {
+
+    /**
+     * Test random inserts, removes and moves at the ends and in between, wrapping around and growing the array.
+     */
+    @Test
+    public void testAgainstArrayList() {
+        Random random = new Random(11);
+        ZOrderList<Integer> zorder = new ZOrderList<Integer>();
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < 20000; i += 1) {
+            int op = random.nextInt(10);
+            if (op < 4 || list.isEmpty()) {
+                int index = op < 2 ? 0 : random.nextInt(list.size() + 1);
+                zorder.add(index, i);
+                list.add(index, i);
+            } else if (op < 6) {
+                int index = op < 5 ? 0 : random.nextInt(list.size());
+                assertEquals(list.remove(index), zorder.remove(index));
+            } else if (op < 9) {
+                int from = random.nextInt(list.size());
+                int to = op == 6 ? 0 : op == 7 ? list.size() - 1 : random.nextInt(list.size());
+                zorder.move(from, to);
+                list.add(to, list.remove(from));
+            } else {
+                int index = random.nextInt(list.size());
+                zorder.set(index, -i);
+                list.set(index, -i);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(list, zorder);
+            }
+        }
+        assertEquals(list, zorder);
+        assertEquals(list, new ZOrderList<Integer>(list));
+        assertEquals(list.size() - 1, zorder.indexOfIdentical(zorder.get(list.size() - 1)));
+        zorder.clear();
+        assertEquals(0, zorder.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() {
+        ZOrderList<Integer> zorder = new ZOrderList<Integer>();
+        zorder.add(0, 1);
+        zorder.move(0, 1);
+    }
+}